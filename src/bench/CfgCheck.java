@@ -0,0 +1,318 @@
+package bench;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import driver.Frontend;
+import llvm.Codegen;
+import llvmast.LlvmBasicBlock;
+import llvmast.LlvmDominators;
+import llvmast.LlvmFunction;
+import llvmast.LlvmLoop;
+import llvmast.LlvmLoopNest;
+import llvmast.LlvmModule;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Confere o LlvmDominators e o LlvmLoopNest contra as definições, calculadas
+ * por força bruta em cada função do corpus:
+ *
+ *   dominância   a domina b sse b fica inalcançável a partir da entrada sem
+ *                passar por a (para todo par de blocos alcançáveis);
+ *   idom         domina estritamente o bloco e é dominado pelos outros
+ *                dominadores estritos dele; children é o inverso do idom;
+ *   fronteira    b está na de a sse a domina um predecessor de b sem dominar
+ *                b estritamente;
+ *   laços        para cada aresta de volta p -> h, os blocos que chegam a p
+ *                sem passar por h; latches, saídas e profundidade de cada bloco.
+ *
+ * Além disso, os laços de BubbleSort e QuickSort (test/bigger) têm de ser os
+ * de EXPECTED: cabeçalho, profundidade, pré-cabeçalho, saídas e pai.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.CfgCheck [arquivo | diretório]...
+ *   (padrão: test/smaller test/bigger)
+ *
+ * Termina com status 1 se alguma conferência falhar. Os fontes que não
+ * compilam são só listados.
+ */
+public class CfgCheck {
+	private static final String[] DEFAULT = { "test/smaller", "test/bigger" };
+
+	// arquivo, função, e um laço por linha: "cabeçalho profundidade pré-cabeçalho saídas pai"
+	private static final String[][] EXPECTED = {
+		{ "BubbleSort.java", "@__Sort_BBS",
+			"whileCond0 1 entry0 whileEnd0 -",
+			"whileCond1 2 whileBody0 whileEnd1 whileCond0" },
+		{ "BubbleSort.java", "@__Print_BBS",
+			"whileCond0 1 entry0 whileEnd0 -" },
+		{ "BubbleSort.java", "@__Start_BBS" },
+		{ "QuickSort.java", "@__Sort_QS",
+			"whileCond0 1 ifThen0 whileEnd0 -",
+			"whileCond1 2 whileBody0 whileEnd1 whileCond0",
+			"whileCond2 2 whileEnd1 whileEnd2 whileCond0" },
+		{ "QuickSort.java", "@__Print_QS",
+			"whileCond0 1 entry0 whileEnd0 -" },
+		{ "QuickSort.java", "@__Start_QS" },
+	};
+
+	private final List<String> failures = new ArrayList<String>();
+	private String where;
+
+	public static void main(String[] args) throws Exception {
+		List<File> sources = new ArrayList<File>();
+		for (String a : args) {
+			if (a.startsWith("-")) {
+				System.err.println("uso: bench.CfgCheck [arquivo | diretório]...");
+				System.exit(2);
+			}
+			collect(new File(a), sources);
+		}
+		if (sources.isEmpty())
+			for (String d : DEFAULT)
+				collect(new File(d), sources);
+
+		CfgCheck check = new CfgCheck();
+		int functions = 0, loops = 0, expected = 0, wanted = 0;
+		for (File source : sources)
+			if (isBigger(source))
+				for (String[] e : EXPECTED)
+					if (e[0].equals(source.getName()))
+						wanted++;
+		for (File source : sources) {
+			LlvmModule module;
+			try {
+				Program p = Frontend.parse(source.getPath());
+				Env env = Frontend.check(source.getPath(), p);
+				module = new Codegen().generateModule(p, env);
+			} catch (Throwable e) {
+				System.out.println("ignorado  " + source.getPath() + ": não compilou (" + e + ")");
+				continue;
+			}
+			for (LlvmFunction f : module.functions) {
+				check.where = source.getName() + " " + f.name();
+				LlvmLoopNest nest = new LlvmLoopNest(f);
+				check.dominators(f, nest.getDominators());
+				check.loops(f, nest);
+				functions++;
+				loops += nest.loops().size();
+			}
+			expected += check.expected(source, module);
+		}
+		if (expected != wanted)
+			check.failures.add("só " + expected + " das " + wanted + " funções esperadas de BubbleSort e QuickSort foram conferidas");
+
+		for (String f : check.failures)
+			System.out.println("FALHOU    " + f);
+		System.out.printf("%d fontes, %d funções, %d laços: %d falhas%n", sources.size(), functions, loops, check.failures.size());
+		System.exit(check.failures.isEmpty() ? 0 : 1);
+	}
+
+	private void fail(String message){
+		failures.add(where + ": " + message);
+	}
+
+	/* Dominância, idom, filhos e fronteira, contra as definições */
+	private void dominators(LlvmFunction f, LlvmDominators dom){
+		List<LlvmBasicBlock> reachable = dom.reversePostorder();
+		Set<LlvmBasicBlock> fromEntry = reachableAvoiding(f, null);
+		for (LlvmBasicBlock b : f.blocks)
+			if (dom.isReachable(b) != fromEntry.contains(b))
+				fail("isReachable(" + b + ") = " + dom.isReachable(b));
+
+		// dominadores de cada bloco, por força bruta
+		Map<LlvmBasicBlock, Set<LlvmBasicBlock>> doms = new HashMap<LlvmBasicBlock, Set<LlvmBasicBlock>>();
+		for (LlvmBasicBlock b : reachable)
+			doms.put(b, new HashSet<LlvmBasicBlock>());
+		for (LlvmBasicBlock a : reachable) {
+			Set<LlvmBasicBlock> avoiding = reachableAvoiding(f, a);
+			for (LlvmBasicBlock b : reachable) {
+				boolean naive = a == b || !avoiding.contains(b);
+				if (naive)
+					doms.get(b).add(a);
+				if (naive != dom.dominates(a, b))
+					fail("dominates(" + a + ", " + b + ") = " + dom.dominates(a, b));
+			}
+		}
+
+		for (LlvmBasicBlock b : reachable) {
+			LlvmBasicBlock d = dom.idom(b);
+			if (b == f.entry()) {
+				if (d != null)
+					fail("a entrada tem idom " + d);
+				continue;
+			}
+			if (d == null || d == b || !doms.get(b).contains(d)) {
+				fail("idom(" + b + ") = " + d + " não domina estritamente " + b);
+				continue;
+			}
+			for (LlvmBasicBlock o : doms.get(b))
+				if (o != b && !doms.get(d).contains(o))
+					fail("idom(" + b + ") = " + d + ", mas " + o + " é um dominador estrito mais próximo");
+			if (!dom.children(d).contains(b))
+				fail(b + " não está em children(" + d + ")");
+		}
+
+		for (LlvmBasicBlock a : reachable) {
+			Set<LlvmBasicBlock> df = new HashSet<LlvmBasicBlock>();
+			for (LlvmBasicBlock b : reachable)
+				for (LlvmBasicBlock p : b.predecessors)
+					if (doms.containsKey(p) && doms.get(p).contains(a) && (a == b || !doms.get(b).contains(a)))
+						df.add(b);
+			if (!df.equals(new HashSet<LlvmBasicBlock>(dom.frontier(a))))
+				fail("frontier(" + a + ") = " + dom.frontier(a) + ", esperado " + df);
+		}
+	}
+
+	/* Laços naturais, latches, saídas e profundidade, contra as arestas de volta */
+	private void loops(LlvmFunction f, LlvmLoopNest nest){
+		LlvmDominators dom = nest.getDominators();
+		Map<LlvmBasicBlock, Set<LlvmBasicBlock>> bodies = new HashMap<LlvmBasicBlock, Set<LlvmBasicBlock>>();
+		Map<LlvmBasicBlock, Set<LlvmBasicBlock>> latches = new HashMap<LlvmBasicBlock, Set<LlvmBasicBlock>>();
+		for (LlvmBasicBlock p : dom.reversePostorder())
+			for (LlvmBasicBlock h : p.successors)
+				if (dom.dominates(h, p)) {
+					if (!bodies.containsKey(h)) {
+						bodies.put(h, new HashSet<LlvmBasicBlock>());
+						latches.put(h, new HashSet<LlvmBasicBlock>());
+					}
+					bodies.get(h).addAll(body(h, p));
+					latches.get(h).add(p);
+				}
+
+		if (nest.loops().size() != bodies.size())
+			fail(nest.loops().size() + " laços, esperado " + bodies.size());
+		for (LlvmLoop l : nest.loops()) {
+			Set<LlvmBasicBlock> body = bodies.get(l.header);
+			if (body == null) {
+				fail(l + " sem aresta de volta para o cabeçalho");
+				continue;
+			}
+			if (!body.equals(l.blocks))
+				fail(l + ": blocos " + l.blocks + ", esperado " + body);
+			if (!latches.get(l.header).equals(new HashSet<LlvmBasicBlock>(l.latches)))
+				fail(l + ": latches " + l.latches + ", esperado " + latches.get(l.header));
+			Set<LlvmBasicBlock> exits = new HashSet<LlvmBasicBlock>();
+			for (LlvmBasicBlock b : body)
+				for (LlvmBasicBlock s : b.successors)
+					if (!body.contains(s))
+						exits.add(s);
+			if (!exits.equals(new HashSet<LlvmBasicBlock>(l.exits)))
+				fail(l + ": saídas " + l.exits + ", esperado " + exits);
+			if (l.preheader != null && (l.contains(l.preheader) || l.preheader.successors.size() != 1
+					|| l.preheader.successors.get(0) != l.header))
+				fail(l + ": pré-cabeçalho " + l.preheader + " não desvia só para o cabeçalho");
+		}
+
+		// profundidade de cada bloco: em quantos laços ele está
+		for (LlvmBasicBlock b : dom.reversePostorder()) {
+			int depth = 0;
+			for (Set<LlvmBasicBlock> body : bodies.values())
+				if (body.contains(b))
+					depth++;
+			if (nest.depth(b) != depth)
+				fail("depth(" + b + ") = " + nest.depth(b) + ", esperado " + depth);
+		}
+	}
+
+	// Os blocos que chegam a 'latch' sem passar por 'header', mais o próprio 'header'
+	private static Set<LlvmBasicBlock> body(LlvmBasicBlock header, LlvmBasicBlock latch){
+		Set<LlvmBasicBlock> body = new HashSet<LlvmBasicBlock>();
+		body.add(header);
+		Deque<LlvmBasicBlock> work = new ArrayDeque<LlvmBasicBlock>();
+		if (body.add(latch))
+			work.add(latch);
+		while (!work.isEmpty())
+			for (LlvmBasicBlock p : work.poll().predecessors)
+				if (body.add(p))
+					work.add(p);
+		return body;
+	}
+
+	// Blocos alcançáveis a partir da entrada sem passar por 'avoid' (null = nenhum)
+	private static Set<LlvmBasicBlock> reachableAvoiding(LlvmFunction f, LlvmBasicBlock avoid){
+		Set<LlvmBasicBlock> seen = new HashSet<LlvmBasicBlock>();
+		LlvmBasicBlock entry = f.entry();
+		if (entry == null || entry == avoid)
+			return seen;
+		Deque<LlvmBasicBlock> work = new ArrayDeque<LlvmBasicBlock>();
+		seen.add(entry);
+		work.add(entry);
+		while (!work.isEmpty())
+			for (LlvmBasicBlock s : work.poll().successors)
+				if (s != avoid && seen.add(s))
+					work.add(s);
+		return seen;
+	}
+
+	/* Os laços de EXPECTED nas funções deste fonte; devolve quantas funções conferiu */
+	private int expected(File source, LlvmModule module){
+		if (!isBigger(source))
+			return 0;
+		int checked = 0;
+		for (String[] e : EXPECTED) {
+			if (!e[0].equals(source.getName()))
+				continue;
+			where = e[0] + " " + e[1];
+			LlvmFunction f = module.function(e[1]);
+			if (f == null) {
+				fail("função não encontrada");
+				continue;
+			}
+			checked++;
+			List<String> actual = new ArrayList<String>();
+			for (LlvmLoop l : new LlvmLoopNest(f).loops())
+				actual.add(l.header + " " + l.depth + " " + (l.preheader == null ? "-" : l.preheader.toString()) + " "
+						+ join(l.exits) + " " + (l.parent == null ? "-" : l.parent.header.toString()));
+			List<String> wanted = new ArrayList<String>();
+			for (int k = 2; k < e.length; k++)
+				wanted.add(e[k]);
+			Collections.sort(actual);
+			Collections.sort(wanted);
+			if (!actual.equals(wanted))
+				fail("laços " + actual + ", esperado " + wanted);
+		}
+		return checked;
+	}
+
+	private static boolean isBigger(File source){
+		return source.getPath().replace(File.separatorChar, '/').contains("test/bigger/");
+	}
+
+	private static String join(List<LlvmBasicBlock> blocks){
+		Set<String> names = new LinkedHashSet<String>();
+		for (LlvmBasicBlock b : blocks)
+			names.add(b.toString());
+		StringBuilder sb = new StringBuilder();
+		for (String n : names) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(n);
+		}
+		return sb.toString();
+	}
+
+	private static void collect(File f, List<File> sources){
+		if (f.isDirectory()) {
+			File[] children = f.listFiles();
+			List<File> sorted = new ArrayList<File>();
+			if (children != null)
+				Collections.addAll(sorted, children);
+			Collections.sort(sorted);
+			for (File c : sorted)
+				if (c.getName().endsWith(".java"))
+					sources.add(c);
+		} else {
+			sources.add(f);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import driver.Frontend;
+import llvm.Codegen;
+import llvmast.LlvmInstruction;
+
+/**
+ * Benchmarks dos caminhos quentes do compilador, para cada programa de
+ * test/bigger (ou dos arquivos passados em -Dbench.sources=a.java:b.java):
+ *
+ *   parse:<prog>      lexer + parser do jar + conversão para syntaxtree (Frontend.parse)
+ *   symtab:<prog>     SymTab.FillTabSymbol sobre a AST já checada
+ *   translate:<prog>  Codegen.translate inteiro (SymTab + geração + renderização)
+ *   render:<prog>     só a renderização (appendTo) do IR já gerado
+ *
+ * Todos escrevem o IR num Writer que descarta tudo. Programas que o Codegen não
+ * consegue traduzir ficam de fora de symtab/translate/render.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.CompilerBench [opções do Harness] [regex]
+ * ex.: make bench BENCH_ARGS="-f 2 -o base.csv translate"
+ */
+public class CompilerBench implements Harness.Suite {
+	private static final String[] KINDS = { "parse", "symtab", "translate", "render" };
+
+	public static void main(String[] args) throws Exception {
+		Harness.run(new CompilerBench(), args);
+	}
+
+	private static List<File> sources(){
+		List<File> files = new ArrayList<File>();
+		String list = System.getProperty("bench.sources");
+		if (list != null) {
+			for (String f : list.split(File.pathSeparator))
+				files.add(new File(f));
+		} else {
+			File[] found = new File("test/bigger").listFiles();
+			if (found != null) {
+				Arrays.sort(found);
+				for (File f : found)
+					if (f.getName().endsWith(".java"))
+						files.add(f);
+			}
+		}
+		return files;
+	}
+
+	public List<String> names() throws Exception {
+		List<String> names = new ArrayList<String>();
+		for (String kind : KINDS)
+			for (File f : sources())
+				names.add(kind + ":" + programName(f));
+		return names;
+	}
+
+	public Harness.Op setup(String name) throws Exception {
+		String kind = name.substring(0, name.indexOf(':'));
+		File file = null;
+		for (File f : sources())
+			if (programName(f).equals(name.substring(kind.length() + 1)))
+				file = f;
+		final String path = file.getPath();
+		final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+		if (kind.equals("parse"))
+			return new Harness.Op() {
+				public Object run() throws Exception {
+					return Frontend.parse(path, new StringReader(text));
+				}
+			};
+
+		final Sources src = Sources.load(path);
+		final Harness.NullWriter out = new Harness.NullWriter();
+		// aborta já no setup se o Codegen não traduz este programa
+		new Codegen().translate(src.program, src.env, out);
+
+		if (kind.equals("symtab"))
+			return new Harness.Op() {
+				public Object run(){
+					return Codegen.fillTabSymbol(src.program);
+				}
+			};
+		if (kind.equals("translate"))
+			return new Harness.Op() {
+				public Object run() throws Exception {
+					Codegen c = new Codegen();
+					c.translate(src.program, src.env, out);
+					return c;
+				}
+			};
+		if (kind.equals("render")) {
+			final List<LlvmInstruction> instrs = new Codegen().generate(src.program, src.env);
+			return new Harness.Op() {
+				public Object run() throws Exception {
+					for (LlvmInstruction instr : instrs) {
+						instr.appendTo(out);
+						out.write('\n');
+					}
+					return instrs;
+				}
+			};
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	private static String programName(File f){
+		String name = f.getName();
+		return name.endsWith(".java") ? name.substring(0, name.length() - ".java".length()) : name;
+	}
+}
@@ -0,0 +1,326 @@
+package bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import driver.Frontend;
+import llvm.Codegen;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Roda o corpus de testes inteiro: compila cada programa, executa o .ll no lli
+ * e compara a saída padrão com a esperada. Os programas são processados em
+ * paralelo por um conjunto limitado de threads (-j), cada uma com o seu Codegen
+ * e o seu processo do lli.
+ *
+ * Saída esperada:
+ *   Nome.java  ->  Nome.out ao lado, gerado com -update rodando o fonte numa
+ *                  JVM (o MiniJava é um subconjunto do Java);
+ *   nome.in    ->  nome.out é o IR do compilador de referência (o par
+ *                  tiger.in/tiger.out); a saída esperada é a dele no lli.
+ *
+ * Sem lli ($LLI ou -lli) os programas são só compilados e a execução sai como
+ * "skipped" no relatório.
+ *
+ * Antes de executar, o mesmo Program é traduzido duas vezes e os dois IRs têm de
+ * ser idênticos byte a byte: o Codegen não pode consumir nem alterar a árvore.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.CorpusRunner [opções] [arquivo | diretório]...
+ *   (padrão: test/smaller test/bigger tiger.in)
+ *   -j n     threads (padrão: número de processadores)
+ *   -x arq   relatório no formato JUnit XML     -o arq  CSV com compilação, tamanho do IR e execução
+ *   -d dir   onde ficam os .ll (padrão out/corpus)
+ *   -update  regrava os Nome.out dos fontes .java
+ *
+ * Termina com status 1 se algum programa não compilar, falhar ou imprimir algo diferente.
+ */
+public class CorpusRunner {
+	private static final String[] DEFAULT = { "test/smaller", "test/bigger", "tiger.in" };
+
+	static final int PASSED = 0;
+	static final int FAILED = 1;	// saída diferente da esperada
+	static final int ERROR = 2;		// não compilou ou não executou
+	static final int SKIPPED = 3;	// compilou, mas não havia como executar
+	private static final String[] STATUS = { "ok", "FALHOU", "ERRO", "compilou" };
+
+	public static void main(String[] args) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		String xml = null, csv = null;
+		File outDir = new File("out/corpus");
+		boolean update = false;
+		String lli = RunBench.env("LLI", "lli");
+		List<File> sources = new ArrayList<File>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-j")) threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-x")) xml = args[++i];
+			else if (args[i].equals("-o")) csv = args[++i];
+			else if (args[i].equals("-d")) outDir = new File(args[++i]);
+			else if (args[i].equals("-update")) update = true;
+			else if (args[i].equals("-lli")) lli = args[++i];
+			else if (args[i].startsWith("-")) {
+				System.err.println("uso: bench.CorpusRunner [-j n] [-x junit.xml] [-o arq.csv] [-d dir] [-lli cmd] [-update] [arquivo | diretório]...");
+				System.exit(2);
+			}
+			else collect(new File(args[i]), sources);
+		}
+		if (sources.isEmpty())
+			for (String d : DEFAULT)
+				collect(new File(d), sources);
+		outDir.mkdirs();
+
+		if (update)
+			System.exit(update(sources, outDir) ? 0 : 1);
+
+		final boolean run = RunBench.onPath(lli);
+		if (!run)
+			System.err.println("aviso: " + lli + " não encontrado; os programas serão só compilados");
+
+		long start = System.nanoTime();
+		// as threads compilam e rodam em paralelo; o TypeChecker, que o Frontend.check
+		// serializa, é a única fase que roda um fonte de cada vez
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for (File source : sources)
+			futures.add(pool.submit(new Test(source, outDir, run ? lli : null)));
+		List<Result> results = new ArrayList<Result>();
+		for (Future<Result> f : futures)
+			results.add(f.get());
+		pool.shutdown();
+		long wall = System.nanoTime() - start;
+
+		int[] counts = new int[4];
+		for (Result r : results) {
+			counts[r.status]++;
+			System.out.printf("%-8s %-32s %8.1f ms %8d B %10s%s%n", STATUS[r.status], r.source.getPath(), r.compileNanos / 1e6,
+					r.irBytes, r.runNanos > 0 ? String.format("%.1f ms", r.runNanos / 1e6) : "-",
+					r.message != null ? "   " + r.message : "");
+		}
+		System.out.printf("%n%d programas em %.2f s com %d threads: %d ok, %d falharam, %d com erro, %d não executados%n",
+				results.size(), wall / 1e9, threads, counts[PASSED], counts[FAILED], counts[ERROR], counts[SKIPPED]);
+
+		if (xml != null)
+			writeJUnit(xml, results, wall);
+		if (csv != null)
+			writeCsv(csv, results);
+		System.exit(counts[FAILED] + counts[ERROR] > 0 ? 1 : 0);
+	}
+
+	/* Um programa do corpus: compilação, execução e comparação */
+	static class Test implements Callable<Result> {
+		private final File source;
+		private final File outDir;
+		private final String lli;
+
+		Test(File source, File outDir, String lli){
+			this.source = source;
+			this.outDir = outDir;
+			this.lli = lli;
+		}
+
+		public Result call(){
+			Result r = new Result(source);
+			File ll;
+			long t0 = System.nanoTime();
+			try {
+				ll = RunBench.compile(source, outDir);
+			} catch (Throwable e) {
+				r.compileNanos = System.nanoTime() - t0;
+				return r.end(ERROR, "não compilou: " + e);
+			}
+			r.compileNanos = System.nanoTime() - t0;
+			r.irBytes = ll.length();
+			try {
+				String diff = translateTwice(source);
+				if (diff != null)
+					return r.end(FAILED, "a segunda tradução difere da primeira, " + diff);
+			} catch (Throwable e) {
+				return r.end(ERROR, "a segunda tradução falhou: " + e);
+			}
+			if (lli == null)
+				return r.end(SKIPPED, null);
+
+			try {
+				File golden = expected(source);
+				if (!golden.exists())
+					return r.end(ERROR, "sem saída esperada (" + golden + ")");
+				String expected;
+				if (source.getName().endsWith(".in")) {
+					RunBench.Run ref = RunBench.run(Arrays.asList(lli, golden.getPath()));
+					if (ref.status != 0)
+						return r.end(ERROR, "o IR de referência terminou com status " + ref.status);
+					expected = ref.output;
+				} else {
+					expected = RunBench.read(golden);
+				}
+				RunBench.Run run = RunBench.run(Arrays.asList(lli, ll.getPath()));
+				r.runNanos = run.nanos;
+				if (run.status != 0)
+					return r.end(ERROR, "lli terminou com status " + run.status);
+				if (!run.output.equals(expected))
+					return r.end(FAILED, firstDifference(expected, run.output));
+				return r.end(PASSED, null);
+			} catch (Exception e) {
+				return r.end(ERROR, e.toString());
+			}
+		}
+	}
+
+	static class Result {
+		final File source;
+		int status;
+		String message;
+		long compileNanos, runNanos, irBytes;
+
+		Result(File source){
+			this.source = source;
+		}
+
+		Result end(int status, String message){
+			this.status = status;
+			this.message = message;
+			return this;
+		}
+	}
+
+	// Traduz duas vezes o mesmo Program; devolve onde os IRs diferem, ou null
+	static String translateTwice(File source) throws Exception {
+		Program p = Frontend.parse(source.getPath());
+		Env env = Frontend.check(source.getPath(), p);
+		String first = new Codegen().translate(p, env);
+		String second = new Codegen().translate(p, env);
+		return first.equals(second) ? null : firstDifference(first, second);
+	}
+
+	// Nome.java -> Nome.out; tiger.in -> tiger.out
+	static File expected(File source){
+		String name = source.getName();
+		int dot = name.lastIndexOf('.');
+		return new File(source.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + ".out");
+	}
+
+	// Linha da primeira diferença entre a saída esperada e a obtida
+	static String firstDifference(String expected, String actual){
+		String[] e = expected.split("\n", -1), a = actual.split("\n", -1);
+		for (int i = 0; i < Math.max(e.length, a.length); i++) {
+			String x = i < e.length ? e[i] : "<fim>", y = i < a.length ? a[i] : "<fim>";
+			if (!x.equals(y))
+				return "linha " + (i + 1) + ": esperado '" + x + "', obtido '" + y + "'";
+		}
+		return "saídas diferentes";
+	}
+
+	// Regrava Nome.out de cada fonte .java rodando-o numa JVM
+	private static boolean update(List<File> sources, File outDir) throws Exception {
+		boolean ok = true;
+		RunBench.JavaRunner java = new RunBench.JavaRunner();
+		for (File source : sources) {
+			if (!source.getName().endsWith(".java"))
+				continue;
+			try {
+				RunBench.Run run = RunBench.run(java.prepare(source, null, outDir));
+				if (run.status != 0)
+					throw new IOException("terminou com status " + run.status);
+				RunBench.write(expected(source), run.output);
+				System.out.println("regravado: " + expected(source));
+			} catch (Exception e) {
+				System.out.println("falhou: " + source + ": " + e.getMessage());
+				ok = false;
+			}
+		}
+		return ok;
+	}
+
+	private static void collect(File f, List<File> sources){
+		if (f.isDirectory()) {
+			File[] children = f.listFiles();
+			List<File> sorted = new ArrayList<File>();
+			if (children != null)
+				Collections.addAll(sorted, children);
+			Collections.sort(sorted);
+			for (File c : sorted)
+				if (c.getName().endsWith(".java"))
+					sources.add(c);
+		} else {
+			sources.add(f);
+		}
+	}
+
+	private static void writeJUnit(String path, List<Result> results, long wall) throws IOException {
+		int failures = 0, errors = 0, skipped = 0;
+		for (Result r : results) {
+			if (r.status == FAILED) failures++;
+			else if (r.status == ERROR) errors++;
+			else if (r.status == SKIPPED) skipped++;
+		}
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8));
+		try {
+			out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			out.printf(Locale.ROOT, "<testsuite name=\"minijava.corpus\" tests=\"%d\" failures=\"%d\" errors=\"%d\" skipped=\"%d\" time=\"%.3f\">%n",
+					results.size(), failures, errors, skipped, wall / 1e9);
+			for (Result r : results) {
+				String dir = r.source.getParent() == null ? "corpus" : r.source.getParent().replace(File.separatorChar, '.');
+				out.printf(Locale.ROOT, "  <testcase classname=\"%s\" name=\"%s\" time=\"%.3f\"",
+						xml(dir), xml(r.source.getName()), (r.compileNanos + r.runNanos) / 1e9);
+				if (r.status == PASSED) {
+					out.println("/>");
+					continue;
+				}
+				out.println(">");
+				if (r.status == FAILED)
+					out.printf("    <failure message=\"%s\"/>%n", xml(r.message));
+				else if (r.status == ERROR)
+					out.printf("    <error message=\"%s\"/>%n", xml(r.message));
+				else
+					out.println("    <skipped message=\"lli indisponível\"/>");
+				out.println("  </testcase>");
+			}
+			out.println("</testsuite>");
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeCsv(String path, List<Result> results) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(path));
+		try {
+			out.println("program,status,compile_ms,ir_bytes,run_ms");
+			for (Result r : results)
+				out.printf(Locale.ROOT, "%s,%s,%.3f,%d,%s%n", r.source.getPath(), STATUS[r.status].toLowerCase(Locale.ROOT),
+						r.compileNanos / 1e6, r.irBytes, r.runNanos > 0 ? String.format(Locale.ROOT, "%.3f", r.runNanos / 1e6) : "");
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String xml(String s){
+		if (s == null)
+			return "";
+		StringBuilder b = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '<') b.append("&lt;");
+			else if (c == '>') b.append("&gt;");
+			else if (c == '&') b.append("&amp;");
+			else if (c == '"') b.append("&quot;");
+			else if (c < ' ') b.append(' ');
+			else b.append(c);
+		}
+		return b.toString();
+	}
+}
@@ -0,0 +1,426 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import driver.Frontend;
+import llvm.Codegen;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Verificação diferencial dos níveis de otimização: compila cada programa em
+ * cada nível, roda no lli e compara a saída padrão (e o status) de cada nível
+ * com a do primeiro, que é a referência. Os programas são os do corpus e um
+ * fluxo de programas aleatórios do ProgramGenerator (com 'defined', para que a
+ * saída não dependa de memória não inicializada).
+ *
+ * Níveis (-levels, separados por vírgula; padrão O0,mem2reg,stackcoloring,O1,O2,O3):
+ *   O0      o IR do Codegen como ele sai
+ *   mem2reg o IR do Codegen com os locais promovidos (llvm.Mem2Reg)
+ *   stackcoloring  o IR do Codegen com os slots da pilha coloridos (llvm.StackColoring)
+ *   O1..O3  o mesmo IR depois do 'opt -On' do LLVM ($OPT ou -opt, padrão 'opt')
+ * Um nível novo do Codegen entra como mais uma subclasse de Level.
+ *
+ * Quando um nível diverge, o fonte é reduzido por delta debugging (ddmin sobre
+ * as linhas) ao menor programa que ainda compila e ainda diverge no mesmo
+ * nível; ele fica em <dir>/Nome.min.java.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.DiffTest [opções] [arquivo.java | diretório]...
+ *   (padrão: test/smaller test/bigger)
+ *   -random n  programas aleatórios (padrão 50)    -seed s  semente do primeiro (padrão 1)
+ *   -levels l  níveis comparados                   -j n     threads (padrão: processadores)
+ *   -budget n  candidatos executados por redução (padrão 300); os que nem
+ *              compilam não contam, só o limite de 100 vezes isso
+ *   -d dir     onde ficam os .ll e os reprodutores (padrão out/difftest)
+ *   -lli cmd   -opt cmd
+ *
+ * Termina com status 1 se algum nível divergir; programas que não compilam ou
+ * não rodam nem na referência saem como erro, mas não dizem nada sobre os níveis.
+ */
+public class DiffTest {
+	private static final String[] DEFAULT = { "test/smaller", "test/bigger" };
+
+	static final int SAME = 0;
+	static final int DIVERGED = 1;
+	static final int ERROR = 2;
+	private static final String[] STATUS = { "ok", "DIVERGIU", "erro" };
+
+	public static void main(String[] args) throws Exception {
+		int random = 50, threads = Runtime.getRuntime().availableProcessors(), budget = 300;
+		long seed = 1;
+		String levels = "O0,mem2reg,stackcoloring,O1,O2,O3";
+		File outDir = new File("out/difftest");
+		String lli = RunBench.env("LLI", "lli"), opt = RunBench.env("OPT", "opt");
+		List<File> files = new ArrayList<File>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-random")) random = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-seed")) seed = Long.parseLong(args[++i]);
+			else if (args[i].equals("-levels")) levels = args[++i];
+			else if (args[i].equals("-j")) threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-budget")) budget = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-d")) outDir = new File(args[++i]);
+			else if (args[i].equals("-lli")) lli = args[++i];
+			else if (args[i].equals("-opt")) opt = args[++i];
+			else if (args[i].startsWith("-")) {
+				System.err.println("uso: bench.DiffTest [-random n] [-seed s] [-levels O0,O1,...] [-j n] [-budget n] [-d dir]"
+						+ " [-lli cmd] [-opt cmd] [arquivo.java | diretório]...");
+				System.exit(2);
+			}
+			else collect(new File(args[i]), files);
+		}
+		if (files.isEmpty())
+			for (String d : DEFAULT)
+				collect(new File(d), files);
+
+		if (!RunBench.onPath(lli)) {
+			System.err.println(lli + " não encontrado: sem ele não há o que comparar");
+			System.exit(2);
+		}
+		List<Level> selected = new ArrayList<Level>();
+		for (String name : levels.split(",")) {
+			Level level;
+			if (name.equals("O0")) level = new Level(lli);
+			else if (name.equals("mem2reg") || name.equals("stackcoloring")) level = new PassLevel(lli, name);
+			else if (name.matches("O[1-3]")) level = new OptLevel(lli, opt, name);
+			else throw new IllegalArgumentException("nível desconhecido: " + name);
+			if (level.available())
+				selected.add(level);
+			else
+				System.err.println("aviso: nível " + name + " indisponível (" + opt + " não encontrado), pulando");
+		}
+		if (selected.size() < 2) {
+			System.err.println("são precisos ao menos dois níveis para comparar");
+			System.exit(2);
+		}
+		outDir.mkdirs();
+
+		List<Subject> subjects = new ArrayList<Subject>();
+		for (File f : files)
+			subjects.add(new Subject(RunBench.nameOf(f), RunBench.read(f)));
+		for (int k = 0; k < random; k++) {
+			ProgramGenerator.Options o = new ProgramGenerator.Options();
+			o.seed = seed + k;
+			o.classes = 4;
+			o.methods = 3;
+			o.statements = 6;
+			o.defined = true;
+			subjects.add(new Subject("Random" + o.seed, ProgramGenerator.generate(o)));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for (Subject s : subjects)
+			futures.add(pool.submit(new Check(s, selected, outDir, budget)));
+		int[] counts = new int[3];
+		for (Future<Result> f : futures) {
+			Result r = f.get();
+			counts[r.status]++;
+			System.out.printf("%-8s %-20s %s%n", STATUS[r.status], r.name, r.message != null ? r.message : "");
+		}
+		pool.shutdown();
+		System.out.printf("%n%d programas em %d níveis (%s): %d iguais, %d divergiram, %d com erro%n",
+				subjects.size(), selected.size(), levels, counts[SAME], counts[DIVERGED], counts[ERROR]);
+		System.exit(counts[DIVERGED] > 0 ? 1 : 0);
+	}
+
+	/* Um nível de otimização: como gerar o IR e como executá-lo */
+	static class Level {
+		final String lli;
+
+		Level(String lli){
+			this.lli = lli;
+		}
+
+		String name(){
+			return "O0";
+		}
+
+		boolean available(){
+			return true;
+		}
+
+		void compile(Program p, Env env, File ll) throws IOException {
+			Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(ll)));
+			try {
+				codegen().translate(p, env, out);
+			} finally {
+				out.close();
+			}
+		}
+
+		Codegen codegen(){
+			return new Codegen();
+		}
+
+		// Executa o IR em 'll' (gerado por compile)
+		RunBench.Run run(File ll) throws IOException, InterruptedException {
+			return RunBench.run(Arrays.asList(lli, ll.getPath()));
+		}
+	}
+
+	/* O IR do Codegen com um dos passos dele ligado: mem2reg ou stackcoloring */
+	static class PassLevel extends Level {
+		private final String pass;
+
+		PassLevel(String lli, String pass){
+			super(lli);
+			this.pass = pass;
+		}
+
+		String name(){
+			return pass;
+		}
+
+		Codegen codegen(){
+			Codegen c = new Codegen();
+			if (pass.equals("mem2reg"))
+				c.setMem2Reg(true);
+			else
+				c.setStackColoring(true);
+			return c;
+		}
+	}
+
+	/* O IR do Codegen passado pelo 'opt -On' antes do lli */
+	static class OptLevel extends Level {
+		private final String opt;
+		private final String level;
+
+		OptLevel(String lli, String opt, String level){
+			super(lli);
+			this.opt = opt;
+			this.level = level;
+		}
+
+		String name(){
+			return level;
+		}
+
+		boolean available(){
+			return RunBench.onPath(opt);
+		}
+
+		RunBench.Run run(File ll) throws IOException, InterruptedException {
+			String path = ll.getPath();
+			File optimized = new File(path.substring(0, path.length() - ".ll".length()) + ".opt.ll");
+			RunBench.Run r = RunBench.run(Arrays.asList(opt, "-S", "-" + level, path, "-o", optimized.getPath()));
+			if (r.status != 0)
+				return r;
+			return super.run(optimized);
+		}
+	}
+
+	/* Um programa a verificar */
+	static class Subject {
+		final String name;
+		final String source;
+
+		Subject(String name, String source){
+			this.name = name;
+			this.source = source;
+		}
+	}
+
+	static class Result {
+		final String name;
+		final int status;
+		final String message;
+
+		Result(String name, int status, String message){
+			this.name = name;
+			this.status = status;
+			this.message = message;
+		}
+	}
+
+	/* Compila e roda um programa em todos os níveis e, se algum divergir, reduz o fonte */
+	static class Check implements Callable<Result> {
+		private final Subject subject;
+		private final List<Level> levels;
+		private final File dir;
+		private final int budget;
+		private int attempts;		// candidatos que compilaram e foram executados
+		private int candidates;		// todos os candidatos, inclusive os que não compilam
+
+		Check(Subject subject, List<Level> levels, File dir, int budget){
+			this.subject = subject;
+			this.levels = levels;
+			this.dir = dir;
+			this.budget = budget;
+		}
+
+		public Result call(){
+			String name = subject.name;
+			RunBench.Run reference;
+			try {
+				reference = execute(subject.source, name, levels.get(0));
+			} catch (Exception e) {
+				return new Result(name, ERROR, "não compilou: " + e);
+			}
+			if (reference.status != 0)
+				return new Result(name, ERROR, levels.get(0).name() + " terminou com status " + reference.status);
+
+			for (int k = 1; k < levels.size(); k++) {
+				final Level level = levels.get(k);
+				RunBench.Run run;
+				try {
+					run = execute(subject.source, name, level);
+				} catch (Exception e) {
+					return new Result(name, ERROR, level.name() + ": " + e);
+				}
+				if (run.status == reference.status && run.output.equals(reference.output))
+					continue;
+
+				String difference = run.status != reference.status
+						? "status " + reference.status + " x " + run.status
+						: CorpusRunner.firstDifference(reference.output, run.output);
+				List<String> lines = Arrays.asList(subject.source.split("\n", -1));
+				List<String> reduced = ddmin(lines, new Oracle() {
+					public boolean fails(List<String> candidate){
+						return diverges(join(candidate), level);
+					}
+				});
+				File min = new File(dir, name + ".min.java");
+				try {
+					RunBench.write(min, join(reduced));
+				} catch (IOException e) {
+					return new Result(name, DIVERGED, level.name() + ": " + difference + " (reprodutor não gravado: " + e + ")");
+				}
+				return new Result(name, DIVERGED, level.name() + ": " + difference + "; reduzido de " + lines.size()
+						+ " para " + reduced.size() + " linhas em " + attempts + " execuções: " + min);
+			}
+			return new Result(name, SAME, null);
+		}
+
+		// Compila 'source' no nível e o executa; o .ll fica em <dir>/<nome>.<nível>.ll
+		private RunBench.Run execute(String source, String name, Level level) throws Exception {
+			Program p = Frontend.parse(name, new StringReader(source));
+			return execute(p, Frontend.check(name, p), name, level);
+		}
+
+		private RunBench.Run execute(Program p, Env env, String name, Level level) throws Exception {
+			File ll = new File(dir, name + "." + level.name() + ".ll");
+			level.compile(p, env, ll);
+			return level.run(ll);
+		}
+
+		// O teste da redução: o candidato compila, roda na referência e diverge em 'level'.
+		// A maioria dos candidatos de uma redução por linhas nem passa do parser; esses
+		// são baratos e só contam para o limite mais folgado.
+		private boolean diverges(String source, Level level){
+			if (attempts >= budget || candidates >= 100 * budget)
+				return false;
+			candidates++;
+			String name = subject.name + ".reduce";
+			try {
+				Program p = Frontend.parse(name, new StringReader(source));
+				Env env = Frontend.check(name, p);
+				attempts++;
+				RunBench.Run reference = execute(p, env, name, levels.get(0));
+				if (reference.status != 0)
+					return false;
+				RunBench.Run run = execute(p, env, name, level);
+				return run.status != reference.status || !run.output.equals(reference.output);
+			} catch (Throwable e) {
+				// não compila (ou o Codegen não dá conta): não serve como reprodutor
+				return false;
+			}
+		}
+	}
+
+	/* O teste do delta debugging: true se a configuração ainda exibe a falha */
+	interface Oracle {
+		boolean fails(List<String> candidate);
+	}
+
+	// ddmin de Zeller e Hildebrandt: parte 'lines' em n pedaços e fica com um pedaço
+	// ou com um complemento que ainda falhe, refinando a partição até que nenhuma
+	// linha isolada possa sair. O resultado é 1-mínimo: tirar qualquer linha
+	// (dentro do orçamento de testes) faz a falha sumir.
+	static List<String> ddmin(List<String> lines, Oracle oracle){
+		List<String> c = new ArrayList<String>(lines);
+		int n = 2;
+		while (c.size() >= 2) {
+			List<List<String>> chunks = split(c, n);
+			boolean reduced = false;
+			for (List<String> chunk : chunks)
+				if (oracle.fails(chunk)) {
+					c = chunk;
+					n = 2;
+					reduced = true;
+					break;
+				}
+			if (!reduced && n > 2)
+				for (int i = 0; i < chunks.size(); i++) {
+					List<String> complement = new ArrayList<String>();
+					for (int j = 0; j < chunks.size(); j++)
+						if (j != i)
+							complement.addAll(chunks.get(j));
+					if (oracle.fails(complement)) {
+						c = complement;
+						n = Math.max(n - 1, 2);
+						reduced = true;
+						break;
+					}
+				}
+			if (!reduced) {
+				if (n >= c.size())
+					break;
+				n = Math.min(2 * n, c.size());
+			}
+		}
+		return c;
+	}
+
+	// 'c' em n pedaços contíguos de tamanhos quase iguais
+	private static List<List<String>> split(List<String> c, int n){
+		List<List<String>> chunks = new ArrayList<List<String>>();
+		int start = 0;
+		for (int i = 0; i < n; i++) {
+			int end = start + (c.size() - start) / (n - i);
+			chunks.add(new ArrayList<String>(c.subList(start, end)));
+			start = end;
+		}
+		return chunks;
+	}
+
+	private static String join(List<String> lines){
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines.size(); i++) {
+			if (i > 0)
+				sb.append('\n');
+			sb.append(lines.get(i));
+		}
+		return sb.toString();
+	}
+
+	private static void collect(File f, List<File> files){
+		if (f.isDirectory()) {
+			File[] children = f.listFiles();
+			List<File> sorted = new ArrayList<File>();
+			if (children != null)
+				Collections.addAll(sorted, children);
+			Collections.sort(sorted);
+			for (File c : sorted)
+				if (c.getName().endsWith(".java"))
+					files.add(c);
+		} else {
+			files.add(f);
+		}
+	}
+}
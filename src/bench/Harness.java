@@ -0,0 +1,297 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Executor de benchmarks no estilo do JMH, sem dependências: o projeto só é
+ * compilado pelo Makefile contra o lib/projeto2.jar, então não há como puxar o
+ * JMH. O que ele faz do JMH:
+ *
+ *  - iterações de aquecimento e de medição com duração fixa (modo throughput);
+ *  - cada benchmark roda em JVMs novas (forks), para que o perfil do JIT de um
+ *    não contamine o seguinte; com -f 0 roda tudo no mesmo processo;
+ *  - o resultado de cada operação vai para um "sorvedouro" volátil, para o JIT
+ *    não eliminar o trabalho;
+ *  - score = média das iterações de todos os forks, com o erro do intervalo de
+ *    99,9% (t de Student), como o JMH imprime;
+ *  - bytes alocados por operação, pelo ThreadMXBean da thread que mede (o mesmo
+ *    número do gc.alloc.rate.norm do profiler de GC do JMH).
+ *
+ * Opções (antes da expressão regular que filtra os benchmarks pelo nome):
+ *   -wi n   iterações de aquecimento (padrão 5)      -i n   iterações medidas (padrão 5)
+ *   -w ms   duração do aquecimento (padrão 1000)     -r ms  duração da medição (padrão 1000)
+ *   -f n    forks (padrão 1; 0 = no próprio processo)
+ *   -o arq  grava os resultados em CSV               -b arq compara com um CSV anterior
+ *   -l      só lista os nomes dos benchmarks
+ */
+public class Harness {
+
+	/* Operação medida; o valor devolvido é consumido pelo sorvedouro */
+	public interface Op {
+		Object run() throws Exception;
+	}
+
+	/* Conjunto de benchmarks: o setup é feito só no processo que vai medir */
+	public interface Suite {
+		List<String> names() throws Exception;
+		Op setup(String name) throws Exception;
+	}
+
+	private static final String ITER = "@iter";
+
+	public static volatile Object sink;
+
+	private int warmupIterations = 5;
+	private int iterations = 5;
+	private long warmupMillis = 1000;
+	private long iterationMillis = 1000;
+	private int forks = 1;
+	private String csv;
+	private String baseline;
+	private boolean child;
+	private boolean list;
+	private Pattern filter = Pattern.compile(".*");
+
+	public static void run(Suite suite, String[] args) throws Exception {
+		Harness h = new Harness();
+		h.parse(args);
+		h.runAll(suite);
+	}
+
+	private void parse(String[] args){
+		for (int i = 0; i < args.length; i++) {
+			String a = args[i];
+			if (a.equals("-wi"))
+				warmupIterations = Integer.parseInt(args[++i]);
+			else if (a.equals("-i"))
+				iterations = Integer.parseInt(args[++i]);
+			else if (a.equals("-w"))
+				warmupMillis = Long.parseLong(args[++i]);
+			else if (a.equals("-r"))
+				iterationMillis = Long.parseLong(args[++i]);
+			else if (a.equals("-f"))
+				forks = Integer.parseInt(args[++i]);
+			else if (a.equals("-o"))
+				csv = args[++i];
+			else if (a.equals("-b"))
+				baseline = args[++i];
+			else if (a.equals("-l"))
+				list = true;
+			else if (a.equals("-child"))
+				child = true;
+			else
+				filter = Pattern.compile(a);
+		}
+	}
+
+	private void runAll(Suite suite) throws Exception {
+		List<String> names = new ArrayList<String>();
+		for (String n : suite.names())
+			if (filter.matcher(n).find())
+				names.add(n);
+
+		if (list) {
+			for (String n : names)
+				System.out.println(n);
+			return;
+		}
+
+		if (child) {
+			// processo filho: mede e devolve as iterações cruas ao pai
+			for (String n : names)
+				for (Sample s : measure(suite, n))
+					System.out.println(ITER + " " + n + " " + s.opsPerSec + " " + s.bytesPerOp);
+			return;
+		}
+
+		Map<String, Result> base = baseline != null ? readCsv(baseline) : new HashMap<String, Result>();
+		List<Result> results = new ArrayList<Result>();
+		System.out.printf("# aquecimento %d x %d ms, medição %d x %d ms, %d fork(s)%n",
+				warmupIterations, warmupMillis, iterations, iterationMillis, forks);
+		System.out.printf("%-36s %12s   %8s %12s%s%n", "benchmark", "ops/s", "erro", "B/op",
+				baseline != null ? "   vs base" : "");
+		for (String n : names) {
+			List<Sample> samples = new ArrayList<Sample>();
+			try {
+				if (forks == 0)
+					samples.addAll(measure(suite, n));
+				else
+					for (int f = 0; f < forks; f++)
+						samples.addAll(fork(suite, n));
+			} catch (Exception e) {
+				System.out.printf("%-36s falhou: %s%n", n, e);
+				continue;
+			}
+			Result r = Result.of(n, samples);
+			results.add(r);
+			Result b = base.get(n);
+			System.out.printf("%-36s %12.1f ± %8.1f %12.0f%s%n", n, r.score, r.error,
+					r.bytesPerOp, b == null ? "" : String.format("   %+7.1f%%", 100.0 * (r.score - b.score) / b.score));
+		}
+		if (csv != null)
+			writeCsv(csv, results);
+	}
+
+	private List<Sample> measure(Suite suite, String name) throws Exception {
+		Op op = suite.setup(name);
+		for (int i = 0; i < warmupIterations; i++)
+			iteration(op, warmupMillis);
+		List<Sample> samples = new ArrayList<Sample>();
+		for (int i = 0; i < iterations; i++)
+			samples.add(iteration(op, iterationMillis));
+		return samples;
+	}
+
+	// Roda 'op' repetidamente por 'millis' ms
+	private static Sample iteration(Op op, long millis) throws Exception {
+		long deadline = System.nanoTime() + millis * 1000000L;
+		long ops = 0;
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		long now;
+		do {
+			sink = op.run();
+			ops++;
+			now = System.nanoTime();
+		} while (now < deadline);
+		bytes = allocatedBytes() - bytes;
+		return new Sample(ops * 1e9 / (now - start), (double) bytes / ops);
+	}
+
+	// Roda um benchmark numa JVM nova, com as mesmas opções e o mesmo classpath
+	private List<Sample> fork(Suite suite, String name) throws Exception {
+		List<String> cmd = new ArrayList<String>();
+		cmd.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		cmd.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(suite.getClass().getName());
+		cmd.add("-child");
+		cmd.add("-wi"); cmd.add(String.valueOf(warmupIterations));
+		cmd.add("-i"); cmd.add(String.valueOf(iterations));
+		cmd.add("-w"); cmd.add(String.valueOf(warmupMillis));
+		cmd.add("-r"); cmd.add(String.valueOf(iterationMillis));
+		cmd.add("^" + Pattern.quote(name) + "$");
+
+		Process p = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		List<Sample> samples = new ArrayList<Sample>();
+		BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()));
+		try {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] f = line.split(" ");
+				if (f.length == 4 && f[0].equals(ITER) && f[1].equals(name))
+					samples.add(new Sample(Double.parseDouble(f[2]), Double.parseDouble(f[3])));
+			}
+		} finally {
+			in.close();
+		}
+		if (p.waitFor() != 0 || samples.isEmpty())
+			throw new IOException("fork terminou com status " + p.exitValue());
+		return samples;
+	}
+
+	private static void writeCsv(String path, List<Result> results) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(path));
+		try {
+			out.println("benchmark,ops_per_s,error,bytes_per_op,samples");
+			for (Result r : results)
+				out.printf(java.util.Locale.ROOT, "%s,%.3f,%.3f,%.1f,%d%n", r.name, r.score, r.error, r.bytesPerOp, r.samples);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static Map<String, Result> readCsv(String path) throws IOException {
+		Map<String, Result> results = new LinkedHashMap<String, Result>();
+		BufferedReader in = new BufferedReader(new FileReader(path));
+		try {
+			in.readLine();
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] f = line.split(",");
+				results.put(f[0], new Result(f[0], Double.parseDouble(f[1]), Double.parseDouble(f[2]),
+						Double.parseDouble(f[3]), Integer.parseInt(f[4])));
+			}
+		} finally {
+			in.close();
+		}
+		return results;
+	}
+
+	static long allocatedBytes(){
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	// Writer que descarta tudo, para medir apenas a renderização
+	static class NullWriter extends Writer {
+		public void write(int c){}
+		public void write(char[] buf, int off, int len){}
+		public void write(String s, int off, int len){}
+		public void flush(){}
+		public void close(){}
+	}
+
+	static class Sample {
+		final double opsPerSec;
+		final double bytesPerOp;
+
+		Sample(double opsPerSec, double bytesPerOp){
+			this.opsPerSec = opsPerSec;
+			this.bytesPerOp = bytesPerOp;
+		}
+	}
+
+	static class Result {
+		final String name;
+		final double score, error, bytesPerOp;
+		final int samples;
+
+		Result(String name, double score, double error, double bytesPerOp, int samples){
+			this.name = name;
+			this.score = score;
+			this.error = error;
+			this.bytesPerOp = bytesPerOp;
+			this.samples = samples;
+		}
+
+		static Result of(String name, List<Sample> samples){
+			int n = samples.size();
+			double sum = 0, bytes = 0;
+			for (Sample s : samples) {
+				sum += s.opsPerSec;
+				bytes += s.bytesPerOp;
+			}
+			double mean = sum / n;
+			double var = 0;
+			for (Sample s : samples)
+				var += (s.opsPerSec - mean) * (s.opsPerSec - mean);
+			double error = n > 1 ? t999(n - 1) * Math.sqrt(var / (n - 1)) / Math.sqrt(n) : Double.NaN;
+			return new Result(name, mean, error, bytes / n, n);
+		}
+	}
+
+	// Quantil 0,9995 da t de Student (intervalo bilateral de 99,9%)
+	private static final int[] T_DF = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 12, 15, 20, 30, 60 };
+	private static final double[] T_999 = { 636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59, 4.32, 4.07, 3.85, 3.65, 3.46 };
+
+	static double t999(int df){
+		for (int i = 0; i < T_DF.length; i++)
+			if (df <= T_DF[i])
+				return T_999[i];
+		return 3.29;
+	}
+}
@@ -0,0 +1,387 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gera programas MiniJava sintética e semanticamente válidos, de tamanho
+ * controlado, para testar como o tempo de compilação escala.
+ *
+ * O mesmo 'seed' e os mesmos botões geram sempre o mesmo programa. Para que o
+ * programa também passe pelo Codegen atual:
+ *
+ *  - os métodos só usam atributos da própria classe (o Codegen não resolve
+ *    atributos herdados) e só chamam métodos declarados na classe estática do
+ *    objeto (nunca herdados);
+ *  - uma classe só chama métodos de classes declaradas depois dela, então não
+ *    há recursão, e todo 'while' conta até um limite num contador próprio.
+ *
+ * Com 'defined', todo valor lido já foi escrito antes (no IR, alloca e malloc não
+ * zeram a memória), para que a saída do programa seja determinística e possa
+ * ser comparada entre níveis de otimização (bench.DiffTest).
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.ProgramGenerator [opções] > Gerado.java
+ *   -seed n  -classes n  -depth n  -fields n  -methods n  -statements n  -loops n  -calls p
+ *   -defined true|false
+ */
+public class ProgramGenerator {
+
+	/* Botões do gerador */
+	public static class Options {
+		public long seed = 1;
+		public int classes = 10;		// classes além da main
+		public int depth = 2;			// profundidade máxima da herança (0 = sem extends)
+		public int fields = 4;			// atributos por classe
+		public int methods = 4;			// métodos por classe
+		public int statements = 10;		// comandos no topo de cada método
+		public int loops = 2;			// aninhamento máximo de 'while'
+		public double calls = 0.2;		// probabilidade de uma expressão int virar uma chamada
+		public boolean defined;			// zera atributos, locais e arrays antes de usá-los
+
+		// Interpreta as opções de linha de comando a partir de 'i'; devolve o primeiro índice não usado
+		public int parse(String[] args, int i){
+			for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+				String v = args[i + 1];
+				if (args[i].equals("-seed")) seed = Long.parseLong(v);
+				else if (args[i].equals("-classes")) classes = Integer.parseInt(v);
+				else if (args[i].equals("-depth")) depth = Integer.parseInt(v);
+				else if (args[i].equals("-fields")) fields = Integer.parseInt(v);
+				else if (args[i].equals("-methods")) methods = Integer.parseInt(v);
+				else if (args[i].equals("-statements")) statements = Integer.parseInt(v);
+				else if (args[i].equals("-loops")) loops = Integer.parseInt(v);
+				else if (args[i].equals("-calls")) calls = Double.parseDouble(v);
+				else if (args[i].equals("-defined")) defined = Boolean.parseBoolean(v);
+				else break;
+			}
+			return i;
+		}
+	}
+
+	// Tipos das variáveis geradas; classes são representadas pelo índice (>= 0)
+	private static final int INT = -1;
+	private static final int BOOLEAN = -2;
+	private static final int INT_ARRAY = -3;
+
+	private static final int MAX_EXP_DEPTH = 3;
+
+	private final Options o;
+	private final Random rnd;
+	private final StringBuilder sb = new StringBuilder();
+	private final List<ClassInfo> classes = new ArrayList<ClassInfo>();
+
+	// Escopo do método sendo gerado
+	private List<Var> scope;
+	private int indent;
+	private int loopDepth;
+	private int statementCount;
+
+	public ProgramGenerator(Options o){
+		this.o = o;
+		this.rnd = new Random(o.seed);
+	}
+
+	public static void main(String[] args){
+		Options o = new Options();
+		if (o.parse(args, 0) != args.length) {
+			System.err.println("uso: bench.ProgramGenerator [-seed n] [-classes n] [-depth n] [-fields n]"
+					+ " [-methods n] [-statements n] [-loops n] [-calls p] [-defined true|false]");
+			System.exit(2);
+		}
+		System.out.print(new ProgramGenerator(o).generate());
+	}
+
+	public static String generate(Options o){
+		return new ProgramGenerator(o).generate();
+	}
+
+	// Comandos gerados (em todos os níveis) na última chamada de generate
+	public int statementCount(){
+		return statementCount;
+	}
+
+	public String generate(){
+		declare();
+
+		sb.append("class Main {\n");
+		sb.append("    public static void main(String[] a) {\n");
+		if (classes.isEmpty())
+			sb.append("        System.out.println(0);\n");
+		else
+			sb.append("        System.out.println(new C0().").append(classes.get(0).methods.get(0).name).append("(")
+				.append(arguments(classes.get(0).methods.get(0), 0)).append("));\n");
+		sb.append("    }\n}\n");
+
+		for (ClassInfo c : classes)
+			emitClass(c);
+		return sb.toString();
+	}
+
+	// Decide nomes, tipos e assinaturas de tudo antes de gerar os corpos
+	private void declare(){
+		int methods = Math.max(1, o.methods);
+		for (int k = 0; k < o.classes; k++) {
+			ClassInfo c = new ClassInfo(k);
+			// cadeias de herança: C(k) estende C(k-1) até a profundidade máxima
+			if (o.depth > 0 && k % (o.depth + 1) != 0)
+				c.superClass = k - 1;
+			for (int j = 0; j < o.fields; j++)
+				c.fields.add(new Var("f" + k + "_" + j, primitive()));
+			for (int j = 0; j < methods; j++) {
+				// o primeiro método devolve int: é o que a main imprime
+				MethodInfo m = new MethodInfo("m" + k + "_" + j, j > 0 && rnd.nextInt(3) == 0 ? BOOLEAN : INT);
+				int formals = rnd.nextInt(4);
+				for (int f = 0; f < formals; f++)
+					m.formals.add(new Var("p" + f, primitive()));
+				c.methods.add(m);
+			}
+			classes.add(c);
+		}
+	}
+
+	private void emitClass(ClassInfo c){
+		sb.append("\nclass C").append(c.index);
+		if (c.superClass >= 0)
+			sb.append(" extends C").append(c.superClass);
+		sb.append(" {\n");
+		for (Var f : c.fields)
+			sb.append("    ").append(typeName(f.type)).append(' ').append(f.name).append(";\n");
+		for (MethodInfo m : c.methods)
+			emitMethod(c, m);
+		sb.append("}\n");
+	}
+
+	private void emitMethod(ClassInfo c, MethodInfo m){
+		scope = new ArrayList<Var>(c.fields);
+		scope.addAll(m.formals);
+
+		sb.append("\n    public ").append(typeName(m.returnType)).append(' ').append(m.name).append('(');
+		for (int i = 0; i < m.formals.size(); i++) {
+			Var f = m.formals.get(i);
+			sb.append(i > 0 ? ", " : "").append(typeName(f.type)).append(' ').append(f.name);
+		}
+		sb.append(") {\n");
+
+		// locais: um de cada tipo primitivo, um objeto de uma classe posterior e os contadores dos laços
+		List<Var> locals = new ArrayList<Var>();
+		locals.add(new Var("i", INT));
+		locals.add(new Var("j", INT));
+		locals.add(new Var("b", BOOLEAN));
+		locals.add(new Var("v", INT_ARRAY));
+		if (c.index + 1 < classes.size())
+			locals.add(new Var("o", c.index + 1 + rnd.nextInt(classes.size() - c.index - 1)));
+		for (int l = 0; l < o.loops; l++)
+			locals.add(new Var("k" + l, INT));
+		if (o.defined)
+			locals.add(new Var("kz", INT));
+		for (Var l : locals)
+			sb.append("        ").append(typeName(l.type)).append(' ').append(l.name).append(";\n");
+		// os contadores não entram no escopo: só o próprio laço mexe neles
+		for (Var l : locals)
+			if (!l.name.startsWith("k"))
+				scope.add(l);
+
+		indent = 2;
+		loopDepth = 0;
+		// inicializa o array e o objeto antes de qualquer uso
+		line("v = new int[" + (8 + rnd.nextInt(8)) + "];");
+		if (o.defined)
+			zero(c, locals);
+		for (Var l : locals)
+			if (l.type >= 0)
+				line(l.name + " = new C" + l.type + "();");
+		for (int s = 0; s < o.statements; s++)
+			statement(0);
+		line("return " + exp(m.returnType, 0) + ";");
+		sb.append("    }\n");
+	}
+
+	// Zera os atributos da classe, os locais e os elementos de 'v' (contador kz)
+	private void zero(ClassInfo c, List<Var> locals){
+		List<Var> vars = new ArrayList<Var>(c.fields);
+		vars.addAll(locals);
+		for (Var v : vars)
+			if (v.type == INT)
+				line(v.name + " = 0;");
+			else if (v.type == BOOLEAN)
+				line(v.name + " = false;");
+		line("while (kz < v.length) {");
+		line("    v[kz] = 0;");
+		line("    kz = kz + 1;");
+		line("}");
+	}
+
+	private void statement(int nesting){
+		statementCount++;
+		int r = rnd.nextInt(10);
+		if (r < 2 && loopDepth < o.loops) {
+			String k = "k" + loopDepth;
+			line(k + " = 0;");
+			line("while (" + k + " < " + (2 + rnd.nextInt(8)) + ") {");
+			loopDepth++;
+			indent++;
+			int n = 1 + rnd.nextInt(3);
+			for (int s = 0; s < n; s++)
+				statement(nesting + 1);
+			line(k + " = " + k + " + 1;");
+			indent--;
+			loopDepth--;
+			line("}");
+		} else if (r < 4 && nesting < 3) {
+			line("if (" + exp(BOOLEAN, 0) + ") {");
+			indent++;
+			statement(nesting + 1);
+			indent--;
+			line("} else {");
+			indent++;
+			statement(nesting + 1);
+			indent--;
+			line("}");
+		} else if (r < 5) {
+			line("System.out.println(" + exp(INT, 0) + ");");
+		} else if (r < 6) {
+			// índice limitado ao tamanho mínimo do array
+			line("v[" + rnd.nextInt(8) + "] = " + exp(INT, 0) + ";");
+		} else {
+			Var v = pick(rnd.nextBoolean() ? INT : BOOLEAN);
+			line(v.name + " = " + exp(v.type, 0) + ";");
+		}
+	}
+
+	private String exp(int type, int depth){
+		boolean leaf = depth >= MAX_EXP_DEPTH || rnd.nextInt(3) == 0;
+		if (type == INT) {
+			if (rnd.nextDouble() < o.calls) {
+				String call = call(INT, depth);
+				if (call != null)
+					return call;
+			}
+			if (leaf) {
+				switch (rnd.nextInt(3)) {
+				case 0: return String.valueOf(rnd.nextInt(100));
+				case 1: return "v.length";
+				default: return pick(INT).name;
+				}
+			}
+			switch (rnd.nextInt(4)) {
+			case 0: return exp(INT, depth + 1) + " + " + exp(INT, depth + 1);
+			case 1: return exp(INT, depth + 1) + " - " + exp(INT, depth + 1);
+			case 2: return exp(INT, depth + 1) + " * " + exp(INT, depth + 1);
+			default: return "v[" + rnd.nextInt(8) + "]";
+			}
+		}
+		if (type == BOOLEAN) {
+			if (rnd.nextDouble() < o.calls) {
+				String call = call(BOOLEAN, depth);
+				if (call != null)
+					return call;
+			}
+			if (leaf)
+				return rnd.nextBoolean() ? pick(BOOLEAN).name : (rnd.nextBoolean() ? "true" : "false");
+			switch (rnd.nextInt(3)) {
+			case 0: return "(" + exp(INT, depth + 1) + " < " + exp(INT, depth + 1) + ")";
+			case 1: return "(" + exp(BOOLEAN, depth + 1) + " && " + exp(BOOLEAN, depth + 1) + ")";
+			default: return "!(" + exp(BOOLEAN, depth + 1) + ")";
+			}
+		}
+		throw new IllegalArgumentException("tipo " + type);
+	}
+
+	// Chamada a um método de uma classe declarada depois da atual, ou null se não houver
+	private String call(int returnType, int depth){
+		Var target = null;
+		for (Var v : scope)
+			if (v.type >= 0)
+				target = v;
+		if (target == null)
+			return null;
+		List<MethodInfo> candidates = new ArrayList<MethodInfo>();
+		for (MethodInfo m : classes.get(target.type).methods)
+			if (m.returnType == returnType)
+				candidates.add(m);
+		if (candidates.isEmpty())
+			return null;
+		MethodInfo m = candidates.get(rnd.nextInt(candidates.size()));
+		return target.name + "." + m.name + "(" + arguments(m, depth + 1) + ")";
+	}
+
+	private String arguments(MethodInfo m, int depth){
+		StringBuilder args = new StringBuilder();
+		for (int i = 0; i < m.formals.size(); i++) {
+			if (i > 0)
+				args.append(", ");
+			int t = m.formals.get(i).type;
+			if (t == INT_ARRAY)
+				args.append(scope == null ? "new int[8]" : "v");
+			else if (scope == null)
+				args.append(t == INT ? "1" : "true");
+			else
+				args.append(exp(t, Math.max(depth, MAX_EXP_DEPTH - 1)));
+		}
+		return args.toString();
+	}
+
+	// Variável visível do tipo pedido (sempre existe: i, j e b são locais de todo método)
+	private Var pick(int type){
+		List<Var> found = new ArrayList<Var>();
+		for (Var v : scope)
+			if (v.type == type)
+				found.add(v);
+		return found.get(rnd.nextInt(found.size()));
+	}
+
+	private int primitive(){
+		switch (rnd.nextInt(4)) {
+		case 0: return BOOLEAN;
+		case 1: return INT_ARRAY;
+		default: return INT;
+		}
+	}
+
+	private static String typeName(int type){
+		switch (type) {
+		case INT: return "int";
+		case BOOLEAN: return "boolean";
+		case INT_ARRAY: return "int[]";
+		default: return "C" + type;
+		}
+	}
+
+	private void line(String s){
+		for (int i = 0; i < indent; i++)
+			sb.append("    ");
+		sb.append(s).append('\n');
+	}
+
+	static class Var {
+		final String name;
+		final int type;
+
+		Var(String name, int type){
+			this.name = name;
+			this.type = type;
+		}
+	}
+
+	static class MethodInfo {
+		final String name;
+		final int returnType;
+		final List<Var> formals = new ArrayList<Var>();
+
+		MethodInfo(String name, int returnType){
+			this.name = name;
+			this.returnType = returnType;
+		}
+	}
+
+	static class ClassInfo {
+		final int index;
+		int superClass = -1;
+		final List<Var> fields = new ArrayList<Var>();
+		final List<MethodInfo> methods = new ArrayList<MethodInfo>();
+
+		ClassInfo(int index){
+			this.index = index;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import llvm.Codegen;
+import llvmast.LlvmInstruction;
+
+/**
+ * Mede quantos bytes são alocados por instrução emitida ao renderizar o IR.
+ *
+ *   toString : uma String por instrução, pelo toString() atual (o appendTo num
+ *              StringBuilder); não é a concatenação de antes do appendTo, que
+ *              não existe mais nas classes, então a coluna não serve de "antes"
+ *   appendTo : escrita direta no Writer, como o translate faz agora
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.RenderBench [arquivos.java]
+ * (sem argumentos, usa test/bigger/*.java)
+ */
+public class RenderBench {
+	private static final int WARMUP = 200;
+	private static final int ROUNDS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		List<String> files = new ArrayList<String>();
+		for (String a : args)
+			files.add(a);
+		if (files.isEmpty())
+			for (File f : new File("test/bigger").listFiles())
+				if (f.getName().endsWith(".java"))
+					files.add(f.getPath());
+		Collections.sort(files);
+
+		System.out.printf("%-28s %8s %22s %18s%n", "programa", "instrs", "toString(SB) B/instr", "appendTo B/instr");
+		for (String f : files) {
+			List<LlvmInstruction> instrs;
+			double viaString, direct;
+			try {
+				Sources src = Sources.load(f);
+				instrs = new Codegen().generate(src.program, src.env);
+				viaString = bytesPerInstr(instrs, false);
+				direct = bytesPerInstr(instrs, true);
+			} catch (Exception e) {
+				System.out.printf("%-28s falhou: %s%n", new File(f).getName(), e);
+				continue;
+			}
+			System.out.printf("%-28s %8d %22.1f %18.1f%n", new File(f).getName(), instrs.size(), viaString, direct);
+		}
+	}
+
+	private static double bytesPerInstr(List<LlvmInstruction> instrs, boolean append) throws IOException {
+		Harness.NullWriter out = new Harness.NullWriter();
+		for (int i = 0; i < WARMUP; i++)
+			render(instrs, out, append);
+		long start = Harness.allocatedBytes();
+		for (int i = 0; i < ROUNDS; i++)
+			render(instrs, out, append);
+		long bytes = Harness.allocatedBytes() - start;
+		return (double) bytes / ((long) ROUNDS * instrs.size());
+	}
+
+	private static void render(List<LlvmInstruction> instrs, Writer out, boolean append) throws IOException {
+		for (LlvmInstruction instr : instrs) {
+			if (append)
+				instr.appendTo(out);
+			else
+				out.write(instr.toString());
+			out.write('\n');
+		}
+	}
+}
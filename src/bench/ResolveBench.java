@@ -0,0 +1,67 @@
+package bench;
+
+import java.io.StringReader;
+
+import llvm.Codegen;
+
+/**
+ * Microbenchmark da resolução de identificadores no Codegen.
+ *
+ * Gera uma classe "larga" com N atributos e um método com N formais e N locais,
+ * cujo corpo referencia cada variável um número fixo de vezes. Com a resolução
+ * por índice de slots o custo por referência deve ficar constante quando N cresce;
+ * com a busca linear antiga ele crescia com N.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.ResolveBench [N...]
+ */
+public class ResolveBench {
+	private static final int REFS_PER_VAR = 4;
+	private static final int WARMUP = 20;
+	private static final int ROUNDS = 50;
+
+	public static void main(String[] args) throws Exception {
+		int[] widths = { 10, 100, 500, 2000 };
+		if (args.length > 0) {
+			widths = new int[args.length];
+			for (int i = 0; i < args.length; i++)
+				widths[i] = Integer.parseInt(args[i]);
+		}
+
+		System.out.printf("%8s %10s %14s%n", "N", "refs", "ns/ref");
+		for (int n : widths) {
+			Sources src = Sources.parse("wide" + n, new StringReader(wideProgram(n)));
+			long refs = (long) 3 * n * REFS_PER_VAR;
+			for (int i = 0; i < WARMUP; i++)
+				new Codegen().generate(src.program, src.env);
+			long start = System.nanoTime();
+			for (int i = 0; i < ROUNDS; i++)
+				new Codegen().generate(src.program, src.env);
+			double ns = (double) (System.nanoTime() - start) / ((long) ROUNDS * refs);
+			System.out.printf("%8d %10d %14.1f%n", n, refs, ns);
+		}
+	}
+
+	// class Wide { int f0..fN; public int m(int p0..pN){ int l0..lN; lI = fI + pI; ... } }
+	static String wideProgram(int n){
+		StringBuilder sb = new StringBuilder();
+		sb.append("class Main { public static void main(String[] a){ System.out.println(0); } }\n");
+		sb.append("class Wide {\n");
+		for (int i = 0; i < n; i++)
+			sb.append("  int f").append(i).append(";\n");
+		sb.append("  public int m(");
+		for (int i = 0; i < n; i++)
+			sb.append(i > 0 ? ", " : "").append("int p").append(i);
+		sb.append(") {\n");
+		for (int i = 0; i < n; i++)
+			sb.append("    int l").append(i).append(";\n");
+		// cada par de atribuições referencia fI, pI e lI duas vezes cada
+		// (o lado esquerdo também conta como referência)
+		for (int r = 0; r < REFS_PER_VAR / 2; r++)
+			for (int i = 0; i < n; i++) {
+				sb.append("    l").append(i).append(" = f").append(i).append(" + p").append(i).append(";\n");
+				sb.append("    f").append(i).append(" = l").append(i).append(" + p").append(i).append(";\n");
+			}
+		sb.append("    return 0;\n  }\n}\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,365 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import driver.Frontend;
+import llvm.Codegen;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Mede quanto tempo o código que geramos leva para rodar. Para cada carga de
+ * trabalho (por padrão test/workloads: crivo, multiplicação de matrizes,
+ * alocação de árvores, churn de lista ligada e os test/bigger com entradas
+ * maiores) compila o .ll, roda em cada executor, confere a saída com o golden
+ * (Nome.out ao lado do fonte) e guarda a mediana do tempo de parede.
+ *
+ * Executores (-r, separados por vírgula; padrão lli,native):
+ *   lli     o .ll no interpretador/JIT do LLVM ($LLI ou -lli, padrão 'lli')
+ *   native  o .ll ligado pelo clang ($CLANG ou -clang, padrão 'clang') com -O2
+ *   java    o próprio fonte como programa Java; é a referência dos goldens
+ * Um executor que não está instalado é pulado com um aviso.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.RunBench [opções] [arquivo.java | diretório]...
+ *   -n k     execuções medidas por carga (padrão 5), depois de uma de aquecimento
+ *   -o arq   grava as medianas em CSV           -b arq  compara com um CSV anterior
+ *   -t pct   regressão tolerada contra a base (padrão 10)
+ *   -d dir   onde ficam os .ll e executáveis (padrão out/workloads)
+ *   -update  regrava os goldens com a saída do executor java
+ *
+ * Termina com status 1 se alguma saída diferir do golden, alguma execução
+ * falhar ou alguma mediana passar da base em mais que o limiar; com 2 se
+ * nenhum executor estiver disponível.
+ */
+public class RunBench {
+	private static final String DEFAULT_DIR = "test/workloads";
+
+	public static void main(String[] args) throws Exception {
+		String runners = "lli,native";
+		int reps = 5;
+		double threshold = 10;
+		String csv = null, baseline = null;
+		File outDir = new File("out/workloads");
+		boolean update = false;
+		String lli = env("LLI", "lli"), clang = env("CLANG", "clang");
+		List<File> sources = new ArrayList<File>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-r")) runners = args[++i];
+			else if (args[i].equals("-n")) reps = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-t")) threshold = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-o")) csv = args[++i];
+			else if (args[i].equals("-b")) baseline = args[++i];
+			else if (args[i].equals("-d")) outDir = new File(args[++i]);
+			else if (args[i].equals("-update")) update = true;
+			else if (args[i].equals("-lli")) lli = args[++i];
+			else if (args[i].equals("-clang")) clang = args[++i];
+			else if (args[i].startsWith("-")) {
+				System.err.println("uso: bench.RunBench [-r lli,native,java] [-n k] [-o arq] [-b arq] [-t pct] [-d dir] [-update] [fonte | diretório]...");
+				System.exit(2);
+			}
+			else collect(new File(args[i]), sources);
+		}
+		if (sources.isEmpty())
+			collect(new File(DEFAULT_DIR), sources);
+		if (update)
+			runners = "java";
+
+		List<Runner> selected = new ArrayList<Runner>();
+		for (String r : runners.split(",")) {
+			Runner runner;
+			if (r.equals("lli")) runner = new Lli(lli);
+			else if (r.equals("native")) runner = new Native(clang);
+			else if (r.equals("java")) runner = new JavaRunner();
+			else throw new IllegalArgumentException("executor desconhecido: " + r);
+			if (runner.available())
+				selected.add(runner);
+			else
+				System.err.println("aviso: executor '" + r + "' indisponível (" + runner.tool() + " não encontrado), pulando");
+		}
+		if (selected.isEmpty()) {
+			System.err.println("nenhum executor disponível");
+			System.exit(2);
+		}
+
+		outDir.mkdirs();
+		Map<String, Double> base = baseline != null ? readCsv(baseline) : new LinkedHashMap<String, Double>();
+		List<String> rows = new ArrayList<String>();
+		boolean failed = false;
+
+		if (!update) {
+			System.out.printf("# %d execuções por carga (mediana), regressão tolerada %.0f%%%n", reps, threshold);
+			System.out.printf("%-16s %-8s %10s %10s %10s  %s%n", "carga", "executor", "mediana ms", "mín ms", "máx ms",
+					baseline != null ? "vs base" : "");
+		}
+		for (File source : sources) {
+			String name = nameOf(source);
+			File golden = new File(source.getParentFile(), name + ".out");
+			File ll = null;
+			for (Runner runner : selected) {
+				String tag = String.format("%-16s %-8s", name, runner.name());
+				long[] times = new long[reps];
+				try {
+					if (!(runner instanceof JavaRunner) && ll == null)
+						ll = compile(source, outDir);
+					List<String> cmd = runner.prepare(source, ll, outDir);
+
+					Run first = run(cmd);
+					String expected = golden.exists() ? read(golden) : null;
+					if (update) {
+						write(golden, first.output);
+						System.out.printf("%s golden regravado: %s%n", tag, golden);
+						continue;
+					}
+					if (first.status != 0 || (expected != null && !expected.equals(first.output))) {
+						System.out.printf("%s SAÍDA ERRADA (status %d)%n", tag, first.status);
+						failed = true;
+						continue;
+					}
+					for (int r = 0; r < reps; r++)
+						times[r] = run(cmd).nanos;
+				} catch (Exception e) {
+					System.out.printf("%s falhou: %s%n", tag, e.getMessage());
+					failed = true;
+					continue;
+				}
+
+				Arrays.sort(times);
+				double median = median(times) / 1e6;
+				String key = name + "/" + runner.name();
+				Double b = base.get(key);
+				String vs = "";
+				if (b != null) {
+					double change = 100.0 * (median - b) / b;
+					vs = String.format("%+7.1f%%", change);
+					if (change > threshold) {
+						vs += "   REGRESSÃO";
+						failed = true;
+					}
+				}
+				System.out.printf("%s %10.1f %10.1f %10.1f  %s%s%n", tag, median, times[0] / 1e6,
+						times[reps - 1] / 1e6, vs, golden.exists() ? "" : "   (sem golden)");
+				rows.add(String.format(java.util.Locale.ROOT, "%s,%.3f,%.3f,%.3f,%d", key, median, times[0] / 1e6,
+						times[reps - 1] / 1e6, reps));
+			}
+		}
+		if (csv != null)
+			writeCsv(csv, rows);
+		System.exit(failed ? 1 : 0);
+	}
+
+	/* Um jeito de executar uma carga */
+	static abstract class Runner {
+		abstract String name();
+
+		// Comando externo de que o executor precisa
+		abstract String tool();
+
+		boolean available(){
+			return onPath(tool());
+		}
+
+		// Prepara a carga (liga, compila...) e devolve o comando que a executa
+		abstract List<String> prepare(File source, File ll, File outDir) throws Exception;
+	}
+
+	static class Lli extends Runner {
+		private final String lli;
+
+		Lli(String lli){ this.lli = lli; }
+
+		String name(){ return "lli"; }
+		String tool(){ return lli; }
+
+		List<String> prepare(File source, File ll, File outDir){
+			return Arrays.asList(lli, ll.getPath());
+		}
+	}
+
+	static class Native extends Runner {
+		private final String clang;
+
+		Native(String clang){ this.clang = clang; }
+
+		String name(){ return "native"; }
+		String tool(){ return clang; }
+
+		List<String> prepare(File source, File ll, File outDir) throws Exception {
+			File exe = new File(outDir, nameOf(source));
+			Run link = run(Arrays.asList(clang, "-O2", "-w", "-o", exe.getPath(), ll.getPath()));
+			if (link.status != 0)
+				throw new IOException(clang + " terminou com status " + link.status);
+			return Arrays.asList(exe.getPath());
+		}
+	}
+
+	// O MiniJava é um subconjunto do Java: o fonte roda como está numa JVM
+	static class JavaRunner extends Runner {
+		String name(){ return "java"; }
+		String tool(){ return "javac"; }
+
+		boolean available(){
+			return ToolProvider.getSystemJavaCompiler() != null;
+		}
+
+		List<String> prepare(File source, File ll, File outDir) throws Exception {
+			File classes = new File(outDir, "java/" + nameOf(source));
+			classes.mkdirs();
+			JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+			// -cp explícito: com o padrão ('.') o javac tropeça no que houver no diretório atual
+			if (javac.run(null, null, null, "-nowarn", "-cp", classes.getPath(), "-d", classes.getPath(), source.getPath()) != 0)
+				throw new IOException("javac falhou em " + source);
+			String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+			return Arrays.asList(java, "-cp", classes.getPath(), nameOf(source));
+		}
+	}
+
+	static class Run {
+		final int status;
+		final String output;
+		final long nanos;
+
+		Run(int status, String output, long nanos){
+			this.status = status;
+			this.output = output;
+			this.nanos = nanos;
+		}
+	}
+
+	// Executa 'cmd' e devolve o status, a saída padrão e o tempo de parede
+	static Run run(List<String> cmd) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		Process p = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		String output = drain(p.getInputStream());
+		int status = p.waitFor();
+		return new Run(status, output, System.nanoTime() - start);
+	}
+
+	static File compile(File source, File outDir) throws Exception {
+		Program p = Frontend.parse(source.getPath());
+		Env env = Frontend.check(source.getPath(), p);
+		File ll = new File(outDir, nameOf(source) + ".ll");
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(ll)));
+		try {
+			new Codegen().translate(p, env, out);
+		} finally {
+			out.close();
+		}
+		return ll;
+	}
+
+	static String nameOf(File source){
+		String name = source.getName();
+		return name.endsWith(".java") ? name.substring(0, name.length() - ".java".length()) : name;
+	}
+
+	private static void collect(File f, List<File> sources){
+		if (f.isDirectory()) {
+			File[] children = f.listFiles();
+			List<File> sorted = new ArrayList<File>();
+			if (children != null)
+				Collections.addAll(sorted, children);
+			Collections.sort(sorted);
+			for (File c : sorted)
+				if (c.getName().endsWith(".java"))
+					sources.add(c);
+		} else {
+			sources.add(f);
+		}
+	}
+
+	static boolean onPath(String tool){
+		if (tool.indexOf(File.separatorChar) >= 0)
+			return new File(tool).canExecute();
+		String path = System.getenv("PATH");
+		if (path != null)
+			for (String dir : path.split(File.pathSeparator))
+				if (new File(dir, tool).canExecute())
+					return true;
+		return false;
+	}
+
+	static String env(String name, String fallback){
+		String v = System.getenv(name);
+		return v != null && v.length() > 0 ? v : fallback;
+	}
+
+	static double median(long[] sorted){
+		int n = sorted.length;
+		return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2.0;
+	}
+
+	static String drain(InputStream in) throws IOException {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		byte[] b = new byte[8192];
+		try {
+			for (int n = in.read(b); n > 0; n = in.read(b))
+				buf.write(b, 0, n);
+		} finally {
+			in.close();
+		}
+		return new String(buf.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	static String read(File f) throws IOException {
+		return drain(new FileInputStream(f));
+	}
+
+	static void write(File f, String s) throws IOException {
+		FileOutputStream out = new FileOutputStream(f);
+		try {
+			out.write(s.getBytes(StandardCharsets.UTF_8));
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeCsv(String path, List<String> rows) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(path));
+		try {
+			out.println("workload,median_ms,min_ms,max_ms,runs");
+			for (String r : rows)
+				out.println(r);
+		} finally {
+			out.close();
+		}
+	}
+
+	// carga/executor -> mediana em ms
+	private static Map<String, Double> readCsv(String path) throws IOException {
+		Map<String, Double> medians = new LinkedHashMap<String, Double>();
+		BufferedReader in = new BufferedReader(new FileReader(path));
+		try {
+			in.readLine();
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				String[] f = line.split(",");
+				medians.put(f[0], Double.parseDouble(f[1]));
+			}
+		} finally {
+			in.close();
+		}
+		return medians;
+	}
+}
@@ -0,0 +1,163 @@
+package bench;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import driver.Frontend;
+import llvm.Codegen;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Mede como o tempo de cada fase cresce com o tamanho do programa: gera
+ * programas com o ProgramGenerator variando um dos botões, compila cada um
+ * algumas vezes e ajusta tempo = a * tamanho^k (mínimos quadrados em log-log),
+ * com o tamanho medido em bytes de fonte. k perto de 1 é linear; acima do
+ * limite (-limit, padrão 1.2) a fase é marcada como superlinear e o programa
+ * termina com status 1.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.ScalingBench [-sweep botão] [-sizes a,b,c] [-reps n]
+ *          [-limit k] [opções do ProgramGenerator para os demais botões]
+ *   botão: classes (padrão), fields, methods, statements, loops, depth ou calls
+ */
+public class ScalingBench {
+	private static final String[] PHASES = { "parse", "check", "translate" };
+	private static final int WARMUP = 3;
+
+	public static void main(String[] args) throws Exception {
+		String sweep = "classes";
+		String sizes = "8,16,32,64,128,256";
+		int reps = 5;
+		double limit = 1.2;
+		ProgramGenerator.Options base = new ProgramGenerator.Options();
+
+		int i = 0;
+		while (i < args.length) {
+			if (args[i].equals("-sweep")) { sweep = args[i + 1]; i += 2; }
+			else if (args[i].equals("-sizes")) { sizes = args[i + 1]; i += 2; }
+			else if (args[i].equals("-reps")) { reps = Integer.parseInt(args[i + 1]); i += 2; }
+			else if (args[i].equals("-limit")) { limit = Double.parseDouble(args[i + 1]); i += 2; }
+			else {
+				int next = base.parse(args, i);
+				if (next == i) {
+					System.err.println("uso: bench.ScalingBench [-sweep botão] [-sizes a,b,c] [-reps n] [-limit k] [opções do ProgramGenerator]");
+					System.exit(2);
+				}
+				i = next;
+			}
+		}
+
+		String[] values = sizes.split(",");
+		double[] x = new double[values.length];
+		double[][] y = new double[PHASES.length][values.length];
+
+		// aquece o JIT com o maior programa, para que os pequenos não sejam medidos frios
+		ProgramGenerator.Options largest = copy(base);
+		set(largest, sweep, values[values.length - 1]);
+		String warm = ProgramGenerator.generate(largest);
+		for (int w = 0; w < WARMUP; w++) {
+			Program p = Frontend.parse("gerado", new StringReader(warm));
+			new Codegen().translate(p, Frontend.check("gerado", p), new Harness.NullWriter());
+		}
+
+		System.out.printf("# %s em {%s}, %d repetições (mediana)%n", sweep, sizes, reps);
+		System.out.printf("%10s %10s %10s %10s %12s %12s %12s%n", sweep, "fonte B", "comandos", "IR B",
+				"parse ms", "check ms", "translate ms");
+		for (int s = 0; s < values.length; s++) {
+			ProgramGenerator.Options o = copy(base);
+			set(o, sweep, values[s]);
+			ProgramGenerator gen = new ProgramGenerator(o);
+			String text = gen.generate();
+
+			long[][] t = new long[PHASES.length][reps];
+			long irBytes = 0;
+			for (int r = -1; r < reps; r++) {
+				long t0 = System.nanoTime();
+				Program p = Frontend.parse("gerado", new StringReader(text));
+				long t1 = System.nanoTime();
+				Env env = Frontend.check("gerado", p);
+				long t2 = System.nanoTime();
+				CountingWriter out = new CountingWriter();
+				new Codegen().translate(p, env, out);
+				long t3 = System.nanoTime();
+				if (r >= 0) {
+					t[0][r] = t1 - t0;
+					t[1][r] = t2 - t1;
+					t[2][r] = t3 - t2;
+				}
+				irBytes = out.count;
+			}
+
+			x[s] = text.length();
+			for (int ph = 0; ph < PHASES.length; ph++)
+				y[ph][s] = median(t[ph]);
+			System.out.printf("%10s %10d %10d %10d %12.2f %12.2f %12.2f%n", values[s], text.length(), gen.statementCount(),
+					irBytes, y[0][s] / 1e6, y[1][s] / 1e6, y[2][s] / 1e6);
+		}
+
+		boolean superlinear = false;
+		System.out.println();
+		System.out.printf("%-10s %8s %8s%n", "fase", "k", "R²");
+		for (int ph = 0; ph < PHASES.length; ph++) {
+			double[] fit = fitLogLog(x, y[ph]);
+			boolean bad = fit[0] > limit;
+			superlinear |= bad;
+			System.out.printf("%-10s %8.2f %8.3f%s%n", PHASES[ph], fit[0], fit[1], bad ? "   SUPERLINEAR" : "");
+		}
+		System.exit(superlinear ? 1 : 0);
+	}
+
+	// Inclinação e R² da reta de mínimos quadrados de log(y) contra log(x)
+	static double[] fitLogLog(double[] x, double[] y){
+		int n = x.length;
+		double sx = 0, sy = 0, sxx = 0, sxy = 0, syy = 0;
+		for (int i = 0; i < n; i++) {
+			double lx = Math.log(x[i]), ly = Math.log(y[i]);
+			sx += lx;
+			sy += ly;
+			sxx += lx * lx;
+			sxy += lx * ly;
+			syy += ly * ly;
+		}
+		double cov = sxy - sx * sy / n;
+		double vx = sxx - sx * sx / n;
+		double vy = syy - sy * sy / n;
+		double k = cov / vx;
+		double r2 = vy == 0 ? 1 : cov * cov / (vx * vy);
+		return new double[] { k, r2 };
+	}
+
+	private static double median(long[] v){
+		long[] s = v.clone();
+		Arrays.sort(s);
+		int n = s.length;
+		return n % 2 == 1 ? s[n / 2] : (s[n / 2 - 1] + s[n / 2]) / 2.0;
+	}
+
+	private static ProgramGenerator.Options copy(ProgramGenerator.Options b){
+		ProgramGenerator.Options o = new ProgramGenerator.Options();
+		o.seed = b.seed;
+		o.classes = b.classes;
+		o.depth = b.depth;
+		o.fields = b.fields;
+		o.methods = b.methods;
+		o.statements = b.statements;
+		o.loops = b.loops;
+		o.calls = b.calls;
+		return o;
+	}
+
+	private static void set(ProgramGenerator.Options o, String knob, String value){
+		if (o.parse(new String[] { "-" + knob, value }, 0) != 2)
+			throw new IllegalArgumentException("botão desconhecido: " + knob);
+	}
+
+	// Writer que só conta os caracteres escritos
+	static class CountingWriter extends Harness.NullWriter {
+		long count;
+
+		public void write(int c){ count++; }
+		public void write(char[] buf, int off, int len){ count += len; }
+		public void write(String s, int off, int len){ count += len; }
+	}
+}
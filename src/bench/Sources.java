@@ -0,0 +1,31 @@
+package bench;
+
+import java.io.Reader;
+
+import driver.Frontend;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Programa já analisado (parse + TypeChecker) para os benchmarks.
+ */
+public class Sources {
+	public final Program program;
+	public final Env env;
+
+	private Sources(Program program, Env env){
+		this.program = program;
+		this.env = env;
+	}
+
+	public static Sources load(String path) throws Exception {
+		Program program = Frontend.parse(path);
+		return new Sources(program, Frontend.check(path, program));
+	}
+
+	// Para programas gerados em memória pelos próprios benchmarks
+	public static Sources parse(String name, Reader in) throws Exception {
+		Program program = Frontend.parse(name, in);
+		return new Sources(program, Frontend.check(name, program));
+	}
+}
@@ -0,0 +1,167 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import driver.Frontend;
+import llvm.Codegen;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Tempo de partida do compilador: para um programa trivial, quanto uma JVM nova
+ * leva do início até escrever a primeira instrução do IR (o cabeçalho do
+ * módulo, que o translate emite logo depois do parse, do TypeChecker e da
+ * SymTab), e até terminar. Cada configuração roda em processos novos:
+ *
+ *   jvm      classes dos diretórios (src:lib/projeto2.jar), sem nada
+ *   preload  idem, com o Frontend.preload (tabelas do parser e do lexer numa
+ *            thread à parte)
+ *   appcds   o compilador num jar, com o arquivo AppCDS gerado pelo 'make cds'
+ *            num treino sobre test/bigger, e com o preload
+ *
+ * O AppCDS só arquiva classes de jars, por isso a última configuração usa o
+ * jar do 'make cds'; sem o arquivo .jsa ela é pulada com um aviso.
+ *
+ * Uso: java -cp src:lib/projeto2.jar bench.StartupBench [opções] [fonte.java]
+ *   -n k     execuções medidas por configuração (padrão 10), depois de uma de aquecimento
+ *   -a arq   arquivo AppCDS (padrão out/minijava.jsa)   -jar arq  jar do treino (padrão out/minijava.jar)
+ *   -o arq   grava as medianas em CSV
+ *
+ * Internamente, "-child [-preload] fonte..." é o processo medido: compila os
+ * fontes escrevendo o IR na saída padrão.
+ */
+public class StartupBench {
+	private static final String TRIVIAL =
+			"class Trivial {\n" +
+			"\tpublic static void main(String[] a){\n" +
+			"\t\tSystem.out.println(42);\n" +
+			"\t}\n" +
+			"}\n";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("-child")) {
+			child(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		int reps = 10;
+		String archive = "out/minijava.jsa", jar = "out/minijava.jar", csv = null;
+		File source = null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-n")) reps = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-a")) archive = args[++i];
+			else if (args[i].equals("-jar")) jar = args[++i];
+			else if (args[i].equals("-o")) csv = args[++i];
+			else if (args[i].startsWith("-")) {
+				System.err.println("uso: bench.StartupBench [-n k] [-a arq.jsa] [-jar arq.jar] [-o arq.csv] [fonte.java]");
+				System.exit(2);
+			}
+			else source = new File(args[i]);
+		}
+		if (source == null) {
+			File dir = new File("out/startup");
+			dir.mkdirs();
+			source = new File(dir, "Trivial.java");
+			RunBench.write(source, TRIVIAL);
+		}
+
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		String cp = System.getProperty("java.class.path");
+		String jarCp = jar + File.pathSeparator + "lib/projeto2.jar";
+		List<String[]> configs = new ArrayList<String[]>();
+		configs.add(new String[] { "jvm", java, "-cp", cp, StartupBench.class.getName(), "-child", source.getPath() });
+		configs.add(new String[] { "preload", java, "-cp", cp, StartupBench.class.getName(), "-child", "-preload", source.getPath() });
+		if (new File(archive).exists() && new File(jar).exists())
+			configs.add(new String[] { "appcds", java, "-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off", "-cp", jarCp,
+					StartupBench.class.getName(), "-child", "-preload", source.getPath() });
+		else
+			System.err.println("aviso: " + archive + " ou " + jar + " não encontrado (gere com 'make cds'); pulando appcds");
+
+		System.out.printf("# %s, %d execuções por configuração (mediana)%n", source, reps);
+		System.out.printf("%-8s %14s %10s %12s %10s  %s%n", "config", "1ª instr. ms", "mín ms", "total ms", "mín ms", "vs jvm");
+		List<String> rows = new ArrayList<String>();
+		double base = 0;
+		for (String[] c : configs) {
+			List<String> cmd = Arrays.asList(c).subList(1, c.length);
+			long[] first = new long[reps], total = new long[reps];
+			try {
+				measure(cmd, new long[2]);
+				for (int r = 0; r < reps; r++) {
+					long[] t = new long[2];
+					measure(cmd, t);
+					first[r] = t[0];
+					total[r] = t[1];
+				}
+			} catch (IOException e) {
+				System.out.printf("%-8s falhou: %s%n", c[0], e.getMessage());
+				continue;
+			}
+			Arrays.sort(first);
+			Arrays.sort(total);
+			double ttfi = RunBench.median(first) / 1e6, wall = RunBench.median(total) / 1e6;
+			if (configs.get(0) == c)
+				base = ttfi;
+			System.out.printf("%-8s %14.1f %10.1f %12.1f %10.1f  %+6.1f%%%n", c[0], ttfi, first[0] / 1e6, wall, total[0] / 1e6,
+					base > 0 ? 100.0 * (ttfi - base) / base : 0.0);
+			rows.add(String.format(Locale.ROOT, "%s,%.3f,%.3f,%d", c[0], ttfi, wall, reps));
+		}
+		if (csv != null) {
+			PrintWriter out = new PrintWriter(new FileWriter(csv));
+			try {
+				out.println("config,first_instruction_ms,total_ms,runs");
+				for (String r : rows)
+					out.println(r);
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	// Roda 'cmd' e guarda em t[0] o tempo até o primeiro byte da saída (a primeira
+	// instrução do IR) e em t[1] o tempo até o processo terminar
+	private static void measure(List<String> cmd, long[] t) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		Process p = new ProcessBuilder(cmd).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		InputStream in = p.getInputStream();
+		int b = in.read();
+		t[0] = System.nanoTime() - start;
+		String rest = RunBench.drain(in);
+		int status = p.waitFor();
+		t[1] = System.nanoTime() - start;
+		if (status != 0 || b != '@' || rest.indexOf("define i32 @main()") < 0)
+			throw new IOException("o processo terminou com status " + status + " sem gerar o IR");
+	}
+
+	// O processo medido: compila cada fonte para a saída padrão
+	private static void child(String[] args) throws Exception {
+		int i = 0;
+		if (i < args.length && args[i].equals("-preload")) {
+			Frontend.preload();
+			i++;
+		}
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+		boolean ok = true;
+		for (; i < args.length; i++) {
+			try {
+				Program p = Frontend.parse(args[i]);
+				Env env = Frontend.check(args[i], p);
+				new Codegen().translate(p, env, out);
+			} catch (Exception e) {
+				System.err.println(args[i] + ": " + e);
+				ok = false;
+			}
+		}
+		out.flush();
+		System.exit(ok ? 0 : 1);
+	}
+}
@@ -0,0 +1,421 @@
+package driver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import llvm.ClassCache;
+import llvm.Codegen;
+import llvm.CompileStats;
+import llvm.DebugInfo;
+import llvm.Remarks;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Compila muitos fontes MiniJava numa única JVM, pagando a partida da JVM e o
+ * aquecimento do JIT uma vez só.
+ *
+ * As fases rodam como estágios de um pipeline ligados por filas limitadas:
+ *
+ *   parse (lexer/parser) -> check (TypeChecker) -> codegen (translate + escrita do .ll)
+ *
+ * Enquanto um arquivo está no Codegen, o seguinte já está no TypeChecker e o
+ * outro no parser. Cada .ll é escrito assim que o seu Codegen termina.
+ *
+ * Uso: java -cp src:lib/projeto2.jar driver.BatchMain [opções] (arquivo.java | diretório | @lista)...
+ *   -d dir   escreve os .ll em 'dir' (padrão: ao lado de cada fonte)
+ *   -j n     threads por estágio (padrão: 1); o check roda um arquivo de cada vez
+ *   -q       não imprime a linha de cada arquivo, só o resumo
+ *   -stats   ao final, tempo/alocação/instruções por fase e as classes e métodos mais caros
+ *   -remarks fmt  grava as observações de otimização (llvm.Remarks) de cada fonte ao
+ *            lado do .ll, em Nome.remarks.yaml ou Nome.remarks.jsonl (fmt = yaml ou jsonl)
+ *   -g       inclui no .ll os metadados de depuração (llvm.DebugInfo): linha e coluna
+ *            do fonte em cada instrução, para perf e gdb
+ *   -mem2reg promove os locais e parâmetros para registradores (llvm.Mem2Reg)
+ *   -stackcoloring  junta os slots da pilha que não estão vivos ao mesmo tempo e
+ *            marca a vida de cada variável com llvm.lifetime (llvm.StackColoring)
+ *
+ * Com -Dcodegen.cache=dir, classes que não mudaram saem do cache de IR (llvm.ClassCache).
+ *
+ * Diretórios são percorridos recursivamente atrás de *.java; '@lista' é um
+ * arquivo com um caminho por linha.
+ */
+public class BatchMain {
+	private static final int QUEUE_SIZE = 16;
+
+	// Marca o fim da entrada em cada fila
+	private static final Job END = new Job(null);
+
+	public static void main(String[] args) throws Exception {
+		Frontend.preload();
+		File outDir = null;
+		int workers = 1;
+		boolean quiet = false;
+		CompileStats stats = null;
+		String remarks = null;
+		boolean debug = false;
+		boolean mem2reg = false;
+		boolean stackColoring = false;
+		List<File> sources = new ArrayList<File>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-d"))
+				outDir = new File(args[++i]);
+			else if (args[i].equals("-j"))
+				workers = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-q"))
+				quiet = true;
+			else if (args[i].equals("-stats"))
+				stats = new CompileStats();
+			else if (args[i].equals("-remarks"))
+				remarks = args[++i];
+			else if (args[i].equals("-g"))
+				debug = true;
+			else if (args[i].equals("-mem2reg"))
+				mem2reg = true;
+			else if (args[i].equals("-stackcoloring"))
+				stackColoring = true;
+			else if (args[i].startsWith("@"))
+				readList(new File(args[i].substring(1)), sources);
+			else
+				collect(new File(args[i]), sources);
+		}
+		if (sources.isEmpty()) {
+			System.err.println("uso: driver.BatchMain [-d dir] [-j n] [-q] [-stats] [-remarks yaml|jsonl] [-g] [-mem2reg] [-stackcoloring] (arquivo.java | diretório | @lista)...");
+			System.exit(2);
+		}
+		if (outDir != null)
+			outDir.mkdirs();
+
+		boolean ok = run(sources, outDir, workers, quiet, stats, remarks, debug, mem2reg, stackColoring);
+		if (stats != null) {
+			System.out.println();
+			stats.print(System.out);
+		}
+		System.exit(ok ? 0 : 1);
+	}
+
+	// Devolve true se todos os arquivos compilaram; 'stats' e 'remarks' (formato das
+	// observações: yaml ou jsonl) podem ser null; 'debug' liga os metadados de depuração
+	// e 'mem2reg' e 'stackColoring', os passos sobre os locais (llvm.Mem2Reg e llvm.StackColoring)
+	public static boolean run(List<File> sources, final File outDir, int workers, boolean quiet,
+			final CompileStats stats, final String remarks, final boolean debug, final boolean mem2reg,
+			final boolean stackColoring) throws InterruptedException {
+		BlockingQueue<Job> toParse = new ArrayBlockingQueue<Job>(QUEUE_SIZE);
+		BlockingQueue<Job> toCheck = new ArrayBlockingQueue<Job>(QUEUE_SIZE);
+		BlockingQueue<Job> toCodegen = new ArrayBlockingQueue<Job>(QUEUE_SIZE);
+		BlockingQueue<Job> done = new ArrayBlockingQueue<Job>(QUEUE_SIZE);
+
+		List<Stage> stages = new ArrayList<Stage>();
+		stages.addAll(Stage.start("parse", workers, toParse, toCheck, new Step() {
+			public void run(Job job) throws Exception {
+				long t = System.nanoTime();
+				job.program = Frontend.parse(job.source.getPath(), stats);
+				job.parseNanos = System.nanoTime() - t;
+			}
+		}));
+		// com -j n, as n threads do check se revezam no Frontend.check, que roda um
+		// TypeChecker de cada vez (o dicionário de símbolos do jar não é seguro para threads)
+		stages.addAll(Stage.start("check", workers, toCheck, toCodegen, new Step() {
+			public void run(Job job) throws Exception {
+				long t = System.nanoTime();
+				job.env = Frontend.check(job.source.getPath(), job.program, stats);
+				job.checkNanos = System.nanoTime() - t;
+			}
+		}));
+		stages.addAll(Stage.start("codegen", workers, toCodegen, done, new Step() {
+			public void run(Job job) throws Exception {
+				long t = System.nanoTime();
+				job.output = outputFor(job.source, outDir);
+				Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(job.output)));
+				boolean ok = false;
+				try {
+					Codegen codegen = new Codegen();
+					if (stats != null)
+						codegen.setStats(stats);
+					Remarks r = null;
+					if (remarks != null)
+						codegen.setRemarks(r = new Remarks(job.source.getPath()));
+					if (debug)
+						codegen.setDebugInfo(new DebugInfo(job.source.getPath()));
+					if (mem2reg)
+						codegen.setMem2Reg(true);
+					if (stackColoring)
+						codegen.setStackColoring(true);
+					codegen.translate(job.program, job.env, out);
+					if (r != null)
+						r.write(remarksFor(job.output, remarks));
+					ok = true;
+				} finally {
+					out.close();
+					// não deixa um .ll pela metade para trás
+					if (!ok)
+						job.output.delete();
+				}
+				job.codegenNanos = System.nanoTime() - t;
+				job.irBytes = job.output.length();
+				// libera a AST assim que o .ll está pronto
+				job.program = null;
+				job.env = null;
+			}
+		}));
+
+		long start = System.nanoTime();
+		Feeder feeder = new Feeder(sources, toParse);
+		feeder.start();
+
+		Totals totals = new Totals();
+		if (!quiet)
+			System.out.printf("%-40s %9s %9s %9s %10s%n", "arquivo", "parse ms", "check ms", "cg ms", "IR bytes");
+		for (Job job = done.take(); job != END; job = done.take()) {
+			totals.add(job);
+			if (job.error != null)
+				System.out.printf("%-40s ERRO: %s%n", job.source.getPath(), job.error);
+			else if (!quiet)
+				System.out.printf("%-40s %9.2f %9.2f %9.2f %10d%n", job.source.getPath(),
+						ms(job.parseNanos), ms(job.checkNanos), ms(job.codegenNanos), job.irBytes);
+		}
+		long wall = System.nanoTime() - start;
+		feeder.join();
+		for (Stage s : stages)
+			s.join();
+
+		totals.print(wall);
+		if (ClassCache.shared() != null)
+			System.out.println(ClassCache.shared().describe());
+		return totals.failed == 0;
+	}
+
+	private static File outputFor(File source, File outDir){
+		String name = source.getName();
+		if (name.endsWith(".java"))
+			name = name.substring(0, name.length() - ".java".length());
+		name += ".ll";
+		File dir = outDir != null ? outDir : source.getAbsoluteFile().getParentFile();
+		return new File(dir, name);
+	}
+
+	// Nome.ll -> Nome.remarks.<fmt>
+	private static String remarksFor(File output, String format){
+		String path = output.getPath();
+		return path.substring(0, path.length() - ".ll".length()) + ".remarks." + format;
+	}
+
+	static void collect(File f, List<File> sources){
+		if (f.isDirectory()) {
+			File[] children = f.listFiles();
+			List<File> sorted = new ArrayList<File>();
+			if (children != null)
+				Collections.addAll(sorted, children);
+			Collections.sort(sorted);
+			for (File c : sorted)
+				if (c.isDirectory() || c.getName().endsWith(".java"))
+					collect(c, sources);
+		} else {
+			sources.add(f);
+		}
+	}
+
+	static void readList(File list, List<File> sources) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(list));
+		try {
+			for (String line = in.readLine(); line != null; line = in.readLine()) {
+				line = line.trim();
+				if (line.length() > 0 && !line.startsWith("#"))
+					collect(new File(line), sources);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	static double ms(long nanos){
+		return nanos / 1e6;
+	}
+
+	/* Um arquivo atravessando o pipeline */
+	static class Job {
+		final File source;
+		File output;
+		Program program;
+		Env env;
+		long parseNanos, checkNanos, codegenNanos;
+		long irBytes;
+		String error;	// != null: falhou em algum estágio, os seguintes só repassam
+
+		Job(File source){
+			this.source = source;
+		}
+	}
+
+	interface Step {
+		void run(Job job) throws Exception;
+	}
+
+	/* Uma thread de um estágio: consome de 'in', aplica 'step' e produz em 'out' */
+	static class Stage extends Thread {
+		private final BlockingQueue<Job> in, out;
+		private final Step step;
+		private final AtomicInteger alive;	// threads ainda vivas neste estágio
+
+		private Stage(String name, BlockingQueue<Job> in, BlockingQueue<Job> out, Step step, AtomicInteger alive){
+			super(name);
+			this.in = in;
+			this.out = out;
+			this.step = step;
+			this.alive = alive;
+			setDaemon(true);
+		}
+
+		static List<Stage> start(String name, int workers, BlockingQueue<Job> in, BlockingQueue<Job> out, Step step){
+			AtomicInteger alive = new AtomicInteger(workers);
+			List<Stage> stages = new ArrayList<Stage>();
+			for (int i = 0; i < workers; i++) {
+				Stage s = new Stage("batch-" + name + "-" + i, in, out, step, alive);
+				s.start();
+				stages.add(s);
+			}
+			return stages;
+		}
+
+		public void run(){
+			boolean ended = false, interrupted = false;
+			try {
+				for (Job job = in.take(); job != END; job = in.take()) {
+					if (job.error == null) {
+						try {
+							step.run(job);
+						} catch (CompileException e) {
+							job.error = e.getMessage();
+						} catch (InterruptedException e) {
+							throw e;
+						} catch (Throwable e) {
+							// inclusive OutOfMemoryError, AssertionError e o Error que o
+							// Codegen paralelo repassa: o arquivo falha, a thread segue
+							job.error = e.toString();
+						}
+					}
+					out.put(job);
+				}
+				ended = true;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} finally {
+				// mesmo que a thread saia antes da hora, o END segue adiante e o
+				// run() não fica esperando por ele para sempre
+				handOff(ended);
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		// Quem pegou o END o devolve para as outras threads do estágio; a última
+		// o repassa para o estágio seguinte. Se a última sai sem ter visto o END,
+		// os arquivos que ainda chegarem passam adiante como erro.
+		private void handOff(boolean ended){
+			if (alive.decrementAndGet() == 0) {
+				if (!ended)
+					for (Job job = takeUninterruptibly(in); job != END; job = takeUninterruptibly(in)) {
+						if (job.error == null)
+							job.error = "o estágio " + getName() + " parou";
+						putUninterruptibly(out, job);
+					}
+				in.clear();
+				putUninterruptibly(out, END);
+			} else if (ended) {
+				putUninterruptibly(in, END);
+			}
+		}
+
+		private static Job takeUninterruptibly(BlockingQueue<Job> queue){
+			boolean interrupted = false;
+			try {
+				while (true) {
+					try {
+						return queue.take();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+
+		private static void putUninterruptibly(BlockingQueue<Job> queue, Job job){
+			boolean interrupted = false;
+			while (true) {
+				try {
+					queue.put(job);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/* Alimenta o primeiro estágio; a fila limitada segura a leitura à frente */
+	static class Feeder extends Thread {
+		private final List<File> sources;
+		private final BlockingQueue<Job> out;
+
+		Feeder(List<File> sources, BlockingQueue<Job> out){
+			super("batch-feeder");
+			this.sources = sources;
+			this.out = out;
+			setDaemon(true);
+		}
+
+		public void run(){
+			try {
+				for (File f : sources)
+					out.put(new Job(f));
+				out.put(END);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	static class Totals {
+		int ok, failed;
+		long parseNanos, checkNanos, codegenNanos, irBytes;
+
+		void add(Job job){
+			if (job.error != null) {
+				failed++;
+				return;
+			}
+			ok++;
+			parseNanos += job.parseNanos;
+			checkNanos += job.checkNanos;
+			codegenNanos += job.codegenNanos;
+			irBytes += job.irBytes;
+		}
+
+		void print(long wallNanos){
+			double secs = wallNanos / 1e9;
+			System.out.println();
+			System.out.printf("%d arquivos (%d ok, %d com erro) em %.3f s%n", ok + failed, ok, failed, secs);
+			System.out.printf("vazão: %.1f arquivos/s, %.1f KB de IR/s%n", (ok + failed) / secs, irBytes / 1024.0 / secs);
+			System.out.printf("tempo somado por estágio: parse %.1f ms, check %.1f ms, codegen %.1f ms%n",
+					ms(parseNanos), ms(checkNanos), ms(codegenNanos));
+		}
+	}
+}
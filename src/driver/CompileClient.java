@@ -0,0 +1,163 @@
+package driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Cliente do driver.CompileServer, com os mesmos argumentos do main.Main:
+ *
+ *   java -cp src:lib/projeto2.jar driver.CompileClient [-s socket] [entrada.java [saída.s]]
+ *
+ * Sem entrada lê o fonte da entrada padrão; sem saída escreve em output.s.
+ * Se não houver servidor escutando no socket, compila no próprio processo.
+ *
+ *   -n n     repete o pedido n vezes e imprime a latência (p50/p90/max)
+ *   -stats   imprime as latências medidas pelo servidor
+ *   -stop    encerra o servidor
+ */
+public class CompileClient {
+
+	public static void main(String[] args) throws Exception {
+		String socket = CompileServer.DEFAULT_SOCKET;
+		int repeat = 0;
+		int op = CompileServer.COMPILE;
+		int i = 0;
+
+		for (; i < args.length && args[i].startsWith("-"); i++) {
+			if (args[i].equals("-s"))
+				socket = args[++i];
+			else if (args[i].equals("-n"))
+				repeat = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-stats"))
+				op = CompileServer.STATS;
+			else if (args[i].equals("-stop"))
+				op = CompileServer.STOP;
+			else {
+				System.err.println("uso: driver.CompileClient [-s socket] [-n n] [-stats | -stop] [entrada.java [saída.s]]");
+				System.exit(2);
+			}
+		}
+
+		SocketChannel ch = connect(Path.of(socket));
+		if (op != CompileServer.COMPILE) {
+			if (ch == null) {
+				System.err.println("nenhum servidor em " + socket);
+				System.exit(1);
+			}
+			Response r = send(ch, op, "", new byte[0]);
+			System.out.print(new String(r.body, StandardCharsets.UTF_8));
+			ch.close();
+			return;
+		}
+
+		String input = i < args.length ? args[i] : "stdin";
+		String output = i + 1 < args.length ? args[i + 1] : "output.s";
+		byte[] source = i < args.length ? Files.readAllBytes(Path.of(input)) : readAll(System.in);
+
+		Response r;
+		if (ch == null) {
+			r = local(input, source);
+		} else {
+			try {
+				r = send(ch, op, input, source);
+				if (repeat > 0)
+					measure(ch, input, source, repeat);
+			} finally {
+				ch.close();
+			}
+		}
+
+		if (r.status != CompileServer.OK) {
+			System.err.println(new String(r.body, StandardCharsets.UTF_8));
+			System.exit(r.status == CompileServer.ERROR ? -1 : 1);
+		}
+		OutputStream out = new FileOutputStream(output);
+		try {
+			out.write(r.body);
+		} finally {
+			out.close();
+		}
+	}
+
+	// null se não há servidor escutando
+	private static SocketChannel connect(Path socket) throws IOException {
+		if (!Files.exists(socket))
+			return null;
+		SocketChannel ch = SocketChannel.open(StandardProtocolFamily.UNIX);
+		try {
+			ch.connect(UnixDomainSocketAddress.of(socket));
+			return ch;
+		} catch (IOException e) {
+			ch.close();
+			return null;
+		}
+	}
+
+	static Response send(SocketChannel ch, int op, String name, byte[] source) throws IOException {
+		DataOutputStream out = new DataOutputStream(Channels.newOutputStream(ch));
+		out.writeInt(op);
+		out.writeUTF(name);
+		out.writeInt(source.length);
+		out.write(source);
+		out.flush();
+
+		DataInputStream in = new DataInputStream(Channels.newInputStream(ch));
+		Response r = new Response(in.readInt(), new byte[in.readInt()]);
+		in.readFully(r.body);
+		return r;
+	}
+
+	private static Response local(String name, byte[] source) throws IOException {
+		try {
+			return new Response(CompileServer.OK, CompileServer.compile(name, source));
+		} catch (CompileException e) {
+			return new Response(CompileServer.ERROR, e.getMessage().getBytes(StandardCharsets.UTF_8));
+		} catch (RuntimeException e) {
+			return new Response(CompileServer.FAILURE, e.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/* Latência vista pelo cliente, com a conexão já aberta */
+	private static void measure(SocketChannel ch, String name, byte[] source, int repeat) throws IOException {
+		long[] t = new long[repeat];
+		for (int k = 0; k < repeat; k++) {
+			long start = System.nanoTime();
+			send(ch, CompileServer.COMPILE, name, source);
+			t[k] = System.nanoTime() - start;
+		}
+		Arrays.sort(t);
+		System.err.printf("%s: %d pedidos, p50 %.3f ms, p90 %.3f ms, max %.3f ms%n",
+				name, repeat, t[repeat / 2] / 1e6, t[repeat * 9 / 10] / 1e6, t[repeat - 1] / 1e6);
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		byte[] b = new byte[8192];
+		for (int n = in.read(b); n > 0; n = in.read(b))
+			buf.write(b, 0, n);
+		return buf.toByteArray();
+	}
+
+	static class Response {
+		final int status;
+		final byte[] body;
+
+		Response(int status, byte[] body){
+			this.status = status;
+			this.body = body;
+		}
+	}
+}
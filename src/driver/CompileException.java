@@ -0,0 +1,17 @@
+package driver;
+
+/**
+ * Erro de compilação de um fonte MiniJava (léxico, sintático ou semântico).
+ * A mensagem já vem no formato "arquivo[linha,coluna]: ...", quando há posição.
+ */
+public class CompileException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	public CompileException(String message){
+		super(message);
+	}
+
+	public CompileException(String message, Throwable cause){
+		super(message, cause);
+	}
+}
@@ -0,0 +1,346 @@
+package driver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import llvm.ClassCache;
+import llvm.Codegen;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Servidor de compilação de vida longa: mantém carregadas as tabelas do
+ * parser e o código do Codegen já compilado pelo JIT, e atende pedidos por um
+ * socket de domínio Unix. O cliente (driver.CompileClient) substitui o
+ * 'make run'.
+ *
+ * Nada de um pedido sobrevive para o seguinte: cada pedido faz o seu parse,
+ * tem o seu ErrorEchoer e o seu Codegen (SymTab e contadores de registradores
+ * e rótulos são do Codegen/da função). O estado estático compartilhado é:
+ * os caches de tipos/literais do llvmast, que só guardam objetos imutáveis, e
+ * o dicionário do symbol.Symbol do jar, que cresce com os nomes de todos os
+ * pedidos enquanto o servidor estiver no ar e não é seguro para threads (por
+ * isso o Frontend.check serializa as checagens; os -j pedidos só correm em
+ * paralelo no parse e no Codegen).
+ *
+ * Uso: java -cp src:lib/projeto2.jar driver.CompileServer [-s socket] [-j n] [-w fonte|diretório]...
+ *   -s socket  caminho do socket (padrão: DEFAULT_SOCKET, num diretório só do usuário)
+ *   -j n       pedidos atendidos em paralelo (padrão: 2)
+ *   -w x       compila x algumas vezes antes de aceitar pedidos (aquece o JIT)
+ *
+ * Com -Dcodegen.cache=dir, o cache de IR por classe (llvm.ClassCache) é
+ * compartilhado por todos os pedidos.
+ *
+ * Protocolo (DataInput/DataOutput, big-endian), um ou mais pedidos por conexão:
+ *   pedido   : int op, UTF nome, int n, n bytes do fonte (UTF-8)
+ *   resposta : int status, int n, n bytes (IR se OK; mensagem caso contrário)
+ *
+ * Um fonte com tamanho negativo ou acima de MAX_SOURCE recebe FAILURE e a
+ * conexão é fechada (o resto do fluxo não dá mais para interpretar). O socket
+ * fica com permissão só do dono, dentro de um diretório 0700; como qualquer um
+ * que o alcance pode mandar STOP, o servidor recusa um diretório que outros
+ * usuários possam escrever ou atravessar.
+ */
+public class CompileServer {
+	public static final String DEFAULT_SOCKET =
+			new File(new File(System.getProperty("java.io.tmpdir"), "minijava-" + System.getProperty("user.name")), "compile.sock").getPath();
+
+	// Maior fonte aceito num pedido
+	static final int MAX_SOURCE = 16 << 20;
+
+	// op
+	static final int COMPILE = 1;
+	static final int STATS = 2;
+	static final int STOP = 3;
+
+	// status
+	static final int OK = 0;
+	static final int ERROR = 1;		// erro no fonte (CompileException)
+	static final int FAILURE = 2;	// erro interno do compilador
+
+	private static final int WARMUP_ROUNDS = 200;
+
+	private final Path socket;
+	private final ExecutorService workers;
+	private final Latencies latencies = new Latencies(1024);
+	private volatile boolean stopping;
+	private ServerSocketChannel server;
+
+	public CompileServer(Path socket, int workers){
+		this.socket = socket;
+		this.workers = Executors.newFixedThreadPool(workers);
+	}
+
+	public static void main(String[] args) throws Exception {
+		String socket = DEFAULT_SOCKET;
+		int workers = 2;
+		List<File> warm = new ArrayList<File>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-s"))
+				socket = args[++i];
+			else if (args[i].equals("-j"))
+				workers = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-w"))
+				collect(new File(args[++i]), warm);
+			else {
+				System.err.println("uso: driver.CompileServer [-s socket] [-j n] [-w fonte|diretório]...");
+				System.exit(2);
+			}
+		}
+
+		CompileServer s = new CompileServer(Path.of(socket), workers);
+		s.warmUp(warm);
+		s.serve();
+	}
+
+	/* Compila 'sources' repetidamente, descartando o IR */
+	void warmUp(List<File> sources) throws IOException {
+		if (sources.isEmpty())
+			return;
+		List<byte[]> texts = new ArrayList<byte[]>();
+		for (File f : sources)
+			texts.add(Files.readAllBytes(f.toPath()));
+		long t = System.nanoTime();
+		int failed = 0;
+		for (int r = 0; r < WARMUP_ROUNDS; r++)
+			for (int i = 0; i < texts.size(); i++) {
+				try {
+					compile(sources.get(i).getPath(), texts.get(i));
+				} catch (CompileException e) {
+					failed++;
+				} catch (RuntimeException e) {
+					failed++;
+				}
+			}
+		System.err.printf("aquecimento: %d fontes x %d em %.0f ms%s%n", texts.size(), WARMUP_ROUNDS,
+				(System.nanoTime() - t) / 1e6, failed > 0 ? " (" + failed / WARMUP_ROUNDS + " com erro)" : "");
+	}
+
+	public void serve() throws IOException {
+		privateDirectory(socket.toAbsolutePath().getParent());
+		Files.deleteIfExists(socket);
+		server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		server.bind(UnixDomainSocketAddress.of(socket));
+		socket.toFile().deleteOnExit();
+		restrict(socket, "rw-------");
+		System.err.println("escutando em " + socket);
+
+		try {
+			while (!stopping) {
+				final SocketChannel ch;
+				try {
+					ch = server.accept();
+				} catch (IOException e) {
+					if (stopping)
+						break;
+					throw e;
+				}
+				workers.execute(new Runnable() {
+					public void run(){
+						handle(ch);
+					}
+				});
+			}
+		} finally {
+			workers.shutdown();
+			server.close();
+			Files.deleteIfExists(socket);
+		}
+	}
+
+	private void handle(SocketChannel ch){
+		try {
+			DataInputStream in = new DataInputStream(Channels.newInputStream(ch));
+			DataOutputStream out = new DataOutputStream(Channels.newOutputStream(ch));
+			try {
+				for (;;) {
+					int op;
+					try {
+						op = in.readInt();
+					} catch (EOFException e) {
+						break;
+					}
+					String name = in.readUTF();
+					int length = in.readInt();
+					if (length < 0 || length > MAX_SOURCE) {
+						respond(out, FAILURE, ("tamanho de fonte inválido: " + length + " (máximo " + MAX_SOURCE + ")")
+								.getBytes(StandardCharsets.UTF_8));
+						break;
+					}
+					byte[] source = new byte[length];
+					in.readFully(source);
+
+					if (op == COMPILE)
+						respondCompile(out, name, source);
+					else if (op == STATS)
+						respond(out, OK, stats().getBytes(StandardCharsets.UTF_8));
+					else if (op == STOP) {
+						respond(out, OK, new byte[0]);
+						stop();
+						break;
+					} else
+						respond(out, FAILURE, ("op desconhecida: " + op).getBytes(StandardCharsets.UTF_8));
+				}
+			} finally {
+				ch.close();
+			}
+		} catch (IOException e) {
+			// cliente foi embora no meio do pedido; nada a fazer
+		}
+	}
+
+	private void respondCompile(DataOutputStream out, String name, byte[] source) throws IOException {
+		long t = System.nanoTime();
+		int status;
+		byte[] body;
+		try {
+			body = compile(name, source);
+			status = OK;
+		} catch (CompileException e) {
+			body = e.getMessage().getBytes(StandardCharsets.UTF_8);
+			status = ERROR;
+		} catch (RuntimeException e) {
+			body = e.toString().getBytes(StandardCharsets.UTF_8);
+			status = FAILURE;
+		} catch (StackOverflowError e) {
+			body = e.toString().getBytes(StandardCharsets.UTF_8);
+			status = FAILURE;
+		}
+		latencies.add(System.nanoTime() - t);
+		respond(out, status, body);
+	}
+
+	private static void respond(DataOutputStream out, int status, byte[] body) throws IOException {
+		out.writeInt(status);
+		out.writeInt(body.length);
+		out.write(body);
+		out.flush();
+	}
+
+	/* Um pedido inteiro: só objetos novos, nada compartilhado entre pedidos */
+	static byte[] compile(String name, byte[] source) throws CompileException, IOException {
+		Program program = Frontend.parse(name, new StringReader(new String(source, StandardCharsets.UTF_8)));
+		Env env = Frontend.check(name, program);
+		ByteArrayOutputStream ir = new ByteArrayOutputStream(source.length * 8);
+		Writer w = new OutputStreamWriter(ir, StandardCharsets.UTF_8);
+		new Codegen().translate(program, env, w);
+		w.flush();
+		return ir.toByteArray();
+	}
+
+	private String stats(){
+		String s = latencies.describe();
+		if (ClassCache.shared() != null)
+			s += ClassCache.shared().describe() + "\n";
+		return s;
+	}
+
+	/* Cria 'dir' com 0700, ou confere que o existente é do usuário e fechado para os outros */
+	static void privateDirectory(Path dir) throws IOException {
+		if (dir == null)
+			return;
+		if (!Files.isDirectory(dir)) {
+			try {
+				Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+			} catch (UnsupportedOperationException e) {
+				Files.createDirectories(dir);
+			}
+			return;
+		}
+		try {
+			UserPrincipal me = dir.getFileSystem().getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+			if (!Files.getOwner(dir).equals(me))
+				throw new IOException(dir + " não pertence a " + me.getName());
+			Set<PosixFilePermission> perms = Files.getPosixFilePermissions(dir);
+			for (PosixFilePermission p : perms)
+				if (p.name().startsWith("GROUP_") || p.name().startsWith("OTHERS_"))
+					throw new IOException(dir + " está acessível a outros usuários ("
+							+ PosixFilePermissions.toString(perms) + "); use -s num diretório privado");
+		} catch (UnsupportedOperationException e) {
+			// sistema de arquivos sem permissões POSIX
+		}
+	}
+
+	private static void restrict(Path p, String perms) throws IOException {
+		try {
+			Files.setPosixFilePermissions(p, PosixFilePermissions.fromString(perms));
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+
+	public void stop(){
+		stopping = true;
+		try {
+			if (server != null)
+				server.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private static void collect(File f, List<File> sources){
+		if (f.isDirectory()) {
+			File[] children = f.listFiles();
+			if (children == null)
+				return;
+			Arrays.sort(children);
+			for (File c : children)
+				if (c.isDirectory() || c.getName().endsWith(".java"))
+					collect(c, sources);
+		} else {
+			sources.add(f);
+		}
+	}
+
+	/* Tempos dos últimos 'capacity' pedidos, para o STATS */
+	static class Latencies {
+		private final long[] ring;
+		private int next;
+		private long count;
+
+		Latencies(int capacity){
+			ring = new long[capacity];
+		}
+
+		synchronized void add(long nanos){
+			ring[next] = nanos;
+			next = (next + 1) % ring.length;
+			count++;
+		}
+
+		synchronized String describe(){
+			int n = (int) Math.min(count, ring.length);
+			if (n == 0)
+				return "0 pedidos\n";
+			long[] sorted = Arrays.copyOf(ring, n);
+			Arrays.sort(sorted);
+			return String.format("%d pedidos; últimos %d: p50 %.3f ms, p90 %.3f ms, max %.3f ms%n",
+					count, n, sorted[n / 2] / 1e6, sorted[n * 9 / 10] / 1e6, sorted[n - 1] / 1e6);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package driver;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import errors.ErrorEchoer;
+import llvm.CompileStats;
+import llvm.Span;
+import minijava.lexer.Lexer;
+import minijava.lexer.LexerException;
+import minijava.parser.Parser;
+import minijava.parser.ParserException;
+import semant.Env;
+import semant.TypeChecker;
+import syntaxtree.Absyn;
+import syntaxtree.Program;
+import util.conversor.SyntaxTreeGenerator;
+
+/**
+ * As fases de front-end que o main.Main do jar executa antes do Codegen,
+ * separadas para que os drivers possam rodá-las (e medi-las) uma a uma:
+ *
+ *   parse : lexer + parser do SableCC + conversão para syntaxtree
+ *   check : TypeChecker (também anota os tipos usados pelo Codegen)
+ */
+public class Frontend {
+
+	// Classes carregadas e inicializadas pelo preload, na ordem em que a compilação as usa
+	private static final String[] PRELOAD = {
+		"minijava.lexer.Lexer", "minijava.parser.Parser", "util.conversor.SyntaxTreeGenerator",
+		"semant.TypeChecker", "llvm.Codegen"
+	};
+	private static boolean preloading;
+
+	// O TypeChecker do jar dá nome às coisas pelo symbol.Symbol.symbol(String),
+	// que consulta e preenche um Hashtable estático sem trava: duas checagens ao
+	// mesmo tempo podem criar dois Symbol para o mesmo nome, e como os Symbol são
+	// comparados por identidade, uma delas deixa de achar o que acabou de
+	// declarar. Por isso só uma checagem roda de cada vez, em todos os drivers.
+	private static final Object CHECK_LOCK = new Object();
+
+	private Frontend(){}
+
+	// Carrega e inicializa, numa thread à parte, o lexer e o parser do SableCC e as
+	// classes das fases seguintes, enquanto o driver ainda lê os argumentos e os
+	// fontes. O <clinit> do Parser e do Lexer converte as tabelas parser.dat e
+	// lexer.dat, que estão em texto, o que leva dezenas de milissegundos numa JVM
+	// nova. Quem chegar ao parser antes do fim só espera a inicialização em
+	// andamento (a JVM garante que ela roda uma única vez).
+	public static synchronized void preload(){
+		if (preloading)
+			return;
+		preloading = true;
+		Thread t = new Thread(new Runnable() {
+			public void run(){
+				ClassLoader loader = Frontend.class.getClassLoader();
+				for (String name : PRELOAD) {
+					try {
+						Class.forName(name, true, loader);
+					} catch (Throwable e) {
+						// é só uma antecipação: o erro aparece de novo no uso normal da classe
+					}
+				}
+			}
+		}, "preload");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	public static Program parse(String name, Reader in) throws CompileException, IOException {
+		return parse(name, in, null);
+	}
+
+	// 'stats' pode ser null; o evento do JFR da fase é emitido de qualquer forma
+	public static Program parse(String name, Reader in, CompileStats stats) throws CompileException, IOException {
+		PushbackReader reader = new PushbackReader(in);
+		Span span = Span.phase(stats, Span.PARSE, name);
+		try {
+			Program program = SyntaxTreeGenerator.convert(new Parser(new Lexer(reader)).parse());
+			span.end(0);
+			return program;
+		} catch (ParserException e) {
+			throw new CompileException(name + e.getMessage(), e);
+		} catch (LexerException e) {
+			throw new CompileException(name + e.getMessage(), e);
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static Program parse(String path) throws CompileException, IOException {
+		return parse(path, (CompileStats) null);
+	}
+
+	public static Program parse(String path, CompileStats stats) throws CompileException, IOException {
+		return parse(path, new InputStreamReader(new FileInputStream(path)), stats);
+	}
+
+	public static Env check(String name, Program program) throws CompileException {
+		return check(name, program, null);
+	}
+
+	public static Env check(String name, Program program, CompileStats stats) throws CompileException {
+		Errors err = new Errors(name);
+		Span span = Span.phase(stats, Span.CHECK, name);
+		Env env;
+		synchronized (CHECK_LOCK) {
+			env = TypeChecker.TypeCheck(err, program);
+		}
+		span.end(0);
+		if (err.ErrorCount() != 0)
+			throw new CompileException(err.describe());
+		return env;
+	}
+
+	// ErrorEchoer que guarda as mensagens (o SimpleError do jar não é público)
+	static class Errors implements ErrorEchoer {
+		private final String name;
+		private final List<String> messages = new ArrayList<String>();
+		private int errors;
+		private int warnings;
+
+		Errors(String name){
+			this.name = name;
+		}
+
+		public void Print(Object[] msg){}
+
+		public void Error(Absyn node, Object[] msg){
+			errors++;
+			messages.add(format(node, msg));
+		}
+
+		public void Warning(Absyn node, Object[] msg){
+			warnings++;
+		}
+
+		public int ErrorCount(){ return errors; }
+		public int WarningCount(){ return warnings; }
+		public void Reset(){ errors = 0; warnings = 0; messages.clear(); }
+
+		private String format(Absyn node, Object[] msg){
+			StringBuilder sb = new StringBuilder(name);
+			if (node != null)
+				sb.append('[').append(node.line).append(',').append(node.row).append(']');
+			sb.append(':');
+			for (Object o : msg)
+				sb.append(' ').append(o);
+			return sb.toString();
+		}
+
+		String describe(){
+			StringBuilder sb = new StringBuilder();
+			sb.append(errors).append(" erros");
+			for (String m : messages)
+				sb.append('\n').append(m);
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import llvm.IrStats;
+import semant.Env;
+import syntaxtree.Program;
+
+/**
+ * Relatório do IR gerado para cada fonte (llvm.IrStats): instruções por opcode,
+ * blocos e bytes de pilha por função e o tamanho da struct de cada classe.
+ * Com -json a saída é um JSON só, para guardar e comparar entre versões do Codegen.
+ *
+ * Uso: java -cp src:lib/projeto2.jar driver.IrReport [-json] (arquivo.java | diretório | @lista)...
+ *
+ * Termina com status 1 se algum fonte não compilar.
+ */
+public class IrReport {
+
+	public static void main(String[] args) throws IOException {
+		boolean json = false;
+		List<File> sources = new ArrayList<File>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-json"))
+				json = true;
+			else if (args[i].startsWith("@"))
+				BatchMain.readList(new File(args[i].substring(1)), sources);
+			else
+				BatchMain.collect(new File(args[i]), sources);
+		}
+		if (sources.isEmpty()) {
+			System.err.println("uso: driver.IrReport [-json] (arquivo.java | diretório | @lista)...");
+			System.exit(2);
+		}
+
+		PrintStream out = System.out;
+		int failed = 0, written = 0;
+		if (json)
+			out.print("[");
+		for (int i = 0; i < sources.size(); i++) {
+			File f = sources.get(i);
+			IrStats stats;
+			try {
+				Program p = Frontend.parse(f.getPath());
+				Env env = Frontend.check(f.getPath(), p);
+				stats = IrStats.of(p, env);
+			} catch (CompileException e) {
+				System.err.println(e.getMessage());
+				failed++;
+				continue;
+			} catch (RuntimeException e) {
+				// falha do Codegen (ex.: atributo herdado, ainda não suportado)
+				System.err.println(f + ": erro no Codegen: " + e);
+				failed++;
+				continue;
+			}
+			if (json) {
+				out.print(written++ == 0 ? "\n" : ",\n");
+				out.print("{\"source\": ");
+				IrStats.string(out, f.getPath());
+				out.print(", \"stats\": ");
+				stats.appendJson(out);
+				out.print("}");
+			} else {
+				out.printf("== %s%n", f);
+				stats.print(out);
+				out.println();
+			}
+		}
+		if (json)
+			out.println("\n]");
+		out.flush();
+		System.exit(failed > 0 ? 1 : 0);
+	}
+}
@@ -0,0 +1,274 @@
+package llvm;
+
+import llvmast.LlvmValue;
+import syntaxtree.Absyn;
+import syntaxtree.And;
+import syntaxtree.ArrayAssign;
+import syntaxtree.ArrayLength;
+import syntaxtree.ArrayLookup;
+import syntaxtree.Assign;
+import syntaxtree.Block;
+import syntaxtree.BooleanType;
+import syntaxtree.Call;
+import syntaxtree.ClassDeclExtends;
+import syntaxtree.ClassDeclSimple;
+import syntaxtree.Equal;
+import syntaxtree.False;
+import syntaxtree.Formal;
+import syntaxtree.Identifier;
+import syntaxtree.IdentifierExp;
+import syntaxtree.IdentifierType;
+import syntaxtree.If;
+import syntaxtree.IntArrayType;
+import syntaxtree.IntegerLiteral;
+import syntaxtree.IntegerType;
+import syntaxtree.LessThan;
+import syntaxtree.MainClass;
+import syntaxtree.MethodDecl;
+import syntaxtree.Minus;
+import syntaxtree.NewArray;
+import syntaxtree.NewObject;
+import syntaxtree.Not;
+import syntaxtree.Plus;
+import syntaxtree.Print;
+import syntaxtree.This;
+import syntaxtree.Times;
+import syntaxtree.True;
+import syntaxtree.VarDecl;
+import syntaxtree.VisitorAdapter;
+import syntaxtree.While;
+
+/**
+ * Tamanho de um trecho da AST: número de nós (comandos, expressões,
+ * declarações e tipos; os Identifier soltos não contam). É a medida de "fonte"
+ * contra a qual o IrStats compara o IR gerado para cada função.
+ */
+class AstSize extends VisitorAdapter {
+	private int nodes;
+
+	private AstSize(){}
+
+	static int of(Absyn n){
+		AstSize s = new AstSize();
+		n.accept(s);
+		return s.nodes;
+	}
+
+	private <T extends Absyn> void list(util.List<T> l){
+		for (; l != null; l = l.tail)
+			l.head.accept(this);
+	}
+
+	public LlvmValue visit(MainClass n){
+		nodes++;
+		n.stm.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(ClassDeclSimple n){
+		nodes++;
+		list(n.varList);
+		list(n.methodList);
+		return null;
+	}
+
+	public LlvmValue visit(ClassDeclExtends n){
+		nodes++;
+		list(n.varList);
+		list(n.methodList);
+		return null;
+	}
+
+	public LlvmValue visit(VarDecl n){
+		nodes++;
+		n.type.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(MethodDecl n){
+		nodes++;
+		n.returnType.accept(this);
+		list(n.formals);
+		list(n.locals);
+		list(n.body);
+		n.returnExp.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Formal n){
+		nodes++;
+		n.type.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(IntArrayType n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(BooleanType n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(IntegerType n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(IdentifierType n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(Block n){
+		nodes++;
+		list(n.body);
+		return null;
+	}
+
+	public LlvmValue visit(If n){
+		nodes++;
+		n.condition.accept(this);
+		n.thenClause.accept(this);
+		if (n.elseClause != null)
+			n.elseClause.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(While n){
+		nodes++;
+		n.condition.accept(this);
+		n.body.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Print n){
+		nodes++;
+		n.exp.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Assign n){
+		nodes++;
+		n.var.accept(this);
+		n.exp.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(ArrayAssign n){
+		nodes++;
+		n.var.accept(this);
+		n.index.accept(this);
+		n.value.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(And n){
+		nodes++;
+		n.lhs.accept(this);
+		n.rhs.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(LessThan n){
+		nodes++;
+		n.lhs.accept(this);
+		n.rhs.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Equal n){
+		nodes++;
+		n.lhs.accept(this);
+		n.rhs.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Plus n){
+		nodes++;
+		n.lhs.accept(this);
+		n.rhs.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Minus n){
+		nodes++;
+		n.lhs.accept(this);
+		n.rhs.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Times n){
+		nodes++;
+		n.lhs.accept(this);
+		n.rhs.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(ArrayLookup n){
+		nodes++;
+		n.array.accept(this);
+		n.index.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(ArrayLength n){
+		nodes++;
+		n.array.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(Call n){
+		nodes++;
+		n.object.accept(this);
+		list(n.actuals);
+		return null;
+	}
+
+	public LlvmValue visit(IntegerLiteral n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(True n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(False n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(This n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(NewArray n){
+		nodes++;
+		n.size.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(NewObject n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(Not n){
+		nodes++;
+		n.exp.accept(this);
+		return null;
+	}
+
+	public LlvmValue visit(IdentifierExp n){
+		nodes++;
+		return null;
+	}
+
+	public LlvmValue visit(Identifier n){
+		return null;
+	}
+}
@@ -0,0 +1,135 @@
+package llvm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache em disco do IR já renderizado de cada classe, para que uma recompilação
+ * só passe pelo Codegen as classes que mudaram (ver ClassKey para o que entra
+ * na chave). Cada entrada é um arquivo '<chave>.ll' no diretório do cache.
+ *
+ * O tamanho total é limitado: quando passa de 'maxBytes', as entradas usadas há
+ * mais tempo são apagadas (LRU). A ordem de uso sobrevive entre execuções pela
+ * data de modificação dos arquivos, atualizada a cada acerto. Escritas vão para
+ * um arquivo temporário e são renomeadas, então vários processos podem
+ * compartilhar o diretório; uma entrada apagada por outro processo é só uma falha.
+ *
+ * Seguro para uso por várias threads (geração paralela, servidor de compilação).
+ */
+public class ClassCache {
+	private static final String SUFFIX = ".ll";
+	public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+	private final File dir;
+	private final long maxBytes;
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(256, 0.75f, true);	// chave -> bytes, do menos para o mais usado
+	private long totalBytes;
+	private long hits, misses, evictions;
+
+	private static ClassCache shared;
+
+	public ClassCache(File dir, long maxBytes){
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+		dir.mkdirs();
+
+		File[] files = dir.listFiles();
+		List<File> found = new ArrayList<File>();
+		if (files != null)
+			for (File f : files)
+				if (f.getName().endsWith(SUFFIX))
+					found.add(f);
+		Collections.sort(found, new Comparator<File>() {
+			public int compare(File a, File b){
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (File f : found) {
+			String name = f.getName();
+			entries.put(name.substring(0, name.length() - SUFFIX.length()), f.length());
+			totalBytes += f.length();
+		}
+		evict();
+	}
+
+	// O cache ligado por -Dcodegen.cache=<diretório> (e -Dcodegen.cache.size=<bytes>),
+	// compartilhado por todos os Codegen do processo; null se a propriedade não existe
+	public static synchronized ClassCache shared(){
+		String path = System.getProperty("codegen.cache");
+		if (path == null)
+			return null;
+		if (shared == null)
+			shared = new ClassCache(new File(path), Long.getLong("codegen.cache.size", DEFAULT_MAX_BYTES));
+		return shared;
+	}
+
+	// Devolve o IR guardado em 'key', ou null
+	public synchronized String get(String key){
+		if (entries.get(key) != null) {
+			File f = file(key);
+			try {
+				String ir = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8);
+				f.setLastModified(System.currentTimeMillis());
+				hits++;
+				return ir;
+			} catch (IOException e) {
+				// apagado por outro processo
+				totalBytes -= entries.remove(key);
+			}
+		}
+		misses++;
+		return null;
+	}
+
+	public synchronized void put(String key, String ir) throws IOException {
+		byte[] bytes = ir.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > maxBytes)
+			return;
+		File tmp = File.createTempFile(key, ".tmp", dir);
+		try {
+			Files.write(tmp.toPath(), bytes);
+			Files.move(tmp.toPath(), file(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmp.delete();
+		}
+		Long old = entries.put(key, (long) bytes.length);
+		if (old != null)
+			totalBytes -= old;
+		totalBytes += bytes.length;
+		evict();
+	}
+
+	private void evict(){
+		Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+		while (totalBytes > maxBytes && it.hasNext()) {
+			Map.Entry<String, Long> e = it.next();
+			file(e.getKey()).delete();
+			totalBytes -= e.getValue();
+			it.remove();
+			evictions++;
+		}
+	}
+
+	private File file(String key){
+		return new File(dir, key + SUFFIX);
+	}
+
+	public synchronized long hits(){ return hits; }
+	public synchronized long misses(){ return misses; }
+	public synchronized long evictions(){ return evictions; }
+
+	public synchronized String describe(){
+		return String.format("cache %s: %d acertos, %d falhas, %d remoções; %d entradas, %.1f de %.1f KB",
+				dir, hits, misses, evictions, entries.size(), totalBytes / 1024.0, maxBytes / 1024.0);
+	}
+}
@@ -0,0 +1,456 @@
+package llvm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import llvmast.LlvmValue;
+import syntaxtree.Absyn;
+import syntaxtree.And;
+import syntaxtree.ArrayAssign;
+import syntaxtree.ArrayLength;
+import syntaxtree.ArrayLookup;
+import syntaxtree.Assign;
+import syntaxtree.Block;
+import syntaxtree.BooleanType;
+import syntaxtree.Call;
+import syntaxtree.ClassDeclExtends;
+import syntaxtree.ClassDeclSimple;
+import syntaxtree.Equal;
+import syntaxtree.Exp;
+import syntaxtree.False;
+import syntaxtree.Formal;
+import syntaxtree.Identifier;
+import syntaxtree.IdentifierExp;
+import syntaxtree.IdentifierType;
+import syntaxtree.If;
+import syntaxtree.IntArrayType;
+import syntaxtree.IntegerLiteral;
+import syntaxtree.IntegerType;
+import syntaxtree.LessThan;
+import syntaxtree.MainClass;
+import syntaxtree.MethodDecl;
+import syntaxtree.Minus;
+import syntaxtree.NewArray;
+import syntaxtree.NewObject;
+import syntaxtree.Not;
+import syntaxtree.Plus;
+import syntaxtree.Print;
+import syntaxtree.This;
+import syntaxtree.Times;
+import syntaxtree.True;
+import syntaxtree.VarDecl;
+import syntaxtree.VisitorAdapter;
+import syntaxtree.While;
+
+/**
+ * Chave do ClassCache para o IR de uma classe: SHA-256 de tudo o que o Codegen
+ * lê ao gerar a classe.
+ *
+ *  - a AST da classe, numa forma canônica (o toString da syntaxtree perde os
+ *    locais dos métodos), com os tipos anotados pelo TypeChecker nas expressões;
+ *  - o layout (struct e atributos) de cada classe da cadeia de superclasses;
+ *  - a assinatura (struct, tamanho e métodos) de cada classe citada no corpo:
+ *    o NewObject usa o tamanho da struct e o Call o nome e o tipo do método;
+ *  - as opções de geração e uma impressão digital do próprio Codegen, para que
+ *    um compilador diferente nunca reaproveite o IR de outro.
+ *
+ * Linha e coluna dos nós ficam de fora: só os metadados de depuração dependem
+ * delas, e com eles ligados o cache não é consultado. Qualquer coisa
+ * que o Codegen passe a ler da AST ou da SymTab precisa entrar aqui também.
+ */
+class ClassKey extends VisitorAdapter {
+	// Mude ao alterar a forma como os nós do llvmast são renderizados ou montados
+	// (2: o LlvmBuilder fecha com 'br' os blocos que caíam no rótulo seguinte;
+	//  3: 'call' sem tipo de função sai com um só espaço antes do nome;
+	//  4: '!' sobre um registrador sai como 'xor i1 v, true')
+	private static final String FORMAT = "4";
+	private static final String COMPILER = FORMAT + ":" + fingerprint();
+
+	private final StringBuilder sb = new StringBuilder(4096);
+	private final Set<String> referenced = new TreeSet<String>();
+
+	private ClassKey(){}
+
+	// 'decl' é a MainClass ou uma ClassDecl de um programa já carregado em 'symTab'
+	static String of(SymTab symTab, Absyn decl, String options){
+		ClassKey k = new ClassKey();
+		k.sb.append(COMPILER).append('\n').append(options).append('\n');
+		decl.accept(k);
+
+		k.sb.append("\nsupers:");
+		String self = Codegen.nameOf(decl);
+		// a SymTab pode ter ligado a classe a um ClassNode provisório da superclasse
+		// (quando ela é declarada depois), então a cadeia é seguida pelos nomes
+		Set<String> seen = new HashSet<String>();
+		ClassNode c = symTab.classes.get(self);
+		while (c != null && c.getSuperClass() != null && seen.add(c.getSuperClass().getNameClass())) {
+			String name = c.getSuperClass().getNameClass();
+			c = symTab.classes.get(name);
+			k.sb.append(name).append('=');
+			k.layout(c);
+		}
+
+		k.sb.append("\nrefs:");
+		for (String name : k.referenced)
+			k.signature(name, symTab.classes.get(name));
+		return hex(sha256(k.sb.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private void layout(ClassNode c){
+		if (c == null) {
+			sb.append("?;");
+			return;
+		}
+		sb.append(c.getClassType());
+		if (c.getVarList() != null)
+			for (LlvmValue v : c.getVarList())
+				sb.append(',').append(v).append(':').append(v.type);
+		sb.append(';');
+	}
+
+	private void signature(String name, ClassNode c){
+		sb.append(name).append('{');
+		if (c != null) {
+			layout(c);
+			if (c.getClassType() != null)
+				sb.append(c.getClassType().sizeByte);
+			Map<Integer, MethodNode> methods = c.getMethodIndex();
+			for (int i = 0; i < c.getMethodCount(); i++) {
+				MethodNode m = methods.get(i);
+				sb.append(' ').append(m.getNameMethod()).append(':').append(m.getMethodType()).append('(');
+				for (LlvmValue f : m.getFormalList())
+					sb.append(f.type).append(',');
+				sb.append(')');
+			}
+		}
+		sb.append('}');
+	}
+
+	private void tag(String t){
+		sb.append('(').append(t);
+	}
+
+	private void close(){
+		sb.append(')');
+	}
+
+	private void name(String s){
+		sb.append(' ').append(s.length()).append(':').append(s);
+	}
+
+	private void typed(Exp e){
+		sb.append(" :").append(e.type);
+	}
+
+	private <T extends Absyn> void list(util.List<T> l){
+		tag("list");
+		for (; l != null; l = l.tail)
+			l.head.accept(this);
+		close();
+	}
+
+	private void binary(String t, Exp n, Exp lhs, Exp rhs){
+		tag(t);
+		typed(n);
+		lhs.accept(this);
+		rhs.accept(this);
+		close();
+	}
+
+	public LlvmValue visit(MainClass n){
+		tag("main");
+		name(n.className.s);
+		name(n.mainArgName.s);
+		n.stm.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(ClassDeclSimple n){
+		tag("class");
+		name(n.name.s);
+		list(n.varList);
+		list(n.methodList);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(ClassDeclExtends n){
+		tag("extends");
+		name(n.name.s);
+		name(n.superClass.s);
+		list(n.varList);
+		list(n.methodList);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(VarDecl n){
+		tag("var");
+		n.type.accept(this);
+		name(n.name.s);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(MethodDecl n){
+		tag("method");
+		n.returnType.accept(this);
+		name(n.name.s);
+		list(n.formals);
+		list(n.locals);
+		list(n.body);
+		n.returnExp.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(Formal n){
+		tag("formal");
+		n.type.accept(this);
+		name(n.name.s);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(IntArrayType n){
+		tag("int[]");
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(BooleanType n){
+		tag("boolean");
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(IntegerType n){
+		tag("int");
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(IdentifierType n){
+		tag("type");
+		name(n.name);
+		referenced.add(n.name);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(Block n){
+		tag("block");
+		list(n.body);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(If n){
+		tag(n.elseClause != null ? "if" : "if-then");
+		n.condition.accept(this);
+		n.thenClause.accept(this);
+		if (n.elseClause != null)
+			n.elseClause.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(While n){
+		tag("while");
+		n.condition.accept(this);
+		n.body.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(Print n){
+		tag("print");
+		n.exp.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(Assign n){
+		tag("assign");
+		n.var.accept(this);
+		n.exp.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(ArrayAssign n){
+		tag("array-assign");
+		n.var.accept(this);
+		n.index.accept(this);
+		n.value.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(And n){
+		binary("&&", n, n.lhs, n.rhs);
+		return null;
+	}
+
+	public LlvmValue visit(LessThan n){
+		binary("<", n, n.lhs, n.rhs);
+		return null;
+	}
+
+	public LlvmValue visit(Equal n){
+		binary("==", n, n.lhs, n.rhs);
+		return null;
+	}
+
+	public LlvmValue visit(Plus n){
+		binary("+", n, n.lhs, n.rhs);
+		return null;
+	}
+
+	public LlvmValue visit(Minus n){
+		binary("-", n, n.lhs, n.rhs);
+		return null;
+	}
+
+	public LlvmValue visit(Times n){
+		binary("*", n, n.lhs, n.rhs);
+		return null;
+	}
+
+	public LlvmValue visit(ArrayLookup n){
+		tag("[]");
+		typed(n);
+		n.array.accept(this);
+		n.index.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(ArrayLength n){
+		tag("length");
+		typed(n);
+		n.array.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(Call n){
+		tag("call");
+		typed(n);
+		// o Codegen decide se o objeto é o %this pelo texto da expressão
+		name(n.object.toString());
+		n.object.accept(this);
+		typed(n.object);
+		referenced.add(String.valueOf(n.object.type));
+		name(n.method.s);
+		list(n.actuals);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(IntegerLiteral n){
+		tag("literal");
+		sb.append(' ').append(n.value);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(True n){
+		tag("true");
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(False n){
+		tag("false");
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(This n){
+		tag("this");
+		typed(n);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(NewArray n){
+		tag("new[]");
+		typed(n);
+		n.size.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(NewObject n){
+		tag("new");
+		typed(n);
+		name(n.className.s);
+		referenced.add(n.className.s);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(Not n){
+		tag("!");
+		typed(n);
+		n.exp.accept(this);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(IdentifierExp n){
+		tag("id");
+		typed(n);
+		name(n.name.s);
+		close();
+		return null;
+	}
+
+	public LlvmValue visit(Identifier n){
+		tag("ident");
+		name(n.s);
+		close();
+		return null;
+	}
+
+	// Digest do Codegen.class em uso (vazio se não der para lê-lo)
+	private static String fingerprint(){
+		InputStream in = Codegen.class.getResourceAsStream("Codegen.class");
+		if (in == null)
+			return "";
+		try {
+			try {
+				return hex(sha256(in.readAllBytes()));
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return "";
+		}
+	}
+
+	private static byte[] sha256(byte[] data){
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(data);
+		} catch (NoSuchAlgorithmException e) {
+			// toda JVM tem SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] b){
+		StringBuilder sb = new StringBuilder(b.length * 2);
+		for (byte x : b)
+			sb.append(Character.forDigit((x >> 4) & 0xf, 16)).append(Character.forDigit(x & 0xf, 16));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,98 @@
+package llvm;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import llvmast.LlvmRegister;
+import llvmast.LlvmStructure;
+import llvmast.LlvmType;
+import llvmast.LlvmValue;
+
+class ClassNode extends LlvmType {
+	
+	private String nameClass;
+	private LlvmStructure classType;
+	private List<LlvmValue> varList;
+	private int methodCount;
+	private Map<Integer, MethodNode> methodIndex;	// Usage: give method #, get method's node
+	private ClassNode superClass;
+	private Map<String, VarSlot> fieldSlots;	// Usage: give field name, get its slot
+	
+	public ClassNode (String nameClass, LlvmStructure classType, List<LlvmValue> varList){
+		this.setNameClass(nameClass);
+		this.setClassType(classType);
+		this.setVarList(varList);
+		this.setMethodCount(0);
+		this.setMethodIndex(new HashMap<Integer, MethodNode>());
+	}
+
+	public String getNameClass() {
+		return nameClass;
+	}
+
+	public void setNameClass(String nameClass) {
+		this.nameClass = nameClass;
+	}
+
+	public LlvmStructure getClassType() {
+		return classType;
+	}
+
+	public void setClassType(LlvmStructure classType) {
+		this.classType = classType;
+	}
+
+	public List<LlvmValue> getVarList() {
+		return varList;
+	}
+
+	public void setVarList(List<LlvmValue> varList) {
+		this.varList = varList;
+		
+		// índice dos atributos; a posição 0 da struct é a tabela de métodos
+		this.fieldSlots = new HashMap<String, VarSlot>();
+		if (varList != null) {
+			int i = 1;
+			for (LlvmValue lv : varList) {
+				LlvmRegister lr = (LlvmRegister) lv;
+				String name = lr.name.substring(1);
+				fieldSlots.put(name, new VarSlot(VarSlot.FIELD, i++, lr.type, lr.name));
+			}
+		}
+	}
+
+	public Map<String, VarSlot> getFieldSlots() {
+		return fieldSlots;
+	}
+
+	public int getMethodCount() {
+		return methodCount;
+	}
+
+	public void setMethodCount(int methodCount) {
+		this.methodCount = methodCount;
+	}
+
+	public Map<Integer, MethodNode> getMethodIndex() {
+		return methodIndex;
+	}
+
+	public void setMethodIndex(Map<Integer, MethodNode> methodIndex) {
+		this.methodIndex = methodIndex;
+	}
+
+	public ClassNode getSuperClass() {
+		return superClass;
+	}
+
+	public void setSuperClass(ClassNode superClass) {
+		this.superClass = superClass;
+	}
+	
+	public void appendTo(Appendable out) throws IOException {
+		out.append("%class.").append(this.nameClass);
+	}
+	
+}
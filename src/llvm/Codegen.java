@@ -35,17 +35,29 @@ como guia no desenvolvimento deste projeto.
 ****************************************************/
 package llvm;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import llvmast.LlvmAlloca;
 import llvmast.LlvmArray;
 import llvmast.LlvmBitcast;
 import llvmast.LlvmBool;
 import llvmast.LlvmBranch;
+import llvmast.LlvmBuilder;
 import llvmast.LlvmCall;
 import llvmast.LlvmCloseDefinition;
 import llvmast.LlvmConstantDeclaration;
@@ -60,18 +72,21 @@ import llvmast.LlvmLabelValue;
 import llvmast.LlvmLoad;
 import llvmast.LlvmMalloc;
 import llvmast.LlvmMinus;
+import llvmast.LlvmModule;
 import llvmast.LlvmNamedValue;
 import llvmast.LlvmPlus;
 import llvmast.LlvmPointer;
 import llvmast.LlvmPrimitiveType;
 import llvmast.LlvmRegister;
+import llvmast.LlvmRegisterCounter;
 import llvmast.LlvmRet;
 import llvmast.LlvmStore;
-import llvmast.LlvmStructure;
 import llvmast.LlvmTimes;
 import llvmast.LlvmType;
 import llvmast.LlvmValue;
+import llvmast.LlvmXor;
 import semant.Env;
+import syntaxtree.Absyn;
 import syntaxtree.And;
 import syntaxtree.ArrayAssign;
 import syntaxtree.ArrayLength;
@@ -84,6 +99,7 @@ import syntaxtree.ClassDecl;
 import syntaxtree.ClassDeclExtends;
 import syntaxtree.ClassDeclSimple;
 import syntaxtree.Equal;
+import syntaxtree.Exp;
 import syntaxtree.False;
 import syntaxtree.Formal;
 import syntaxtree.Identifier;
@@ -112,54 +128,456 @@ import syntaxtree.VisitorAdapter;
 import syntaxtree.While;
 
 public class Codegen extends VisitorAdapter{
-	private List<LlvmInstruction> assembler;
+	private LlvmBuilder assembler;	// monta as funções e os blocos básicos à medida que emite
 	private Codegen codeGenerator;
 
   	private SymTab symTab = new SymTab();
 	private ClassNode classEnv; 	// Aponta para a classe atualmente em uso em symTab
 	private MethodNode methodEnv; 	// Aponta para a metodo atualmente em uso em symTab
 	
+	// Numeração de registradores e rótulos: recomeça a cada função (ver beginFunction)
+	private LlvmRegisterCounter regs;
 	private int ifCount;
 	private int whileCount;
 	private int entryCount;
 
+	// Valores devolvidos pelos visit dos tipos primitivos (aqui e na SymTab): só o
+	// campo 'type' interessa, então uma instância de cada basta
+	static final LlvmValue INT_ARRAY_TYPE = new LlvmNamedValue("i32 *", LlvmPointer.of(LlvmPrimitiveType.I32));
+	static final LlvmValue BOOLEAN_TYPE = new LlvmNamedValue("i1", LlvmPrimitiveType.I1);
+	static final LlvmValue INTEGER_TYPE = new LlvmNamedValue("i32", LlvmPrimitiveType.I32);
+
+	// Pool para a geração paralela por classe; null = sequencial (ver setParallel)
+	private ForkJoinPool pool;
+	
+	// IR de classes já geradas, por ClassKey; null = sem cache (ver setCache)
+	private ClassCache cache;
+	
+	// Totais do modo -stats; null = desligado (ver setStats). Os eventos do JFR
+	// (CompileEvents) são emitidos de qualquer forma, se houver gravação.
+	private CompileStats stats;
+	
+	// Instruções já renderizadas no módulo, contando as tarefas da geração paralela
+	private AtomicLong emitted = new AtomicLong();
+	
+	// Observações de otimização; null = desligado (ver setRemarks)
+	private Remarks remarks;
+	private String function;		// função do IR em geração, para as observações
+	private int loopDepth;			// quantos while envolvem o nó atual
+	private Map<String, List<String>> overriders;	// "Classe.método" -> subclasses que o redefinem
+	
+	// Metadados de depuração (!dbg); null = desligado (ver setDebugInfo)
+	private DebugInfo debug;
+	private int scope;				// DISubprogram da função em renderização
+	
+	// Promoção dos locais para registradores antes da renderização (ver setMem2Reg)
+	private boolean mem2reg;
+	// Coloração dos slots da pilha, com os marcadores de lifetime (ver setStackColoring)
+	private boolean stackColoring;
+
 
 	public Codegen(){
-		assembler = new LinkedList<LlvmInstruction>();
+		assembler = new LlvmBuilder();
 		ifCount = 0;
 		whileCount = 0;
 		entryCount = 0;
+		if (Boolean.getBoolean("codegen.parallel"))
+			pool = ForkJoinPool.commonPool();
+		cache = ClassCache.shared();
+		if (Boolean.getBoolean("codegen.stats"))
+			stats = new CompileStats();
+		if (System.getProperty("codegen.remarks") != null)
+			remarks = new Remarks(null);
+		if (System.getProperty("codegen.debug") != null)
+			debug = new DebugInfo(System.getProperty("codegen.debug"));
+		mem2reg = Boolean.getBoolean("codegen.mem2reg");
+		stackColoring = Boolean.getBoolean("codegen.stackcoloring");
+	}
+
+	// Codegen de uma única classe na geração paralela: compartilha com 'parent' a
+	// tabela de símbolos (somente leitura depois do FillTabSymbol), o cache, as
+	// estatísticas e a contagem de instruções
+	private Codegen(Codegen parent){
+		this();
+		this.symTab = parent.symTab;
+		this.cache = parent.cache;
+		this.stats = parent.stats;
+		this.emitted = parent.emitted;
+		this.remarks = parent.remarks;
+		this.overriders = parent.overriders;
+		this.mem2reg = parent.mem2reg;
+		this.stackColoring = parent.stackColoring;
+	}
+
+	// Liga a geração paralela (cada classe numa tarefa de 'pool') ou, com null, volta
+	// à sequencial. O main.Main do jar só chama translate, então a geração paralela
+	// também pode ser ligada com -Dcodegen.parallel=true (usa o ForkJoinPool comum).
+	public void setParallel(ForkJoinPool pool){
+		this.pool = pool;
+	}
+
+	// Liga o cache de IR por classe: classes cuja chave já está no cache são copiadas
+	// dele sem passar pelo Codegen. Com null, desliga. Pelo main.Main do jar, use
+	// -Dcodegen.cache=<diretório> (ver ClassCache.shared).
+	public void setCache(ClassCache cache){
+		this.cache = cache;
+	}
+
+	// Acumula em 'stats' o tempo, a alocação e as instruções da SymTab, de cada classe,
+	// de cada método e da renderização (o BatchMain -stats soma nele também o parse e
+	// o TypeChecker). Pelo main.Main do jar, -Dcodegen.stats=true imprime os totais de
+	// cada translate na saída de erro.
+	public void setStats(CompileStats stats){
+		this.stats = stats;
+	}
+
+	// Registra em 'remarks' o que o Codegen decidiu em cada chamada, acesso a vetor e
+	// alocação. Enquanto ligado, o cache de IR não é consultado (as observações saem
+	// da geração). Pelo main.Main do jar, -Dcodegen.remarks=<arquivo> grava as de cada
+	// translate em YAML (ou JSONL, se o nome terminar em .jsonl).
+	public void setRemarks(Remarks remarks){
+		this.remarks = remarks;
+	}
+
+	// Emite os metadados de depuração em 'debug': um DISubprogram por função e um !dbg
+	// com a linha e a coluna do comando do fonte em cada instrução. Os nós são
+	// numerados na ordem de renderização, então com a depuração ligada a geração é
+	// sequencial e o cache de IR não é consultado. Pelo main.Main do jar, use
+	// -Dcodegen.debug=<fonte> (o nome que vai no DIFile).
+	public void setDebugInfo(DebugInfo debug){
+		this.debug = debug;
+	}
+
+	// Passa o Mem2Reg em cada função antes de renderizá-la: os locais e os parâmetros
+	// viram registradores SSA (com phis) em vez de alloca/load/store. Com as
+	// observações ligadas, cada função promovida rende uma. Pelo main.Main do jar,
+	// use -Dcodegen.mem2reg=true.
+	public void setMem2Reg(boolean mem2reg){
+		this.mem2reg = mem2reg;
+	}
+
+	// Passa o StackColoring em cada função antes de renderizá-la: allocas do mesmo tipo
+	// que nunca estão vivos ao mesmo tempo dividem um slot, e cada variável ganha
+	// llvm.lifetime.start/end. Depois do Mem2Reg não sobra alloca para ele. Pelo
+	// main.Main do jar, use -Dcodegen.stackcoloring=true.
+	public void setStackColoring(boolean stackColoring){
+		this.stackColoring = stackColoring;
 	}
 
 	// Método de entrada do Codegen
-	public String translate(Program p, Env env){	
-		codeGenerator = new Codegen();
+	// Mantido por compatibilidade: gera todo o módulo em memória e o devolve como String
+	public String translate(Program p, Env env){
+		StringWriter out = new StringWriter();
+		try {
+			translate(p, env, out);
+		} catch (IOException e) {
+			// StringWriter nunca lança IOException
+			throw new IllegalStateException(e);
+		}
+		return out.toString();
+	}
+
+	// Versão em streaming do translate: as instruções de cada classe são escritas em 'out'
+	// (e o 'out' recebe flush) assim que a classe termina de ser gerada, sem montar o
+	// módulo inteiro em memória. Para escrever num canal, use Channels.newWriter(canal, "UTF-8").
+	// Cabe a quem chama fornecer um Writer com buffer (ex.: BufferedWriter) e fechá-lo.
+	public void translate(Program p, Env env, Writer out) throws IOException {
+		Span span = Span.phase(stats, Span.TRANSLATE, null);
+		codeGenerator = begin(p);
+		// o cabeçalho sai antes: o IR de cada classe (e o que vai para o cache) é só dela
+		codeGenerator.flushTo(out);
+
+		if (pool != null && debug == null) {
+			codeGenerator.translateParallel(p, out, pool);
+		} else {
+			// NOTA: sempre que X.accept(Y), então Y.visit(X);
+			// NOTA: o laço abaixo faz o mesmo que codeGenerator.visit(Program), mas esvazia
+			// o assembler em 'out' ao final de cada classe
+			codeGenerator.emitClass(p.mainClass, out);
+			for (util.List<ClassDecl> c = p.classList; c != null; c = c.tail)
+				codeGenerator.emitClass(c.head, out);
+		}
+
+		codeGenerator.end();
+		codeGenerator.flushTo(out);
+		if (debug != null) {
+			debug.appendTo(out);
+			out.flush();
+		}
+		span.end(codeGenerator.emitted.get());
+		if (stats != null && Boolean.getBoolean("codegen.stats"))
+			stats.print(System.err);
+		if (remarks != null && System.getProperty("codegen.remarks") != null)
+			remarks.write(System.getProperty("codegen.remarks"));
+	}
+
+	// Cada classe (inclusive a main) é gerada e renderizada numa tarefa própria.
+	// Os textos são escritos em 'out' na ordem de declaração assim que ficam prontos,
+	// então a saída é idêntica à da geração sequencial.
+	private void translateParallel(Program p, Writer out, ForkJoinPool pool) throws IOException {
+		List<ForkJoinTask<String>> tasks = new ArrayList<ForkJoinTask<String>>();
+		tasks.add(pool.submit(new ClassTask(this, p.mainClass)));
+		for (util.List<ClassDecl> c = p.classList; c != null; c = c.tail)
+			tasks.add(pool.submit(new ClassTask(this, c.head)));
+
+		int written = 0;
+		try {
+			for (ForkJoinTask<String> task : tasks) {
+				out.write(task.join());
+				out.flush();
+				written++;
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			// se a escrita falhar, não deixa as classes restantes rodando à toa
+			for (int i = written; i < tasks.size(); i++)
+				tasks.get(i).cancel(false);
+		}
+	}
+
+	private static class ClassTask extends RecursiveTask<String> {
+		private static final long serialVersionUID = 1L;
+		private final Codegen parent;
+		private final Absyn decl;	// MainClass ou ClassDecl
+
+		ClassTask(Codegen parent, Absyn decl){
+			this.parent = parent;
+			this.decl = decl;
+		}
+
+		protected String compute(){
+			Codegen worker = new Codegen(parent);
+			try {
+				return worker.classText(decl);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	// Gera uma classe (ou a copia do cache) e a escreve em 'out'
+	private void emitClass(Absyn decl, Writer out) throws IOException {
+		if (cache == null || remarks != null || debug != null) {
+			Span span = Span.ofClass(stats, nameOf(decl));
+			decl.accept(this);
+			span.end(assembler.emitted());
+			flushTo(out);
+		} else {
+			out.write(classText(decl));
+			out.flush();
+		}
+	}
+
+	// IR renderizado de uma classe; vem do cache quando a ClassKey dela já está lá
+	private String classText(Absyn decl) throws IOException {
+		Span span = Span.ofClass(stats, nameOf(decl));
+		String key = null;
+		if (cache != null && remarks == null && debug == null) {
+			key = ClassKey.of(symTab, decl, (mem2reg ? "mem2reg " : "") + (stackColoring ? "stackcoloring" : ""));
+			String ir = cache.get(key);
+			if (ir != null) {
+				span.cached = true;
+				span.end(0);
+				return ir;
+			}
+		}
+		decl.accept(this);
+		span.end(assembler.emitted());
+		StringWriter buf = new StringWriter();
+		flushTo(buf);
+		if (key != null)
+			cache.put(key, buf.toString());
+		return buf.toString();
+	}
+
+	// Nome da classe declarada por uma MainClass ou ClassDecl
+	static String nameOf(Absyn decl){
+		if (decl instanceof MainClass)
+			return ((MainClass) decl).className.s;
+		return ((ClassDecl) decl).name.s;
+	}
+
+	// Gera o módulo inteiro e devolve as instruções sem renderizá-las
+	// (usado por quem precisa inspecionar o IR, como os benchmarks em 'bench')
+	public List<LlvmInstruction> generate(Program p, Env env){
+		codeGenerator = begin(p);
+		p.accept(codeGenerator);
+		codeGenerator.end();
+		codeGenerator.optimize();
+		return codeGenerator.assembler;
+	}
+
+	// Gera o módulo inteiro na forma estruturada (funções, blocos e arestas do CFG),
+	// que é onde os passos de otimização trabalham
+	public LlvmModule generateModule(Program p, Env env){
+		generate(p, env);
+		return codeGenerator.assembler.getModule();
+	}
+
+	// Só preenche a tabela de símbolos e devolve o número de classes
+	// (para medir o FillTabSymbol isoladamente, como faz o bench.CompilerBench)
+	public static int fillTabSymbol(Program p){
+		SymTab symTab = new SymTab();
+		symTab.FillTabSymbol(p);
+		return symTab.classes.size();
+	}
+
+	// Cria o gerador (com o cache e as estatísticas deste), preenche a tabela de
+	// símbolos e emite o cabeçalho do módulo
+	private Codegen begin(Program p){
+		Codegen codeGenerator = new Codegen();
+		codeGenerator.cache = cache;
+		codeGenerator.stats = stats;
+		codeGenerator.remarks = remarks;
+		codeGenerator.debug = debug;
+		codeGenerator.mem2reg = mem2reg;
+		codeGenerator.stackColoring = stackColoring;
 		
 		// Preenchendo a Tabela de Símbolos
 		// Quem quiser usar 'env', apenas comente essa linha
+		Span span = Span.phase(stats, Span.SYMTAB, null);
 		codeGenerator.symTab.FillTabSymbol(p);
+		span.end(0);
+		if (remarks != null)
+			codeGenerator.overriders = codeGenerator.overriders();
 		
 		// Formato da String para o System.out.printlnijava "%d\n"
 		codeGenerator.assembler.add(new LlvmConstantDeclaration("@.formatting.string", "private constant [4 x i8] c\"%d\\0A\\00\""));	
+		return codeGenerator;
+	}
 
-		// NOTA: sempre que X.accept(Y), então Y.visit(X);
-		// NOTA: Logo, o comando abaixo irá chamar codeGenerator.visit(Program), linha 75
-		p.accept(codeGenerator);
-
-		// Links do printf e do malloc
+	// Links do printf e do malloc
+	private void end(){
 		List<LlvmType> pts = new LinkedList<LlvmType>();
-		pts.add(new LlvmPointer(LlvmPrimitiveType.I8));
+		pts.add(LlvmPointer.of(LlvmPrimitiveType.I8));
 		pts.add(LlvmPrimitiveType.DOTDOTDOT);
-		codeGenerator.assembler.add(new LlvmExternalDeclaration("@printf", LlvmPrimitiveType.I32, pts)); 
+		assembler.add(new LlvmExternalDeclaration("@printf", LlvmPrimitiveType.I32, pts)); 
 		List<LlvmType> mallocpts = new LinkedList<LlvmType>();
 		mallocpts.add(LlvmPrimitiveType.I32);
-		codeGenerator.assembler.add(new LlvmExternalDeclaration("@malloc", new LlvmPointer(LlvmPrimitiveType.I8),mallocpts)); 
+		assembler.add(new LlvmExternalDeclaration("@malloc", LlvmPointer.of(LlvmPrimitiveType.I8),mallocpts)); 
+		if (stackColoring)
+			for (LlvmInstruction d : StackColoring.declarations())
+				assembler.add(d);
+	}
 
+	// Chamado antes de cada 'define': os nomes de %tmpN e dos rótulos são locais à
+	// função, então o mesmo fonte sempre gera o mesmo IR, independente do que já
+	// foi compilado antes ou em paralelo
+	private void beginFunction(){
+		regs = new LlvmRegisterCounter();
+		ifCount = 0;
+		whileCount = 0;
+		entryCount = 0;
+	}
+
+	// Observação na posição de 'at', na função em geração; "em laço" quando dentro de um while
+	private void remark(String kind, String pass, String name, Absyn at, String message){
+		remarks.add(kind, pass, name, function, at, loopDepth > 0 ? message + " in while loop" : message);
+	}
+
+	// A chamada vai direto para o método do tipo estático do objeto; isso só é uma
+	// desvirtualização correta se nenhuma subclasse o redefine
+	private void remarkCall(Call n){
+		String owner = n.object.type.toString();
+		List<String> subs = overriders.get(owner + "." + n.method.s);
+		if (subs == null)
+			remark(Remarks.PASSED, "devirt", "StaticCall", n,
+					"call to " + owner + "." + n.method.s + " devirtualized: no subclass overrides it");
+		else
+			remark(Remarks.ANALYSIS, "devirt", "StaticCallOverridden", n,
+					"call to " + owner + "." + n.method.s + " bound statically, but it is overridden in " + subs);
+	}
+
+	// "Classe.método" -> subclasses (diretas ou não) que redefinem o método
+	private Map<String, List<String>> overriders(){
+		Map<String, List<String>> m = new HashMap<String, List<String>>();
+		List<String> names = new ArrayList<String>(symTab.classes.keySet());
+		Collections.sort(names);
+		for (String sub : names) {
+			Set<String> seen = new HashSet<String>();
+			ClassNode c = symTab.classes.get(sub);
+			// pelos nomes, como na ClassKey: o ClassNode da superclasse pode ser provisório
+			while (c != null && c.getSuperClass() != null && seen.add(c.getSuperClass().getNameClass())) {
+				String sup = c.getSuperClass().getNameClass();
+				c = symTab.classes.get(sup);
+				if (c == null)
+					break;
+				for (MethodNode mn : c.getMethodIndex().values()) {
+					String method = mn.getNameMethod().substring(3, mn.getNameMethod().length() - sup.length() - 1);
+					if (symTab.methods.containsKey("@__" + method + "_" + sub)) {
+						String key = sup + "." + method;
+						if (!m.containsKey(key))
+							m.put(key, new ArrayList<String>());
+						m.get(key).add(sub);
+					}
+				}
+			}
+		}
+		return m;
+	}
 
-		String r = new String();
-		for(LlvmInstruction instr : codeGenerator.assembler)
-			r += instr+"\n";
-		return r;
+	// Comando 's' do fonte: as instruções que ele gerou e que ainda não têm posição
+	// (as dos comandos internos já têm a deles) ficam com a linha e a coluna de 's'
+	private void statement(Absyn s){
+		if (debug == null) {
+			s.accept(this);
+			return;
+		}
+		LlvmBuilder.Mark first = assembler.mark();
+		s.accept(this);
+		locate(first, s);
+	}
+
+	// Dá a posição de 'at' às instruções sem posição emitidas depois de 'first'
+	private void locate(LlvmBuilder.Mark first, Absyn at){
+		if (debug == null)
+			return;
+		for (LlvmInstruction instr : assembler.since(first)) {
+			if (instr.line == 0) {
+				instr.line = at.line;
+				instr.column = at.row;
+			}
+		}
+	}
+
+	// Passos sobre as funções já fechadas no assembler, antes de renderizá-las
+	private void optimize(){
+		if (mem2reg)
+			Mem2Reg.run(assembler.getModule().functions, remarks);
+		if (stackColoring)
+			StackColoring.run(assembler.getModule().functions, true, remarks);
+	}
+
+	// Escreve as instruções pendentes em 'out' e esvazia o assembler
+	private void flushTo(Writer out) throws IOException {
+		optimize();
+		Span span = Span.phase(stats, Span.RENDER, null);
+		int rendered = 0;
+		for(LlvmInstruction instr : assembler){
+			instr.appendTo(out);
+			if (debug != null)
+				appendDbg(instr, out);
+			out.write('\n');
+			rendered++;
+		}
+		span.end(rendered);
+		emitted.addAndGet(rendered);
+		assembler.clear();
+		out.flush();
+	}
+
+	// ", !dbg !N" de uma instrução com posição, dentro de uma função
+	private void appendDbg(LlvmInstruction instr, Writer out) throws IOException {
+		if (instr instanceof LlvmDefine) {
+			scope = debug.subprogram((LlvmDefine) instr);
+		} else if (instr instanceof LlvmCloseDefinition) {
+			scope = 0;
+		} else if (scope != 0 && instr.line > 0 && !(instr instanceof LlvmLabel)) {
+			// no LlvmMalloc, que ocupa várias linhas, o !dbg fica só na última
+			out.write(", !dbg !");
+			out.write(String.valueOf(debug.location(instr.line, instr.column, scope)));
+		}
 	}
 
 	public LlvmValue visit(Program n){
@@ -179,21 +597,27 @@ public class Codegen extends VisitorAdapter{
 				"type "+aux.getClassType().toString()));
 		
 		// definicao do main 
+		Span span = Span.ofMethod(stats, n.className.s, "main");
+		LlvmBuilder.Mark first = assembler.mark();
+		beginFunction();
+		function = "@main";
 		assembler.add(new LlvmDefine("@main", LlvmPrimitiveType.I32, new LinkedList<LlvmValue>()));
 		assembler.add(new LlvmLabel(new LlvmLabelValue("entry")));
-		LlvmRegister R1 = new LlvmRegister(new LlvmPointer(LlvmPrimitiveType.I32));
+		LlvmRegister R1 = new LlvmRegister(regs, LlvmPointer.of(LlvmPrimitiveType.I32));
 		assembler.add(new LlvmAlloca(R1, LlvmPrimitiveType.I32, new LinkedList<LlvmValue>()));
-		assembler.add(new LlvmStore(new LlvmIntegerLiteral(0), R1));
+		assembler.add(new LlvmStore(LlvmIntegerLiteral.of(0), R1));
 
 		// Statement é uma classe abstrata
 		// Portanto, o accept chamado é da classe que implementa Statement, por exemplo,  a classe "Print". 
-		n.stm.accept(this);  
+		statement(n.stm);  
 
 		// Final do Main
-		LlvmRegister R2 = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister R2 = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmLoad(R2,R1));
 		assembler.add(new LlvmRet(R2));
 		assembler.add(new LlvmCloseDefinition());
+		locate(first, n);
+		span.end(assembler.emittedSince(first));
 		return null;
 	}
 	
@@ -201,7 +625,7 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmValue v1 = n.lhs.accept(this);
 		LlvmValue v2 = n.rhs.accept(this);
-		LlvmRegister lhs = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmPlus(lhs,LlvmPrimitiveType.I32,v1,v2));
 		return lhs;
 	}
@@ -211,24 +635,24 @@ public class Codegen extends VisitorAdapter{
 		LlvmValue v =  n.exp.accept(this);
 
 		// getelementptr:
-		LlvmRegister lhs = new LlvmRegister(new LlvmPointer(LlvmPrimitiveType.I8));
-		LlvmRegister src = new LlvmNamedValue("@.formatting.string",new LlvmPointer(new LlvmArray(4,LlvmPrimitiveType.I8)));
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPointer.of(LlvmPrimitiveType.I8));
+		LlvmRegister src = new LlvmNamedValue("@.formatting.string",LlvmPointer.of(LlvmArray.of(4,LlvmPrimitiveType.I8)));
 		List<LlvmValue> offsets = new LinkedList<LlvmValue>();
-		offsets.add(new LlvmIntegerLiteral(0));
-		offsets.add(new LlvmIntegerLiteral(0));
+		offsets.add(LlvmIntegerLiteral.of(0));
+		offsets.add(LlvmIntegerLiteral.of(0));
 		List<LlvmType> pts = new LinkedList<LlvmType>();
-		pts.add(new LlvmPointer(LlvmPrimitiveType.I8));
+		pts.add(LlvmPointer.of(LlvmPrimitiveType.I8));
 		List<LlvmValue> args = new LinkedList<LlvmValue>();
 		args.add(lhs);
 		args.add(v);
 		assembler.add(new LlvmGetElementPointer(lhs,src,offsets));
 
 		pts = new LinkedList<LlvmType>();
-		pts.add(new LlvmPointer(LlvmPrimitiveType.I8));
+		pts.add(LlvmPointer.of(LlvmPrimitiveType.I8));
 		pts.add(LlvmPrimitiveType.DOTDOTDOT);
 		
 		// printf:
-		assembler.add(new LlvmCall(new LlvmRegister(LlvmPrimitiveType.I32),
+		assembler.add(new LlvmCall(new LlvmRegister(regs, LlvmPrimitiveType.I32),
 				LlvmPrimitiveType.I32,
 				pts,				 
 				"@printf",
@@ -238,7 +662,7 @@ public class Codegen extends VisitorAdapter{
 	}
 	
 	public LlvmValue visit(IntegerLiteral n){
-		return new LlvmIntegerLiteral(n.value);
+		return LlvmIntegerLiteral.of(n.value);
 	}
 	
 	// Todos os visit's que devem ser implementados	
@@ -260,6 +684,8 @@ public class Codegen extends VisitorAdapter{
 		MethodNode constructor = symTab.methods.get(
 				"@__"+n.name.s+"Constructor"+"_"+n.name.s);
 		// Generate constructor code
+		LlvmBuilder.Mark first = assembler.mark();
+		beginFunction();
 		assembler.add(new LlvmDefine(
 				constructor.getNameMethod(),
 				constructor.getMethodType(),
@@ -267,6 +693,7 @@ public class Codegen extends VisitorAdapter{
 		assembler.add(new LlvmLabel(new LlvmLabelValue("entry"+entryCount++)));
 		assembler.add(new LlvmRet(new LlvmRegister("%this", constructor.getMethodType())));
 		assembler.add(new LlvmCloseDefinition());
+		locate(first, n);
 		
 		return null;
 	}
@@ -290,6 +717,8 @@ public class Codegen extends VisitorAdapter{
 		MethodNode constructor = symTab.methods.get(
 				"@__"+n.name.s+"Constructor"+"_"+n.name.s);
 		// Generate constructor code
+		LlvmBuilder.Mark first = assembler.mark();
+		beginFunction();
 		assembler.add(new LlvmDefine(
 				constructor.getNameMethod(),
 				constructor.getMethodType(),
@@ -299,22 +728,24 @@ public class Codegen extends VisitorAdapter{
 		
 		// TODO complete specific superclass modifications here
 		/*
-		LlvmRegister superPointer = new LlvmRegister(new LlvmPointer(superClass));
-		LlvmRegister thisPointer = new LlvmRegister("%this", new LlvmPointer(classNode));
+		LlvmRegister superPointer = new LlvmRegister(regs, LlvmPointer.of(superClass));
+		LlvmRegister thisPointer = new LlvmRegister("%this", LlvmPointer.of(classNode));
 		assembler.add(new LlvmBitcast(superPointer, thisPointer, superPointer.type));
 		*/
 		
 		assembler.add(new LlvmRet(new LlvmRegister("%this", constructor.getMethodType())));
 		assembler.add(new LlvmCloseDefinition());
+		locate(first, n);
 		return null;
 	}
 	
 	public LlvmValue visit(VarDecl n){
 		
+		LlvmType type = n.type.accept(this).type;
 		LlvmRegister ret = new LlvmRegister(
 				"%"+n.name.s, 
-				new LlvmPointer(n.type.accept(this).type));
-		assembler.add(new LlvmAlloca(ret, n.type.accept(this).type, new ArrayList<LlvmValue>()));
+				LlvmPointer.of(type));
+		assembler.add(new LlvmAlloca(ret, type, new ArrayList<LlvmValue>()));
 		return ret;
 	}
 	
@@ -324,8 +755,12 @@ public class Codegen extends VisitorAdapter{
 				"@__"+n.name.s+"_"+classEnv.getNameClass());
 		
 		methodEnv = methodNode;
+		Span span = Span.ofMethod(stats, classEnv.getNameClass(), n.name.s);
+		LlvmBuilder.Mark first = assembler.mark();
 		
 		// Add method's definition
+		beginFunction();
+		function = methodNode.getNameMethod();
 		assembler.add(new LlvmDefine(
 				methodNode.getNameMethod(),
 				methodNode.getMethodType(),
@@ -345,33 +780,38 @@ public class Codegen extends VisitorAdapter{
 		
 		// Generate method's body and return
 		for (util.List<Statement> i = n.body; i != null; i = i.tail) {
-			i.head.accept(this);
+			statement(i.head);
 		}
+		LlvmBuilder.Mark ret = assembler.mark();
 		assembler.add(new LlvmRet(n.returnExp.accept(this)));
+		locate(ret, n.returnExp);
 		
 		// Close method's definition
 		assembler.add(new LlvmCloseDefinition());
+		locate(first, n);
+		span.end(assembler.emittedSince(first));
 		return null;
 	}
 	
 	public LlvmValue visit(Formal n){
-		LlvmRegister ret = new LlvmRegister("%"+n.name.s+"_tmp", new LlvmPointer(n.type.accept(this).type));
-		assembler.add(new LlvmAlloca(ret, n.type.accept(this).type, new ArrayList<LlvmValue>()));
-		LlvmRegister content = new LlvmRegister("%"+n.name.s, n.type.accept(this).type);
+		LlvmType type = n.type.accept(this).type;
+		LlvmRegister ret = new LlvmRegister("%"+n.name.s+"_tmp", LlvmPointer.of(type));
+		assembler.add(new LlvmAlloca(ret, type, new ArrayList<LlvmValue>()));
+		LlvmRegister content = new LlvmRegister("%"+n.name.s, type);
 		assembler.add(new LlvmStore(content, ret));
 		return ret;
 	}
 	
 	public LlvmValue visit(IntArrayType n){
-		return new LlvmNamedValue("i32 *", new LlvmPointer(LlvmPrimitiveType.I32));
+		return INT_ARRAY_TYPE;
 	}
 	
 	public LlvmValue visit(BooleanType n){
-		return new LlvmNamedValue("i1", LlvmPrimitiveType.I1);
+		return BOOLEAN_TYPE;
 	}
 	
 	public LlvmValue visit(IntegerType n){
-		return new LlvmNamedValue("i32", LlvmPrimitiveType.I32);
+		return INTEGER_TYPE;
 	}
 	
 	public LlvmValue visit(IdentifierType n){
@@ -380,12 +820,10 @@ public class Codegen extends VisitorAdapter{
 	
 	public LlvmValue visit(Block n){
 		
-		int i, j;
-		j = n.body.size();
-		for(i = 0; i < j; i++){
-			n.body.head.accept(this);
-			n.body = n.body.tail;
-		}		
+		// percorre a lista sem alterá-la: a AST pode ser traduzida mais de uma vez
+		for (util.List<Statement> s = n.body; s != null; s = s.tail) {
+			statement(s.head);
+		}
 		return null;
 		
 	}
@@ -405,13 +843,13 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmLabel ifThen = new LlvmLabel(ifThenLabel);
 		assembler.add(ifThen);
-		n.thenClause.accept(this);
+		statement(n.thenClause);
 		assembler.add(new LlvmBranch(ifEndLabel));
 		
 		LlvmLabel ifElse = new LlvmLabel(ifElseLabel);
 		assembler.add(ifElse);
 		if (n.elseClause != null) {
-			n.elseClause.accept(this);
+			statement(n.elseClause);
 		}
 		assembler.add(new LlvmBranch(ifEndLabel));
 		
@@ -431,7 +869,9 @@ public class Codegen extends VisitorAdapter{
 		LlvmLabel whileCond = new LlvmLabel(whileCondLabel);
 		assembler.add(whileCond);
 		
+		loopDepth++;
 		LlvmValue cond = n.condition.accept(this);
+		loopDepth--;
 		assembler.add(new LlvmBranch(cond,
 					whileBodyLabel,
 					whileEndLabel)
@@ -439,7 +879,9 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmLabel whileBody = new LlvmLabel(whileBodyLabel);
 		assembler.add(whileBody);
-		n.body.accept(this);
+		loopDepth++;
+		statement(n.body);
+		loopDepth--;
 		assembler.add(new LlvmBranch(whileCondLabel));
 		
 		LlvmLabel whileEnd = new LlvmLabel(whileEndLabel);
@@ -453,7 +895,7 @@ public class Codegen extends VisitorAdapter{
 		LlvmValue var = n.var.accept(this);
 		LlvmValue exp = n.exp.accept(this);
 		if (var == null) {
-			LlvmRegister address = new LlvmRegister("%"+n.var.s, new LlvmPointer(exp.type));
+			LlvmRegister address = new LlvmRegister("%"+n.var.s, LlvmPointer.of(exp.type));
 			assembler.add(new LlvmStore(exp, address));
 		} else {
 			assembler.add(new LlvmStore(exp, var));
@@ -473,20 +915,22 @@ public class Codegen extends VisitorAdapter{
 		LlvmValue array = n.var.accept(this);
 		LlvmValue index = n.index.accept(this);
 		LlvmValue value = n.value.accept(this);
+		if (remarks != null)
+			remark(Remarks.ANALYSIS, "bounds-check", "NoBoundsCheck", n, "store to " + n.var.s + "[] without bounds check");
 		
-		LlvmRegister size = new LlvmRegister(LlvmPrimitiveType.I32);
-		LlvmValue one = new LlvmIntegerLiteral(1);
+		LlvmRegister size = new LlvmRegister(regs, LlvmPrimitiveType.I32);
+		LlvmValue one = LlvmIntegerLiteral.of(1);
 		assembler.add(new LlvmPlus(size, LlvmPrimitiveType.I32, index, one));
-		//LlvmRegister size_four = new LlvmRegister(LlvmPrimitiveType.I32);
-		//assembler.add(new LlvmTimes(size_four, LlvmPrimitiveType.I32, size, new LlvmIntegerLiteral(4)));
+		//LlvmRegister size_four = new LlvmRegister(regs, LlvmPrimitiveType.I32);
+		//assembler.add(new LlvmTimes(size_four, LlvmPrimitiveType.I32, size, LlvmIntegerLiteral.of(4)));
 		
-		LlvmRegister lhs = new LlvmRegister(new LlvmPointer(LlvmPrimitiveType.I32));
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPointer.of(LlvmPrimitiveType.I32));
 		List<LlvmValue> offsets = new ArrayList<LlvmValue>();
-		//offsets.add(new LlvmIntegerLiteral(0));
+		//offsets.add(LlvmIntegerLiteral.of(0));
 		offsets.add(size);
 		//offsets.add(size_four);
 		
-		LlvmRegister addr = new LlvmRegister(new LlvmPointer(LlvmPrimitiveType.I32));
+		LlvmRegister addr = new LlvmRegister(regs, LlvmPointer.of(LlvmPrimitiveType.I32));
 		assembler.add(new LlvmLoad(addr, array));
 		
 		assembler.add(new LlvmGetElementPointer(lhs, addr, offsets));
@@ -500,10 +944,10 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmValue lhs = n.lhs.accept(this);
 		LlvmValue rhs = n.rhs.accept(this);
-		LlvmRegister mul = new LlvmRegister(lhs.type);
+		LlvmRegister mul = new LlvmRegister(regs, lhs.type);
 		assembler.add(new LlvmTimes(mul, lhs.type, lhs, rhs));
-		LlvmRegister res = new LlvmRegister(LlvmPrimitiveType.I1);
-		assembler.add(new LlvmIcmp(res, 2, mul.type, mul, new LlvmIntegerLiteral(0)));
+		LlvmRegister res = new LlvmRegister(regs, LlvmPrimitiveType.I1);
+		assembler.add(new LlvmIcmp(res, 2, mul.type, mul, LlvmIntegerLiteral.of(0)));
 		return res;
 		
 	}
@@ -512,7 +956,7 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmValue v1 = n.lhs.accept(this);
 		LlvmValue v2 = n.rhs.accept(this);
-		LlvmRegister lhs = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmIcmp(lhs,9,LlvmPrimitiveType.I32,v1,v2));
 		return lhs;
 		
@@ -522,7 +966,7 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmValue v1 = n.lhs.accept(this);
 		LlvmValue v2 = n.rhs.accept(this);
-		LlvmRegister lhs = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmIcmp(lhs,1,LlvmPrimitiveType.I32,v1,v2));
 		return lhs;
 		
@@ -532,7 +976,7 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmValue v1 = n.lhs.accept(this);
 		LlvmValue v2 = n.rhs.accept(this);
-		LlvmRegister lhs = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmMinus(lhs,LlvmPrimitiveType.I32,v1,v2));
 		return lhs;
 		
@@ -542,7 +986,7 @@ public class Codegen extends VisitorAdapter{
 		
 		LlvmValue v1 = n.lhs.accept(this);
 		LlvmValue v2 = n.rhs.accept(this);
-		LlvmRegister lhs = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmTimes(lhs,LlvmPrimitiveType.I32,v1,v2));
 		return lhs;
 		
@@ -552,18 +996,20 @@ public class Codegen extends VisitorAdapter{
 
 		LlvmValue array = n.array.accept(this);
 		LlvmValue index = n.index.accept(this);
+		if (remarks != null)
+			remark(Remarks.ANALYSIS, "bounds-check", "NoBoundsCheck", n, "load from " + n.array + "[] without bounds check");
 		
-		LlvmRegister size = new LlvmRegister(LlvmPrimitiveType.I32);
-		LlvmValue one = new LlvmIntegerLiteral(1);
+		LlvmRegister size = new LlvmRegister(regs, LlvmPrimitiveType.I32);
+		LlvmValue one = LlvmIntegerLiteral.of(1);
 		assembler.add(new LlvmPlus(size, LlvmPrimitiveType.I32, index, one));
 		
-		LlvmRegister lhs = new LlvmRegister(new LlvmPointer(LlvmPrimitiveType.I32));
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPointer.of(LlvmPrimitiveType.I32));
 		List<LlvmValue> offsets = new ArrayList<LlvmValue>();
-		//offsets.add(new LlvmIntegerLiteral(0));
+		//offsets.add(LlvmIntegerLiteral.of(0));
 		offsets.add(size);
 		assembler.add(new LlvmGetElementPointer(lhs, array, offsets));
 		
-		LlvmRegister ret = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister ret = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmLoad(ret, lhs));
 		
 		return ret;
@@ -575,14 +1021,14 @@ public class Codegen extends VisitorAdapter{
 		LlvmValue array = n.array.accept(this);
 			
 		List<LlvmValue> offsets = new ArrayList<LlvmValue>();
-		offsets.add(new LlvmIntegerLiteral(0));
+		offsets.add(LlvmIntegerLiteral.of(0));
 		
-		LlvmRegister ret = new LlvmRegister(new LlvmPointer(LlvmPrimitiveType.I32));
+		LlvmRegister ret = new LlvmRegister(regs, LlvmPointer.of(LlvmPrimitiveType.I32));
 		assembler.add(new LlvmGetElementPointer(
 				ret,
 				array,
 				offsets));
-		LlvmRegister lhs = new LlvmRegister(LlvmPrimitiveType.I32);
+		LlvmRegister lhs = new LlvmRegister(regs, LlvmPrimitiveType.I32);
 		assembler.add(new LlvmLoad(lhs, ret));
 		
 		return lhs;
@@ -590,21 +1036,17 @@ public class Codegen extends VisitorAdapter{
 	
 	public LlvmValue visit(Call n){
 				
-		LlvmRegister ret = new LlvmRegister(n.type.accept(this).type);
+		LlvmRegister ret = new LlvmRegister(regs, n.type.accept(this).type);
 		List<LlvmValue> args = new ArrayList<LlvmValue>();
-		int i, j;
 		
 		//Testa se o objeto em questão é o %this ou não.
 		if (n.object.toString().contains("this")){
-			args.add(new LlvmRegister("%this", new LlvmPointer(classEnv)));
+			args.add(new LlvmRegister("%this", LlvmPointer.of(classEnv)));
 		} else {	
 			args.add(n.object.accept(this));
 		}
-		if (n.actuals != null) {
-			for (i = 0, j = n.actuals.size(); i < j; i++) {
-				args.add(n.actuals.head.accept(this));
-				n.actuals = n.actuals.tail;
-			}
+		for (util.List<Exp> a = n.actuals; a != null; a = a.tail) {
+			args.add(a.head.accept(this));
 		}
 		
 		assembler.add(new LlvmCall(
@@ -613,44 +1055,26 @@ public class Codegen extends VisitorAdapter{
 				"@__"+n.method.s+"_"+n.object.type.toString(),
 				args
 				));
+		if (remarks != null)
+			remarkCall(n);
 		return ret;	// TODO update		
 	}
 	
 	public LlvmValue visit(True n){		
-		return new LlvmBool(1);		
+		return LlvmBool.of(1);		
 	}
 	
 	public LlvmValue visit(False n){		
-		return new LlvmBool(0);		
+		return LlvmBool.of(0);		
 	}
 	
 	public LlvmValue visit(IdentifierExp n){
 		
-		LlvmValue ref = n.name.accept(this);
-
-		LlvmRegister ret = new LlvmRegister(LlvmPrimitiveType.I32);
-		if (ref != null) {
-			
-			for (LlvmValue lv : classEnv.getVarList()) {
-				LlvmRegister lr = (LlvmRegister) lv;
-				// se referência for encontrada em classEnv (slide 46)
-				if (lr.name.equals("%"+n.name.s)) {
-					ret = new LlvmRegister(lr.type);
-				}
-			}
-			for (LlvmValue lv : methodEnv.getFormalList()) {
-				LlvmRegister lr = (LlvmRegister) lv;
-				if (lr.name.equals("%"+n.name.s)) {
-					ret = new LlvmRegister(lr.type);
-				}
-			}
-			// se não encontrou, deve ser local do método
-			for (LlvmValue lv : methodEnv.getLocalList()) {
-				LlvmRegister lr = (LlvmRegister) lv;
-				if (lr.name.equals("%"+n.name.s)) {
-					ret = new LlvmRegister(lr.type);
-				}
-			}
+		// uma única consulta ao índice de slots do método dá o endereço e o tipo
+		VarSlot slot = methodEnv.getSlot(n.name.s);
+		if (slot != null) {
+			LlvmValue ref = address(slot);
+			LlvmRegister ret = new LlvmRegister(regs, slot.type);
 			assembler.add(new LlvmLoad(ret, ref));
 			return ret;
 		}
@@ -658,10 +1082,10 @@ public class Codegen extends VisitorAdapter{
 	}
 	
 	public LlvmValue visit(This n){
-		LlvmRegister ret = new LlvmRegister(classEnv);
+		LlvmRegister ret = new LlvmRegister(regs, classEnv);
 		assembler.add(new LlvmLoad(
 				ret,
-				new LlvmRegister("%this", new LlvmPointer(classEnv))
+				new LlvmRegister("%this", LlvmPointer.of(classEnv))
 				));
 		return ret;
 	}
@@ -669,16 +1093,19 @@ public class Codegen extends VisitorAdapter{
 	
 	public LlvmValue visit(NewArray n){
 		// new array
-		LlvmRegister array = new LlvmRegister(n.type.accept(this).type);
+		LlvmRegister array = new LlvmRegister(regs, n.type.accept(this).type);
 		// initial size
 		LlvmValue qty = n.size.accept(this);
 		// trick: one more space for sentinela node in position zero
-		LlvmRegister size = new LlvmRegister(LlvmPrimitiveType.I32);
-		LlvmValue one = new LlvmIntegerLiteral(1);
+		LlvmRegister size = new LlvmRegister(regs, LlvmPrimitiveType.I32);
+		LlvmValue one = LlvmIntegerLiteral.of(1);
 		assembler.add(new LlvmPlus(size, LlvmPrimitiveType.I32, qty, one));
 		
 		// allocate array with size+1 for sentinela node
-		assembler.add(new LlvmMalloc(array, LlvmPrimitiveType.I32, size));
+		assembler.add(new LlvmMalloc(regs, array, LlvmPrimitiveType.I32, size));
+		if (remarks != null)
+			remark(Remarks.MISSED, "heap-to-stack", "HeapAllocation", n,
+					"allocation of int[] not moved to stack: no escape analysis");
 		
 		/* sentinela (array in position zero) will store the real size
 		 * of the array, that will be indexed from 1 to 'size'. */
@@ -690,38 +1117,41 @@ public class Codegen extends VisitorAdapter{
 	public LlvmValue visit(NewObject n){
 		
 		ClassNode thisClass = symTab.classes.get(n.className.s);
+		if (remarks != null)
+			remark(Remarks.MISSED, "heap-to-stack", "HeapAllocation", n, "allocation of " + n.className.s
+					+ " (" + (thisClass.getClassType().sizeByte + 8) + " bytes) not moved to stack: no escape analysis");
 		
-		LlvmRegister newObj = new LlvmRegister(
-				new LlvmPointer(thisClass));
+		LlvmRegister newObj = new LlvmRegister(regs,
+				LlvmPointer.of(thisClass));
 		
 		
-		LlvmRegister malReg = new LlvmRegister(new LlvmPointer(LlvmPrimitiveType.I8));
+		LlvmRegister malReg = new LlvmRegister(regs, LlvmPointer.of(LlvmPrimitiveType.I8));
 		List<LlvmValue> listMalReg = new ArrayList<LlvmValue>();
 		listMalReg.add(
-				new LlvmIntegerLiteral(thisClass.getClassType().sizeByte+8)
+				LlvmIntegerLiteral.of(thisClass.getClassType().sizeByte+8)
 				);
 		
 		assembler.add(new LlvmCall(
 				malReg,
-				new LlvmPointer(LlvmPrimitiveType.I8),
+				LlvmPointer.of(LlvmPrimitiveType.I8),
 				"@malloc",
 				listMalReg
 				));
 		  
-		LlvmRegister bitReg = new LlvmRegister(new LlvmPointer(thisClass));
+		LlvmRegister bitReg = new LlvmRegister(regs, LlvmPointer.of(thisClass));
 		
 		
 		assembler.add(new LlvmBitcast(
 				bitReg,
 				malReg,
-				new LlvmPointer(thisClass)
+				LlvmPointer.of(thisClass)
 				));
 		
 		List<LlvmValue> listNewObjReg = new ArrayList<LlvmValue>();
 		listNewObjReg.add(bitReg);
 		assembler.add(new LlvmCall(
 				newObj,
-				new LlvmPointer(thisClass),
+				LlvmPointer.of(thisClass),
 				"@__" + n.className.s + "Constructor" + "_" + n.className.s,
 				listNewObjReg
 				));
@@ -732,439 +1162,57 @@ public class Codegen extends VisitorAdapter{
 	public LlvmValue visit(Not n){
 		
         LlvmValue v1 = n.exp.accept(this);
-        int value = 0;
-        if (v1.equals(new LlvmBool(1))) {
-        	value = 1;
-        }
-        int ret = 1 - value;
-        return new LlvmBool(ret);
+        // uma constante vira a outra; qualquer outro valor passa por 'xor i1 v, true'
+        if (v1 == LlvmBool.of(LlvmBool.TRUE))
+        	return LlvmBool.of(LlvmBool.FALSE);
+        if (v1 == LlvmBool.of(LlvmBool.FALSE))
+        	return LlvmBool.of(LlvmBool.TRUE);
+        LlvmRegister lhs = new LlvmRegister(regs, LlvmPrimitiveType.I1);
+        assembler.add(new LlvmXor(lhs, LlvmPrimitiveType.I1, v1, LlvmBool.of(LlvmBool.TRUE)));
+        return lhs;
         
 	}
 	
 	public LlvmValue visit(Identifier n){
 		
-		int i = 1;
-		for (LlvmValue lv : classEnv.getVarList()) {
-			LlvmRegister lr = (LlvmRegister) lv;
-			// se referência for encontrada em classEnv (slide 46)
-			if (lr.name.equals("%"+n.s)) {
-				// bitcast no caso de herança (?)
-				// getelementptr
-				LlvmRegister ref = new LlvmRegister(
-						new LlvmPointer(lr.type));
-				List<LlvmValue> offsets = new ArrayList<LlvmValue>();
-				offsets.add(new LlvmIntegerLiteral(0));
-				
-				/**
-				 * TODO: se tipo for array, dar algum jeito de remover
-				 * um nível de indireção do LlvmLoad.
-				 * TALVEZ algo similar a função getAdressSpace() definida aqui
-				 * http://www.llvm.org/docs/doxygen/html/classllvm_1_1PointerType.html
-				 * porém o código deste link é em C++
-				 */
-				/*
-				if () {
-					
-				}
-				*/
-				
-				offsets.add(new LlvmIntegerLiteral(i));
-
-				assembler.add(new LlvmGetElementPointer(
-						ref,
-						new LlvmRegister("%this",
-								new LlvmPointer(classEnv)),
-						offsets
-						));
-				return ref;
-			}
-			i++;
-		}
-		// se não encontrou, deve ser formal do método
-		for (LlvmValue lv : methodEnv.getFormalList()) {
-			LlvmRegister lr = (LlvmRegister) lv;
-			if (lr.name.equals("%"+n.s)) {
-				return new LlvmRegister("%"+n.s+"_tmp",	new LlvmPointer(lr.type));
-			}
-		}
-		// se não encontrou, deve ser local do método
-		for (LlvmValue lv : methodEnv.getLocalList()) {
-			LlvmRegister lr = (LlvmRegister) lv;
-			if (lr.name.equals("%"+n.s)) {
-				return new LlvmRegister
-						(lr.name, new LlvmPointer(lr.type));
-			}
-		}
-		
-		// se ainda não encontrou, erro (?)
-		return null;
-	}
-}
-
-
-/**********************************************************************************/
-/* === Tabela de Símbolos ==== 
- * 
- * 
- */
-/**********************************************************************************/
-
-class SymTab extends VisitorAdapter{
-    public Map<String, ClassNode> classes;
-    public Map<String, MethodNode> methods;
-    private ClassNode classEnv;    //aponta para a classe em uso
-    
-    public SymTab(){
-    	classes = new HashMap<String, ClassNode>();
-    	methods = new HashMap<String, MethodNode>();
-    }
-
-    public LlvmValue FillTabSymbol(Program n){
-		n.accept(this);
-		return null;
-	}
-	public LlvmValue visit(Program n){
-		n.mainClass.accept(this);
-	
-		for (util.List<ClassDecl> c = n.classList; c != null; c = c.tail)
-			c.head.accept(this);
-	
-		return null;
-	}
-	
-	public LlvmValue visit(MainClass n){
-		classEnv = classes.put(n.className.s, new ClassNode(
-				n.className.s,
-				new LlvmStructure(new ArrayList<LlvmType>()), 
-				new ArrayList<LlvmValue>()));
-		return null;
-	}
-	
-	public LlvmValue visit(ClassDeclSimple n){
-		
-		List<LlvmValue> varList = new ArrayList<LlvmValue>();		
-		List<LlvmType> typeList = new ArrayList<LlvmType>();		
-
-		// Constroi VarList com as Variáveis da Classe
-		// Constroi TypeList com os tipos das variáveis da Classe (vai formar a Struct da classe)		
-		int i, j;
-		if(n.methodList != null && n.methodList.size() > 0)
-			typeList.add(new LlvmArray(n.methodList.size(), new LlvmPointer(LlvmPrimitiveType.I8)));
-		if(n.varList != null && n.varList.size() > 0){
-			j = n.varList.size();
-			util.List<VarDecl> aux = n.varList;
-			for(i = 0; i < j; i++) {
-				varList.add(aux.head.accept(this));
-				LlvmType auxType = aux.head.type.accept(this).type;
-				typeList.add(auxType);
-				aux = aux.tail;
-			}
-		}
-		
-		if(classes.containsKey(n.name.s)) {
-			classEnv = classes.get(n.name.s);
-		} else {
-			classEnv = new ClassNode(
-					n.name.s,
-					new LlvmStructure(typeList),
-					varList);
-		}
-		
-	    // Percorre n.methodList visitando cada método
-		if(n.methodList != null && n.methodList.size() > 0){
-			j = n.methodList.size();
-			util.List<MethodDecl> aux2 = n.methodList;
-			for(i = 0; i < j; i++) {
-				aux2.head.accept(this);
-				aux2 = aux2.tail;
-			}
-		}		
-		
-		// Adds constructor method info
-		MethodNode constructor = new MethodNode(
-				"@__"+n.name.s+"Constructor"+"_"+n.name.s, 
-				null, 
-				new ArrayList<LlvmValue>());
-		List<LlvmValue> constructorFormals = new ArrayList<LlvmValue>();
-		constructorFormals.add(new LlvmRegister("%this", new LlvmPointer(classEnv)));
-		constructor.setFormalList(constructorFormals);
-		constructor.setMethodType(new LlvmPointer(classEnv));
-		methods.put("@__"+n.name.s+"Constructor"+"_"+n.name.s, constructor);		
-		
-		classEnv = classes.put(n.name.s, classEnv);		
-		
-		return null;
-	}
-
-	public LlvmValue visit(ClassDeclExtends n){
-		List<LlvmValue> varList = new ArrayList<LlvmValue>();		
-		List<LlvmType> typeList = new ArrayList<LlvmType>();		
-
-		// Constroi VarList com as Variáveis da Classe
-		// Constroi TypeList com os tipos das variáveis da Classe (vai formar a Struct da classe)		
-		int i, j;
-		if(n.methodList != null && n.methodList.size() > 0)
-			typeList.add(new LlvmArray(n.methodList.size(), new LlvmPointer(LlvmPrimitiveType.I8)));
-		if(n.varList != null && n.varList.size() > 0){
-			j = n.varList.size();
-			util.List<VarDecl> aux = n.varList;
-			for(i = 0; i < j; i++) {
-				varList.add(aux.head.accept(this));
-				typeList.add(aux.head.type.accept(this).type);
-				aux = aux.tail;
-			}
-		}
-		
-		if(classes.containsKey(n.name.s)) {
-			classEnv = classes.get(n.name.s);
-		} else {
-			classEnv = new ClassNode(
-					n.name.s,
-					new LlvmStructure(typeList),
-					varList);
-		}
-		
-	    // Percorre n.methodList visitando cada método
-		if(n.methodList != null && n.methodList.size() > 0){
-			j = n.methodList.size();
-			util.List<MethodDecl> aux2 = n.methodList;
-			for(i = 0; i < j; i++) {
-				aux2.head.accept(this);
-				aux2 = aux2.tail;
-			}
-		}
-		
-		ClassNode superClass;
-		if(classes.containsKey(n.superClass.s)) {
-			superClass = classes.get(n.superClass.s);
-		} else {
-			superClass = new ClassNode(
-					n.superClass.s,
-					null,
-					new ArrayList<LlvmValue>());
-		}
-		
-		// Add constructor info
-		MethodNode constructor = new MethodNode(
-				"@__"+n.name.s+"Constructor"+"_"+n.name.s, 
-				null, 
-				new ArrayList<LlvmValue>());
-		List<LlvmValue> constructorFormals = new ArrayList<LlvmValue>();
-		constructorFormals.add(new LlvmRegister("%this", new LlvmPointer(classEnv)));
-		constructor.setFormalList(constructorFormals);
-		constructor.setMethodType(new LlvmPointer(classEnv));
-		methods.put("@__"+n.name.s+"Constructor"+"_"+n.name.s, constructor);	
-		
-		classEnv.setSuperClass(superClass);
-		classEnv = classes.put(n.name.s, classEnv);
-		
-		return null;
-	}
-	
-	public LlvmValue visit(VarDecl n){
-		return new LlvmRegister("%"+n.name.s, n.type.accept(this).type); //TODO check if enough
-	}
-	
-	public LlvmValue visit(Formal n){
-		return new LlvmRegister("%"+n.name.s, n.type.accept(this).type);
-	}
-	
-	public LlvmValue visit(MethodDecl n){
-		
-		int i, j;
-		List<LlvmValue> formalList = new ArrayList<LlvmValue>();		
-		List<LlvmValue> localList = new ArrayList<LlvmValue>();
-		
-		// Percorre n.formals
-		formalList.add(new LlvmRegister("%this", new LlvmPointer(classEnv)));
-		if(n.formals != null && n.formals.size() > 0){
-			j = n.formals.size();
-			util.List<Formal> aux2 = n.formals;
-			for(i = 0; i < j; i++) {
-				formalList.add(aux2.head.accept(this));
-				aux2 = aux2.tail;
-			}
+		VarSlot slot = methodEnv.getSlot(n.s);
+		if (slot == null) {
+			// se não encontrou, erro (?)
+			return null;
 		}
-
-		// Percorre n.locals
-		if(n.locals != null && n.locals.size() > 0){
-			j = n.locals.size();
-			util.List<VarDecl> aux2 = n.locals;
-			for(i = 0; i < j; i++) {
-				localList.add(aux2.head.accept(this));
-				aux2 = aux2.tail;
-			}
-		}
-		
-		MethodNode methodEnv = new MethodNode(
-				"@__" + n.name.s + "_" + classEnv.getNameClass(),
-				formalList,
-				localList);
-		
-		LlvmValue valueAux =  n.returnType.accept(this);
-		if(valueAux.type == LlvmPrimitiveType.LABEL) {
-			ClassNode classRef;
-			if(classes.containsKey(valueAux.toString())) {
-				classRef = classes.get(valueAux.toString());
-			} else {
-				classRef = new ClassNode(valueAux.toString(), null, new ArrayList<LlvmValue>());
-			}
-			methodEnv.setMethodType(classRef);
-		} else {
-			methodEnv.setMethodType(valueAux.type);
-		}
-		
-		Map<Integer, MethodNode> aux = classEnv.getMethodIndex();
-		aux.put(classEnv.getMethodCount(), methodEnv);
-		
-		classEnv.setMethodIndex(aux);
-		classEnv.setMethodCount(classEnv.getMethodCount() + 1);
-		
-		methods.put(methodEnv.getNameMethod(), methodEnv);
-		
-		return null;
+		return address(slot);
 	}
 	
-	public LlvmValue visit(IdentifierType n){
-		if (classes.containsKey(n.name)) {
-			return new LlvmNamedValue("%class."+n.name, classes.get(n.name));
-		} else {
-			ClassNode temp = new ClassNode(n.name, null, null);
-			return new LlvmNamedValue("%class."+n.name, temp);
+	// Devolve o endereço (ponteiro) da variável descrita por 'slot'
+	private LlvmValue address(VarSlot slot){
+		if (slot.kind == VarSlot.FIELD) {
+			// atributo da classe (slide 46): getelementptr a partir de %this
+			// bitcast no caso de herança (?)
+			LlvmRegister ref = new LlvmRegister(regs,
+					LlvmPointer.of(slot.type));
+			List<LlvmValue> offsets = new ArrayList<LlvmValue>();
+			offsets.add(LlvmIntegerLiteral.of(0));
+			
+			/**
+			 * TODO: se tipo for array, dar algum jeito de remover
+			 * um nível de indireção do LlvmLoad.
+			 * TALVEZ algo similar a função getAdressSpace() definida aqui
+			 * http://www.llvm.org/docs/doxygen/html/classllvm_1_1PointerType.html
+			 * porém o código deste link é em C++
+			 */
+			
+			offsets.add(LlvmIntegerLiteral.of(slot.index));
+
+			assembler.add(new LlvmGetElementPointer(
+					ref,
+					new LlvmRegister("%this",
+							LlvmPointer.of(classEnv)),
+					offsets
+					));
+			return ref;
 		}
-	}
-	
-	public LlvmValue visit(IntArrayType n){
-		return new LlvmNamedValue("i32 *", new LlvmPointer(LlvmPrimitiveType.I32));
-	}
-	
-	public LlvmValue visit(BooleanType n){
-		return new LlvmNamedValue("i1", LlvmPrimitiveType.I1);
-	}
-	
-	public LlvmValue visit(IntegerType n){
-		return new LlvmNamedValue("i32", LlvmPrimitiveType.I32);
+		// formal (cópia em %nome_tmp) ou local do método (%nome)
+		return new LlvmRegister(slot.address, LlvmPointer.of(slot.type));
 	}
 }
 
-class ClassNode extends LlvmType {
-	
-	private String nameClass;
-	private LlvmStructure classType;
-	private List<LlvmValue> varList;
-	private int methodCount;
-	private Map<Integer, MethodNode> methodIndex;	// Usage: give method #, get method's node
-	private ClassNode superClass;
-	
-	public ClassNode (String nameClass, LlvmStructure classType, List<LlvmValue> varList){
-		this.setNameClass(nameClass);
-		this.setClassType(classType);
-		this.setVarList(varList);
-		this.setMethodCount(0);
-		this.setMethodIndex(new HashMap<Integer, MethodNode>());
-	}
-
-	public String getNameClass() {
-		return nameClass;
-	}
-
-	public void setNameClass(String nameClass) {
-		this.nameClass = nameClass;
-	}
-
-	public LlvmStructure getClassType() {
-		return classType;
-	}
-
-	public void setClassType(LlvmStructure classType) {
-		this.classType = classType;
-	}
-
-	public List<LlvmValue> getVarList() {
-		return varList;
-	}
-
-	public void setVarList(List<LlvmValue> varList) {
-		this.varList = varList;
-	}
-
-	public int getMethodCount() {
-		return methodCount;
-	}
-
-	public void setMethodCount(int methodCount) {
-		this.methodCount = methodCount;
-	}
-
-	public Map<Integer, MethodNode> getMethodIndex() {
-		return methodIndex;
-	}
-
-	public void setMethodIndex(Map<Integer, MethodNode> methodIndex) {
-		this.methodIndex = methodIndex;
-	}
-
-	public ClassNode getSuperClass() {
-		return superClass;
-	}
-
-	public void setSuperClass(ClassNode superClass) {
-		this.superClass = superClass;
-	}
-	
-	public String toString() {
-		return "%class." + this.nameClass;
-	}
-	
-}
-
-class MethodNode {
-	
-	private String nameMethod;
-	private List<LlvmValue> formalList;
-	private List<LlvmValue> localList;
-	private LlvmType methodType;
-	
-	public MethodNode(String nameMethod, List<LlvmValue> formalList, List<LlvmValue> localList){
-		this.setNameMethod(nameMethod);
-		this.setFormalList(formalList);
-		this.setLocalList(localList);
-	}
-
-	public String getNameMethod() {
-		return nameMethod;
-	}
-
-	public void setNameMethod(String nameMethod) {
-		this.nameMethod = nameMethod;
-	}
-
-	public List<LlvmValue> getFormalList() {
-		return formalList;
-	}
-
-	public void setFormalList(List<LlvmValue> formalList) {
-		this.formalList = formalList;
-	}
-
-	public List<LlvmValue> getLocalList() {
-		return localList;
-	}
-
-	public void setLocalList(List<LlvmValue> localList) {
-		this.localList = localList;
-	}
-
-	public LlvmType getMethodType() {
-		return methodType;
-	}
-
-	public void setMethodType(LlvmType methodType) {
-		this.methodType = methodType;
-	}
-	
-}
-
-
-
-
@@ -0,0 +1,80 @@
+package llvm;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos do JDK Flight Recorder emitidos pelo compilador (ver Span). Sem uma
+ * gravação ativa eles não custam quase nada: o Span só mede alocação quando o
+ * evento está habilitado. Para gravar:
+ *
+ *   java -XX:StartFlightRecording:filename=compila.jfr -cp src:lib/projeto2.jar main/Main ...
+ *   jfr print --events 'minijava.*' compila.jfr
+ */
+public final class CompileEvents {
+
+	private CompileEvents(){}
+
+	@Name("minijava.Phase")
+	@Label("Fase")
+	@Category({ "MiniJava", "Compilador" })
+	@Description("Uma fase do compilador: parse, check, symtab, translate ou render")
+	@StackTrace(false)
+	public static class Phase extends Event {
+		@Label("Fase")
+		public String phase;
+
+		@Label("Fonte")
+		public String source;
+
+		@Label("Bytes alocados")
+		@DataAmount
+		public long allocated;
+
+		@Label("Instruções")
+		public long instructions;
+	}
+
+	@Name("minijava.ClassCodegen")
+	@Label("Codegen de classe")
+	@Category({ "MiniJava", "Compilador" })
+	@StackTrace(false)
+	public static class ClassCodegen extends Event {
+		@Label("Classe")
+		public String className;
+
+		@Label("Bytes alocados")
+		@DataAmount
+		public long allocated;
+
+		@Label("Instruções")
+		public long instructions;
+
+		@Label("Do cache")
+		public boolean cached;
+	}
+
+	@Name("minijava.MethodCodegen")
+	@Label("Codegen de método")
+	@Category({ "MiniJava", "Compilador" })
+	@StackTrace(false)
+	public static class MethodCodegen extends Event {
+		@Label("Classe")
+		public String className;
+
+		@Label("Método")
+		public String method;
+
+		@Label("Bytes alocados")
+		@DataAmount
+		public long allocated;
+
+		@Label("Instruções")
+		public long instructions;
+	}
+}
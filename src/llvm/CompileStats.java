@@ -0,0 +1,103 @@
+package llvm;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Totais do modo -stats: tempo, bytes alocados e instruções por fase, e os
+ * trechos (classes e métodos) mais caros do Codegen. Pode ser compartilhado
+ * por várias compilações e threads (BatchMain, geração paralela).
+ */
+public class CompileStats {
+	private static final int TOP = 10;
+
+	private final Map<String, Totals> phases = new LinkedHashMap<String, Totals>();
+	private final Totals classTotals = new Totals();
+	private final List<Entry> classes = new ArrayList<Entry>();
+	private final List<Entry> methods = new ArrayList<Entry>();
+	private int cachedClasses;
+
+	public CompileStats(){
+		for (String p : new String[] { Span.PARSE, Span.CHECK, Span.SYMTAB, Span.TRANSLATE, Span.RENDER })
+			phases.put(p, new Totals());
+	}
+
+	synchronized void add(Span s, long nanos, long bytes, long instructions){
+		if (s.kind == Span.PHASE) {
+			Totals t = phases.get(s.name);
+			if (t == null)
+				phases.put(s.name, t = new Totals());
+			t.add(nanos, bytes, instructions);
+		} else if (s.kind == Span.CLASS) {
+			classTotals.add(nanos, bytes, instructions);
+			classes.add(new Entry(s.name, nanos, bytes, instructions));
+			if (s.cached)
+				cachedClasses++;
+		} else {
+			methods.add(new Entry(s.owner + "." + s.name, nanos, bytes, instructions));
+		}
+	}
+
+	public synchronized void print(PrintStream out){
+		out.printf("%-12s %7s %12s %14s %12s%n", "fase", "vezes", "ms", "bytes alocados", "instruções");
+		for (Map.Entry<String, Totals> e : phases.entrySet())
+			if (e.getValue().count > 0)
+				e.getValue().print(out, e.getKey());
+		if (classTotals.count > 0) {
+			classTotals.print(out, "  classes");
+			if (cachedClasses > 0)
+				out.printf("  (%d de %d classes vieram do cache)%n", cachedClasses, classTotals.count);
+		}
+		top(out, "classes", classes);
+		top(out, "métodos", methods);
+	}
+
+	private static void top(PrintStream out, String what, List<Entry> entries){
+		if (entries.isEmpty())
+			return;
+		List<Entry> sorted = new ArrayList<Entry>(entries);
+		Collections.sort(sorted, new Comparator<Entry>() {
+			public int compare(Entry a, Entry b){
+				return Long.compare(b.nanos, a.nanos);
+			}
+		});
+		out.printf("%n%s mais caros:%n", what);
+		for (int i = 0; i < Math.min(TOP, sorted.size()); i++) {
+			Entry e = sorted.get(i);
+			out.printf("  %-40s %10.3f ms %12d B %8d instr%n", e.name, e.nanos / 1e6, e.bytes, e.instructions);
+		}
+	}
+
+	static class Totals {
+		int count;
+		long nanos, bytes, instructions;
+
+		void add(long nanos, long bytes, long instructions){
+			count++;
+			this.nanos += nanos;
+			this.bytes += bytes;
+			this.instructions += instructions;
+		}
+
+		void print(PrintStream out, String name){
+			out.printf("%-12s %7d %12.3f %14d %12d%n", name, count, nanos / 1e6, bytes, instructions);
+		}
+	}
+
+	static class Entry {
+		final String name;
+		final long nanos, bytes, instructions;
+
+		Entry(String name, long nanos, long bytes, long instructions){
+			this.name = name;
+			this.nanos = nanos;
+			this.bytes = bytes;
+			this.instructions = instructions;
+		}
+	}
+}
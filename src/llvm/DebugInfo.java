@@ -0,0 +1,139 @@
+package llvm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import llvmast.LlvmDefine;
+import llvmast.LlvmValue;
+
+/**
+ * Metadados de depuração do módulo (sintaxe do LLVM 3.7), para que perf e
+ * depuradores atribuam o código gerado às linhas do fonte MiniJava:
+ *
+ *   - um DICompileUnit e um DIFile para o fonte;
+ *   - um DISubprogram por função (@main, @__método_Classe e construtores),
+ *     ligado a ela pelo campo 'function:', como no 3.7;
+ *   - um DILocation por posição (linha, coluna, função) usada nos !dbg.
+ *
+ * Os números dos nós são dados na ordem em que o Codegen renderiza as
+ * instruções, então com a depuração ligada a geração é sequencial e sem o
+ * cache de IR (ver Codegen.setDebugInfo). Os nós saem todos no fim do módulo.
+ */
+public class DebugInfo {
+	// Nós fixos; os demais começam em FIRST
+	private static final int CU = 0, FILE = 1, EMPTY = 2, DWARF = 3, VERSION = 4, SUBPROGRAMS = 5, TYPE = 6;
+	private static final int FIRST = 7;
+
+	private final String filename;
+	private final String directory;
+	private final List<String> nodes = new ArrayList<String>();	// nó FIRST + i
+	private final List<Integer> subprograms = new ArrayList<Integer>();
+	private final Map<String, Integer> locations = new HashMap<String, Integer>();
+
+	// 'source' é o caminho do fonte, como aparece no DIFile
+	public DebugInfo(String source){
+		File f = new File(source);
+		this.filename = f.getName();
+		File dir = f.getAbsoluteFile().getParentFile();
+		this.directory = dir == null ? "" : dir.getPath();
+	}
+
+	// DISubprogram da função definida por 'def' (linha da declaração em def.line)
+	int subprogram(LlvmDefine def){
+		StringBuilder sb = new StringBuilder();
+		String name = def.name.substring(1);
+		sb.append("!DISubprogram(name: ");
+		string(sb, name);
+		sb.append(", linkageName: ");
+		string(sb, name);
+		sb.append(", scope: !").append(FILE).append(", file: !").append(FILE)
+			.append(", line: ").append(def.line).append(", type: !").append(TYPE)
+			.append(", isLocal: false, isDefinition: true, scopeLine: ").append(def.line)
+			.append(", isOptimized: false, function: ");
+		try {
+			def.resultType.appendTo(sb);
+			sb.append(" (");
+			for (int i = 0; i < def.args.size(); i++) {
+				LlvmValue a = def.args.get(i);
+				if (i > 0)
+					sb.append(", ");
+				a.type.appendTo(sb);
+			}
+			sb.append(")* ").append(def.name);
+		} catch (IOException e) {
+			// StringBuilder nunca lança IOException
+			throw new IllegalStateException(e);
+		}
+		sb.append(", variables: !").append(EMPTY).append(')');
+		int id = add(sb.toString());
+		subprograms.add(id);
+		return id;
+	}
+
+	// DILocation de (linha, coluna) na função 'scope'; posições repetidas reusam o nó
+	int location(int line, int column, int scope){
+		String key = line + ":" + column + ":" + scope;
+		Integer id = locations.get(key);
+		if (id == null) {
+			id = add("!DILocation(line: " + line + ", column: " + column + ", scope: !" + scope + ")");
+			locations.put(key, id);
+		}
+		return id;
+	}
+
+	private int add(String node){
+		nodes.add(node);
+		return FIRST + nodes.size() - 1;
+	}
+
+	// Os metadados nomeados e todos os nós, para o fim do módulo
+	public void appendTo(Appendable out) throws IOException {
+		out.append("\n!llvm.dbg.cu = !{!").append(String.valueOf(CU)).append("}\n");
+		out.append("!llvm.module.flags = !{!").append(String.valueOf(DWARF)).append(", !")
+			.append(String.valueOf(VERSION)).append("}\n\n");
+		out.append("!").append(String.valueOf(CU)).append(" = distinct !DICompileUnit(language: DW_LANG_Java, file: !")
+			.append(String.valueOf(FILE)).append(", producer: \"minijava\", isOptimized: false, runtimeVersion: 0,")
+			.append(" emissionKind: 1, enums: !").append(String.valueOf(EMPTY))
+			.append(", retainedTypes: !").append(String.valueOf(EMPTY))
+			.append(", subprograms: !").append(String.valueOf(SUBPROGRAMS))
+			.append(", globals: !").append(String.valueOf(EMPTY))
+			.append(", imports: !").append(String.valueOf(EMPTY)).append(")\n");
+		StringBuilder file = new StringBuilder("!DIFile(filename: ");
+		string(file, filename);
+		file.append(", directory: ");
+		string(file, directory);
+		file.append(')');
+		node(out, FILE, file.toString());
+		node(out, EMPTY, "!{}");
+		node(out, DWARF, "!{i32 2, !\"Dwarf Version\", i32 4}");
+		node(out, VERSION, "!{i32 2, !\"Debug Info Version\", i32 3}");
+		StringBuilder list = new StringBuilder("!{");
+		for (int i = 0; i < subprograms.size(); i++)
+			list.append(i == 0 ? "!" : ", !").append(subprograms.get(i));
+		node(out, SUBPROGRAMS, list.append('}').toString());
+		node(out, TYPE, "!DISubroutineType(types: !" + EMPTY + ")");
+		for (int i = 0; i < nodes.size(); i++)
+			node(out, FIRST + i, nodes.get(i));
+	}
+
+	private static void node(Appendable out, int id, String node) throws IOException {
+		out.append('!').append(String.valueOf(id)).append(" = ").append(node).append('\n');
+	}
+
+	// String de metadados: '"' e '\' e os não imprimíveis viram \XX (hexadecimal)
+	private static void string(StringBuilder sb, String s){
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\' || c < ' ' || c > '~')
+				sb.append('\\').append(String.format("%02X", (int) c & 0xFF));
+			else
+				sb.append(c);
+		}
+		sb.append('"');
+	}
+}
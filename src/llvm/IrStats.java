@@ -0,0 +1,312 @@
+package llvm;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import llvmast.LlvmAlloca;
+import llvmast.LlvmArray;
+import llvmast.LlvmBranch;
+import llvmast.LlvmCall;
+import llvmast.LlvmCloseDefinition;
+import llvmast.LlvmConstantDeclaration;
+import llvmast.LlvmDefine;
+import llvmast.LlvmGetElementPointer;
+import llvmast.LlvmIcmp;
+import llvmast.LlvmInstruction;
+import llvmast.LlvmIntegerLiteral;
+import llvmast.LlvmLabel;
+import llvmast.LlvmLoad;
+import llvmast.LlvmMalloc;
+import llvmast.LlvmPointer;
+import llvmast.LlvmPrimitiveType;
+import llvmast.LlvmStore;
+import llvmast.LlvmStructure;
+import llvmast.LlvmType;
+import llvmast.LlvmValue;
+import semant.Env;
+import syntaxtree.ClassDecl;
+import syntaxtree.MethodDecl;
+import syntaxtree.Program;
+
+/**
+ * Estatísticas do IR gerado pelo Codegen, para acompanhar o inchaço do código
+ * entre versões do gerador. Percorre a lista de instruções (a mesma do
+ * 'assembler') e, para cada função (@main, @__método_Classe e construtores),
+ * conta as instruções por opcode, os blocos básicos (rótulos) e os bytes de
+ * pilha dos alloca; para cada classe, o tamanho da struct (sizeByte).
+ *
+ * Cada função é comparada com o tamanho do seu fonte em nós da AST (AstSize):
+ * as que geram mais que OUTLIER vezes a mediana de instruções por nó saem
+ * marcadas com '*' na tabela e com "outlier": true no JSON.
+ *
+ *   IrStats s = IrStats.of(programa, env);
+ *   s.print(System.out);        // tabela
+ *   s.appendJson(System.out);   // JSON
+ */
+public class IrStats {
+	public static final String[] OPCODES = { "alloca", "load", "store", "getelementptr", "call", "malloc", "icmp", "br" };
+	private static final Class<?>[] CLASSES = { LlvmAlloca.class, LlvmLoad.class, LlvmStore.class,
+			LlvmGetElementPointer.class, LlvmCall.class, LlvmMalloc.class, LlvmIcmp.class, LlvmBranch.class };
+	private static final double OUTLIER = 2.0;
+
+	public final List<Function> functions = new ArrayList<Function>();
+	public final List<Struct> structs = new ArrayList<Struct>();
+
+	private IrStats(){}
+
+	public static IrStats of(Program p, Env env){
+		List<LlvmInstruction> ir = new Codegen().generate(p, env);
+		// a SymTab é determinística: uma nova dá as mesmas structs que o Codegen usou
+		SymTab symTab = new SymTab();
+		symTab.FillTabSymbol(p);
+		return of(ir, symTab, sources(p));
+	}
+
+	static IrStats of(List<LlvmInstruction> ir, SymTab symTab, Map<String, Source> sources){
+		IrStats s = new IrStats();
+		Map<String, Struct> byName = new HashMap<String, Struct>();
+		String owner = null;
+		Function f = null;
+		for (LlvmInstruction i : ir) {
+			if (i instanceof LlvmConstantDeclaration) {
+				String name = ((LlvmConstantDeclaration) i).name;
+				if (name.startsWith("%class.")) {
+					owner = name.substring("%class.".length());
+					ClassNode c = symTab.classes.get(owner);
+					Struct st = new Struct(owner, c == null ? 0 : c.getVarList().size(),
+							c == null ? 0 : c.getClassType().sizeByte);
+					s.structs.add(st);
+					byName.put(owner, st);
+				}
+			} else if (i instanceof LlvmDefine) {
+				String name = ((LlvmDefine) i).name;
+				Source src = sources.get(name);
+				f = new Function(name, owner, src == null ? "<construtor>" : src.method, src == null ? 0 : src.nodes);
+			} else if (i instanceof LlvmCloseDefinition) {
+				s.functions.add(f);
+				Struct st = byName.get(f.owner);
+				if (st != null) {
+					st.functions++;
+					st.instructions += f.instructions;
+				}
+				f = null;
+			} else if (f != null) {
+				f.count(i);
+			}
+		}
+		s.markOutliers();
+		return s;
+	}
+
+	// Nome da função no IR -> método do fonte e o tamanho dele
+	static Map<String, Source> sources(Program p){
+		Map<String, Source> m = new HashMap<String, Source>();
+		m.put("@main", new Source("main", AstSize.of(p.mainClass.stm)));
+		for (util.List<ClassDecl> c = p.classList; c != null; c = c.tail)
+			for (util.List<MethodDecl> l = c.head.methodList; l != null; l = l.tail)
+				m.put("@__" + l.head.name.s + "_" + c.head.name.s, new Source(l.head.name.s, AstSize.of(l.head)));
+		return m;
+	}
+
+	// Marca as funções com instruções por nó acima de OUTLIER x a mediana
+	private void markOutliers(){
+		List<Double> ratios = new ArrayList<Double>();
+		for (Function f : functions)
+			if (f.sourceNodes > 0)
+				ratios.add(f.ratio());
+		if (ratios.isEmpty())
+			return;
+		Double[] sorted = ratios.toArray(new Double[ratios.size()]);
+		Arrays.sort(sorted);
+		int n = sorted.length;
+		double median = n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+		for (Function f : functions)
+			f.outlier = f.sourceNodes > 0 && f.ratio() > OUTLIER * median;
+	}
+
+	// Bytes que um alloca do tipo 't' reserva (ponteiros de 64 bits, sem alinhamento,
+	// como no sizeByte da LlvmStructure)
+	static long sizeOf(LlvmType t){
+		if (t instanceof LlvmPointer)
+			return 8;
+		if (t == LlvmPrimitiveType.I32)
+			return 4;
+		if (t == LlvmPrimitiveType.I1 || t == LlvmPrimitiveType.I8)
+			return 1;
+		if (t instanceof LlvmArray)
+			return ((LlvmArray) t).length * sizeOf(((LlvmArray) t).content);
+		if (t instanceof LlvmStructure)
+			return ((LlvmStructure) t).sizeByte;
+		// variáveis de tipo classe são alocadas como a própria %class.X
+		if (t instanceof ClassNode)
+			return ((ClassNode) t).getClassType().sizeByte;
+		return 0;
+	}
+
+	public void print(PrintStream out){
+		out.printf("%-36s", "função");
+		for (String op : OPCODES)
+			out.printf(" %6s", op.equals("getelementptr") ? "gep" : op);
+		out.printf(" %6s %6s %6s %6s %6s %7s%n", "outras", "total", "blocos", "pilha", "nós", "IR/nó");
+		int[] ops = new int[OPCODES.length];
+		int others = 0, total = 0, blocks = 0;
+		long stack = 0;
+		for (Function f : functions) {
+			out.printf("%-36s", f.name);
+			for (int k = 0; k < OPCODES.length; k++) {
+				out.printf(" %6d", f.ops[k]);
+				ops[k] += f.ops[k];
+			}
+			out.printf(" %6d %6d %6d %6d", f.others, f.instructions, f.blocks, f.stackBytes);
+			if (f.sourceNodes > 0)
+				out.printf(" %6d %7.2f%s%n", f.sourceNodes, f.ratio(), f.outlier ? " *" : "");
+			else
+				out.printf(" %6s %7s%n", "-", "-");
+			others += f.others;
+			total += f.instructions;
+			blocks += f.blocks;
+			stack += f.stackBytes;
+		}
+		out.printf("%-36s", "total (" + functions.size() + " funções)");
+		for (int k = 0; k < OPCODES.length; k++)
+			out.printf(" %6d", ops[k]);
+		out.printf(" %6d %6d %6d %6d%n", others, total, blocks, stack);
+
+		out.printf("%n%-24s %9s %9s %8s %12s%n", "classe", "atributos", "sizeByte", "funções", "instruções");
+		for (Struct s : structs)
+			out.printf("%-24s %9d %9d %8d %12d%n", s.name, s.fields, s.sizeByte, s.functions, s.instructions);
+	}
+
+	public void appendJson(Appendable out) throws IOException {
+		out.append("{\"functions\": [");
+		for (int i = 0; i < functions.size(); i++) {
+			Function f = functions.get(i);
+			out.append(i == 0 ? "\n" : ",\n").append("  {\"name\": ");
+			string(out, f.name);
+			out.append(", \"class\": ");
+			string(out, f.owner);
+			out.append(", \"method\": ");
+			string(out, f.method);
+			out.append(", \"opcodes\": {");
+			for (int k = 0; k < OPCODES.length; k++)
+				out.append(k == 0 ? "\"" : ", \"").append(OPCODES[k]).append("\": ").append(String.valueOf(f.ops[k]));
+			out.append("}, \"other\": ").append(String.valueOf(f.others))
+				.append(", \"instructions\": ").append(String.valueOf(f.instructions))
+				.append(", \"blocks\": ").append(String.valueOf(f.blocks))
+				.append(", \"stackBytes\": ").append(String.valueOf(f.stackBytes))
+				.append(", \"sourceNodes\": ").append(String.valueOf(f.sourceNodes))
+				.append(", \"outlier\": ").append(String.valueOf(f.outlier)).append('}');
+		}
+		out.append("\n], \"classes\": [");
+		for (int i = 0; i < structs.size(); i++) {
+			Struct s = structs.get(i);
+			out.append(i == 0 ? "\n" : ",\n").append("  {\"name\": ");
+			string(out, s.name);
+			out.append(", \"fields\": ").append(String.valueOf(s.fields))
+				.append(", \"sizeByte\": ").append(String.valueOf(s.sizeByte))
+				.append(", \"functions\": ").append(String.valueOf(s.functions))
+				.append(", \"instructions\": ").append(String.valueOf(s.instructions)).append('}');
+		}
+		out.append("\n]}");
+	}
+
+	// String JSON; os nomes vêm de identificadores, funções do IR e caminhos, então
+	// basta escapar aspas, '\' e os caracteres de controle
+	public static void string(Appendable out, String s) throws IOException {
+		if (s == null) {
+			out.append("null");
+			return;
+		}
+		out.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				out.append('\\').append(c);
+			else if (c < ' ')
+				out.append(String.format("\\u%04x", (int) c));
+			else
+				out.append(c);
+		}
+		out.append('"');
+	}
+
+	/* Uma função do IR */
+	public static class Function {
+		public final String name;
+		public final String owner;		// classe em cuja seção do módulo a função está
+		public final String method;
+		public final int[] ops = new int[OPCODES.length];
+		public int others;
+		public int instructions;		// sem contar os rótulos
+		public int blocks;
+		public long stackBytes;
+		public final int sourceNodes;	// 0 para os construtores, que não têm fonte
+		public boolean outlier;
+
+		Function(String name, String owner, String method, int sourceNodes){
+			this.name = name;
+			this.owner = owner;
+			this.method = method;
+			this.sourceNodes = sourceNodes;
+		}
+
+		void count(LlvmInstruction i){
+			if (i instanceof LlvmLabel) {
+				blocks++;
+				return;
+			}
+			instructions++;
+			for (int k = 0; k < CLASSES.length; k++)
+				if (CLASSES[k] == i.getClass()) {
+					ops[k]++;
+					if (i instanceof LlvmAlloca)
+						stackBytes += allocaBytes((LlvmAlloca) i);
+					return;
+				}
+			others++;
+		}
+
+		public double ratio(){
+			return (double) instructions / sourceNodes;
+		}
+
+		private static long allocaBytes(LlvmAlloca a){
+			long n = 1;
+			for (LlvmValue v : a.numbers)
+				if (v instanceof LlvmIntegerLiteral)
+					n *= ((LlvmIntegerLiteral) v).value;
+			return n * sizeOf(a.type);
+		}
+	}
+
+	/* A struct de uma classe e o total do IR das suas funções */
+	public static class Struct {
+		public final String name;
+		public final int fields;
+		public final int sizeByte;
+		public int functions;
+		public int instructions;
+
+		Struct(String name, int fields, int sizeByte){
+			this.name = name;
+			this.fields = fields;
+			this.sizeByte = sizeByte;
+		}
+	}
+
+	/* Método do fonte que deu origem a uma função */
+	static class Source {
+		final String method;
+		final int nodes;
+
+		Source(String method, int nodes){
+			this.method = method;
+			this.nodes = nodes;
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package llvm;
+
+import java.util.*;
+
+import llvmast.LlvmAlloca;
+import llvmast.LlvmBasicBlock;
+import llvmast.LlvmDefUse;
+import llvmast.LlvmDominators;
+import llvmast.LlvmFunction;
+import llvmast.LlvmInstruction;
+import llvmast.LlvmLoad;
+import llvmast.LlvmNamedValue;
+import llvmast.LlvmPhi;
+import llvmast.LlvmRegister;
+import llvmast.LlvmStore;
+import llvmast.LlvmValue;
+
+/**
+ * Promoção dos locais e parâmetros para registradores (o mem2reg do LLVM). O
+ * Codegen dá a cada VarDecl um alloca e a cada Formal uma cópia em %nome_tmp, e
+ * toda leitura é um load; aqui os allocas que só são lidos e escritos
+ * diretamente (nunca passados adiante como endereço) viram valores SSA:
+ *
+ *   - os phis vão na fronteira de dominância iterada dos blocos com store,
+ *     mas só onde a variável está viva na entrada (SSA podado): um local que
+ *     só é usado dentro do corpo de um while não ganha phi no whileCond;
+ *   - percorrendo o CFG a partir da entrada, cada load dá lugar ao valor que
+ *     chega até ele, e os stores e o alloca somem;
+ *   - um local lido antes de qualquer store vale 'undef', como o load de um
+ *     alloca não inicializado valia;
+ *   - por fim, as instruções que ficaram sem uso (phis e loads de atributos cujo
+ *     valor nunca foi lido) saem com o LlvmDefUse.removeDeadCode.
+ *
+ * Funções com blocos inalcançáveis ficam como estão: o phi precisaria de uma
+ * entrada para um predecessor sem rótulo. O Codegen não as produz.
+ */
+public class Mem2Reg {
+	private final LlvmFunction function;
+	private LlvmDefUse du;
+	private LlvmDominators dom;
+	private final List<LlvmAlloca> allocas = new ArrayList<LlvmAlloca>();	// os promovíveis
+	private final Map<String, Integer> index = new HashMap<String, Integer>();	// nome do alloca -> posição em 'allocas'
+	private final Map<LlvmBasicBlock, LlvmPhi[]> phis = new HashMap<LlvmBasicBlock, LlvmPhi[]>();
+	private int[] versions;		// próximo sufixo de phi de cada alloca
+
+	// Resultados, para as observações
+	public int promoted;		// allocas promovidos
+	public int candidates;		// allocas da função
+	public int phiCount;		// phis inseridos
+	public int removed;			// instruções a menos no fim
+
+	public Mem2Reg(LlvmFunction function){
+		this.function = function;
+	}
+
+	// Promove o que der; devolve quantos allocas foram promovidos
+	public int run(){
+		if (function.entry() == null)
+			return 0;
+		int before = function.size();
+		dom = new LlvmDominators(function);
+		for (LlvmBasicBlock b : function.blocks)
+			if (!dom.isReachable(b))
+				return 0;
+		du = new LlvmDefUse(function);
+		findPromotable();
+		if (allocas.isEmpty())
+			return 0;
+		versions = new int[allocas.size()];
+		for (int k = 0; k < allocas.size(); k++)
+			placePhis(k);
+		rename();
+		for (LlvmAlloca a : allocas)
+			du.remove(a);
+		du.compact();
+		// as cadeias não viram os operandos dos phis, que chegaram depois
+		new LlvmDefUse(function).removeDeadCode();
+		promoted = allocas.size();
+		removed = before - function.size();
+		return promoted;
+	}
+
+	// Passa o mem2reg em cada função fechada do módulo e registra o resultado em 'remarks'
+	// (pode ser null); devolve o total de instruções removidas
+	static int run(List<LlvmFunction> functions, Remarks remarks){
+		int removed = 0;
+		for (LlvmFunction f : functions) {
+			if (f.close == null)
+				continue;
+			Mem2Reg m = new Mem2Reg(f);
+			if (m.run() > 0 && remarks != null)
+				remarks.add(Remarks.PASSED, "mem2reg", "Promoted", f.name(), null,
+						"promoted " + m.promoted + " of " + m.candidates + " stack slots to registers ("
+						+ m.phiCount + " phis, " + m.removed + " fewer instructions)");
+			removed += m.removed;
+		}
+		return removed;
+	}
+
+	/* Allocas escalares cujo endereço só aparece como o endereço de um load ou store */
+	private void findPromotable(){
+		for (LlvmBasicBlock b : function.blocks)
+			for (LlvmInstruction i : b.instructions) {
+				if (!(i instanceof LlvmAlloca))
+					continue;
+				LlvmAlloca a = (LlvmAlloca) i;
+				candidates++;
+				if (onlyLoadedAndStored(du, a)) {
+					index.put(((LlvmRegister) a.lhs).name, allocas.size());
+					allocas.add(a);
+				}
+			}
+	}
+
+	// Também é o critério do StackColoring para juntar slots
+	static boolean onlyLoadedAndStored(LlvmDefUse du, LlvmAlloca a){
+		if (!a.numbers.isEmpty() || !(a.lhs instanceof LlvmRegister))
+			return false;
+		for (LlvmInstruction u : du.users(a.lhs)) {
+			if (u instanceof LlvmLoad)
+				continue;
+			if (u instanceof LlvmStore && !LlvmInstruction.same(((LlvmStore) u).content, a.lhs))
+				continue;
+			return false;
+		}
+		return true;
+	}
+
+	// Posição em 'allocas' do alloca cujo endereço é 'address', ou -1
+	private int promotedAt(LlvmValue address){
+		if (!(address instanceof LlvmRegister))
+			return -1;
+		Integer k = index.get(((LlvmRegister) address).name);
+		return k == null ? -1 : k;
+	}
+
+	/* Phis do alloca 'k': fronteira iterada dos stores, só onde ele está vivo na entrada */
+	private void placePhis(int k){
+		LlvmAlloca a = allocas.get(k);
+		Set<LlvmBasicBlock> defs = new HashSet<LlvmBasicBlock>();
+		Deque<LlvmBasicBlock> live = new ArrayDeque<LlvmBasicBlock>();
+		// blocos que leem a variável antes de escrevê-la
+		Set<LlvmBasicBlock> seen = new HashSet<LlvmBasicBlock>();
+		for (LlvmInstruction u : du.users(a.lhs)) {
+			LlvmBasicBlock b = du.blockOf(u);
+			if (u instanceof LlvmStore)
+				defs.add(b);
+			else if (seen.add(b) && upwardExposed(b, k))
+				live.add(b);
+		}
+		// vivo na entrada de um bloco: vivo também na dos predecessores que não o escrevem
+		Set<LlvmBasicBlock> liveIn = new HashSet<LlvmBasicBlock>(live);
+		while (!live.isEmpty())
+			for (LlvmBasicBlock p : live.poll().predecessors)
+				if (!defs.contains(p) && liveIn.add(p))
+					live.add(p);
+
+		// na ordem do texto, para que a numeração dos phis não dependa dos hashes
+		Set<LlvmBasicBlock> frontier = dom.iteratedFrontier(defs);
+		String base = ((LlvmRegister) a.lhs).name;
+		for (LlvmBasicBlock b : function.blocks) {
+			if (!frontier.contains(b) || !liveIn.contains(b))
+				continue;
+			LlvmPhi phi = new LlvmPhi(new LlvmRegister(base + "." + versions[k]++, a.type), a.type);
+			du.insert(b, 0, phi);
+			phisOf(b)[k] = phi;
+			phiCount++;
+		}
+	}
+
+	// O bloco lê a variável 'k' antes de (ou sem) escrevê-la
+	private boolean upwardExposed(LlvmBasicBlock b, int k){
+		for (LlvmInstruction i : b.instructions) {
+			if (i instanceof LlvmStore && promotedAt(((LlvmStore) i).address) == k)
+				return false;
+			if (i instanceof LlvmLoad && promotedAt(((LlvmLoad) i).address) == k)
+				return true;
+		}
+		return false;
+	}
+
+	private LlvmPhi[] phisOf(LlvmBasicBlock b){
+		LlvmPhi[] p = phis.get(b);
+		if (p == null) {
+			p = new LlvmPhi[allocas.size()];
+			phis.put(b, p);
+		}
+		return p;
+	}
+
+	/*
+	 * Percorre o CFG a partir da entrada levando o valor corrente de cada
+	 * variável. Ao chegar num bloco, os phis dele recebem os valores vindos do
+	 * predecessor; só na primeira chegada o bloco é reescrito e os sucessores
+	 * entram na pilha. Um bloco é sempre visitado depois dos que o dominam, então
+	 * o valor que chega a um load já está resolvido.
+	 */
+	private void rename(){
+		LlvmValue[] initial = new LlvmValue[allocas.size()];
+		for (int k = 0; k < initial.length; k++)
+			initial[k] = new LlvmNamedValue("undef", allocas.get(k).type);
+		Set<LlvmBasicBlock> visited = new HashSet<LlvmBasicBlock>();
+		Deque<Visit> stack = new ArrayDeque<Visit>();
+		stack.push(new Visit(function.entry(), null, initial));
+		while (!stack.isEmpty()) {
+			Visit v = stack.pop();
+			LlvmBasicBlock b = v.block;
+			LlvmValue[] values = v.values;
+			LlvmPhi[] p = phis.get(b);
+			if (p != null)
+				for (int k = 0; k < p.length; k++)
+					if (p[k] != null) {
+						p[k].addIncoming(values[k], v.from.label.label);
+						values[k] = p[k].lhs;
+					}
+			if (!visited.add(b))
+				continue;
+			// as remoções só saem do bloco no compact, então dá para percorrê-lo direto
+			for (LlvmInstruction i : b.instructions) {
+				if (i instanceof LlvmLoad) {
+					int k = promotedAt(((LlvmLoad) i).address);
+					if (k >= 0) {
+						du.replaceAllUsesWith(((LlvmLoad) i).lhs, values[k]);
+						du.remove(i);
+					}
+				} else if (i instanceof LlvmStore) {
+					int k = promotedAt(((LlvmStore) i).address);
+					if (k >= 0) {
+						values[k] = ((LlvmStore) i).content;
+						du.remove(i);
+					}
+				}
+			}
+			for (LlvmBasicBlock s : b.successors)
+				stack.push(new Visit(s, b, values.clone()));
+		}
+	}
+
+	private static class Visit {
+		final LlvmBasicBlock block;
+		final LlvmBasicBlock from;		// predecessor pelo qual se chegou; null na entrada
+		final LlvmValue[] values;		// valor corrente de cada alloca, ao sair de 'from'
+
+		Visit(LlvmBasicBlock block, LlvmBasicBlock from, LlvmValue[] values){
+			this.block = block;
+			this.from = from;
+			this.values = values;
+		}
+	}
+}
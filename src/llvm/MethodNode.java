@@ -0,0 +1,81 @@
+package llvm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import llvmast.LlvmRegister;
+import llvmast.LlvmType;
+import llvmast.LlvmValue;
+
+class MethodNode {
+	
+	private String nameMethod;
+	private List<LlvmValue> formalList;
+	private List<LlvmValue> localList;
+	private LlvmType methodType;
+	private Map<String, VarSlot> slots;	// Usage: give variable name, get its slot
+	
+	public MethodNode(String nameMethod, List<LlvmValue> formalList, List<LlvmValue> localList){
+		this.setNameMethod(nameMethod);
+		this.setFormalList(formalList);
+		this.setLocalList(localList);
+	}
+
+	public String getNameMethod() {
+		return nameMethod;
+	}
+
+	public void setNameMethod(String nameMethod) {
+		this.nameMethod = nameMethod;
+	}
+
+	public List<LlvmValue> getFormalList() {
+		return formalList;
+	}
+
+	public void setFormalList(List<LlvmValue> formalList) {
+		this.formalList = formalList;
+	}
+
+	public List<LlvmValue> getLocalList() {
+		return localList;
+	}
+
+	public void setLocalList(List<LlvmValue> localList) {
+		this.localList = localList;
+	}
+
+	public LlvmType getMethodType() {
+		return methodType;
+	}
+
+	public void setMethodType(LlvmType methodType) {
+		this.methodType = methodType;
+	}
+	
+	// Monta o índice nome -> slot visível no corpo do método. Como em Java, locais e
+	// formais escondem atributos de mesmo nome. Chamado uma vez pela SymTab.
+	public void buildSlots(ClassNode classNode) {
+		slots = new HashMap<String, VarSlot>(classNode.getFieldSlots());
+		int i = 0;
+		for (LlvmValue lv : formalList) {
+			LlvmRegister lr = (LlvmRegister) lv;
+			String name = lr.name.substring(1);
+			// %this não é uma variável do programa
+			if (i > 0)
+				slots.put(name, new VarSlot(VarSlot.FORMAL, i, lr.type, lr.name + "_tmp"));
+			i++;
+		}
+		i = 0;
+		for (LlvmValue lv : localList) {
+			LlvmRegister lr = (LlvmRegister) lv;
+			slots.put(lr.name.substring(1), new VarSlot(VarSlot.LOCAL, i++, lr.type, lr.name));
+		}
+	}
+	
+	public VarSlot getSlot(String name) {
+		return slots.get(name);
+	}
+	
+}
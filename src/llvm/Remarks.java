@@ -0,0 +1,144 @@
+package llvm;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import syntaxtree.Absyn;
+
+/**
+ * Observações do Codegen sobre o que ele otimizou ou deixou de otimizar, no
+ * espírito do -pass-remarks do LLVM. Cada observação tem o tipo (Passed,
+ * Missed ou Analysis), o "passo" que a gerou, a função do IR e a posição no
+ * fonte (line/row do nó da syntaxtree).
+ *
+ * Saída em YAML (parecida com a do -pass-remarks-output do LLVM) ou em JSONL,
+ * uma observação por linha. A ordem é a do fonte (linha, coluna, passo,
+ * mensagem), e não a de geração, para que duas versões do compilador possam
+ * ser comparadas com diff mesmo com a geração paralela.
+ *
+ *   Remarks r = new Remarks("Fonte.java");
+ *   codegen.setRemarks(r);
+ *   codegen.translate(...);
+ *   r.write("Fonte.remarks.yaml");
+ */
+public class Remarks {
+	public static final String PASSED = "Passed";
+	public static final String MISSED = "Missed";
+	public static final String ANALYSIS = "Analysis";
+
+	private final String file;
+	private final List<Remark> remarks = new ArrayList<Remark>();
+
+	// 'file' é o nome do fonte que vai em cada observação (pode ser null)
+	public Remarks(String file){
+		this.file = file;
+	}
+
+	synchronized void add(String kind, String pass, String name, String function, Absyn at, String message){
+		remarks.add(new Remark(kind, pass, name, function, at == null ? 0 : at.line, at == null ? 0 : at.row, message));
+	}
+
+	public synchronized int size(){
+		return remarks.size();
+	}
+
+	// As observações na ordem do fonte
+	public synchronized List<Remark> sorted(){
+		List<Remark> l = new ArrayList<Remark>(remarks);
+		Collections.sort(l, new Comparator<Remark>() {
+			public int compare(Remark a, Remark b){
+				if (a.line != b.line)
+					return a.line < b.line ? -1 : 1;
+				if (a.column != b.column)
+					return a.column < b.column ? -1 : 1;
+				int c = a.pass.compareTo(b.pass);
+				if (c == 0)
+					c = a.message.compareTo(b.message);
+				return c != 0 ? c : a.function.compareTo(b.function);
+			}
+		});
+		return l;
+	}
+
+	public void appendYaml(Appendable out) throws IOException {
+		for (Remark r : sorted()) {
+			out.append("--- !").append(r.kind).append('\n');
+			out.append("Pass:            ").append(r.pass).append('\n');
+			out.append("Name:            ").append(r.name).append('\n');
+			out.append("DebugLoc:        { File: ");
+			yaml(out, file == null ? "" : file);
+			out.append(", Line: ").append(String.valueOf(r.line))
+				.append(", Column: ").append(String.valueOf(r.column)).append(" }\n");
+			out.append("Function:        ");
+			yaml(out, r.function);
+			out.append("\nMessage:         ");
+			yaml(out, r.message);
+			out.append("\n...\n");
+		}
+	}
+
+	public void appendJsonl(Appendable out) throws IOException {
+		for (Remark r : sorted()) {
+			out.append("{\"kind\": ");
+			IrStats.string(out, r.kind);
+			out.append(", \"pass\": ");
+			IrStats.string(out, r.pass);
+			out.append(", \"name\": ");
+			IrStats.string(out, r.name);
+			out.append(", \"file\": ");
+			IrStats.string(out, file);
+			out.append(", \"line\": ").append(String.valueOf(r.line))
+				.append(", \"column\": ").append(String.valueOf(r.column))
+				.append(", \"function\": ");
+			IrStats.string(out, r.function);
+			out.append(", \"message\": ");
+			IrStats.string(out, r.message);
+			out.append("}\n");
+		}
+	}
+
+	// Grava em 'path': JSONL se terminar em .jsonl, YAML nos demais casos
+	public void write(String path) throws IOException {
+		Writer out = new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8);
+		try {
+			if (path.endsWith(".jsonl"))
+				appendJsonl(out);
+			else
+				appendYaml(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	// Escalar YAML entre aspas simples (o único escape é '' para ')
+	private static void yaml(Appendable out, String s) throws IOException {
+		out.append('\'').append(s.replace("'", "''")).append('\'');
+	}
+
+	public static class Remark {
+		public final String kind;
+		public final String pass;
+		public final String name;
+		public final String function;
+		public final int line;
+		public final int column;
+		public final String message;
+
+		Remark(String kind, String pass, String name, String function, int line, int column, String message){
+			this.kind = kind;
+			this.pass = pass;
+			this.name = name;
+			this.function = function;
+			this.line = line;
+			this.column = column;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package llvm;
+
+import java.util.*;
+
+import flow_graph.FlowGraph;
+import graph.Node;
+import llvmast.LlvmAlloca;
+import llvmast.LlvmBasicBlock;
+import llvmast.LlvmFunction;
+import llvmast.LlvmInstruction;
+import llvmast.LlvmLoad;
+import llvmast.LlvmRegister;
+import llvmast.LlvmStore;
+import llvmast.LlvmValue;
+import temp.Temp;
+
+/**
+ * O CFG de uma LlvmFunction no formato do flow_graph do jar, um nó por
+ * instrução, para o reg_alloc.Liveness calcular a vivacidade dos slots da
+ * pilha. Cada slot (alloca) é um Temp: o alloca e os stores nele o definem,
+ * os loads dele o usam. O resto das instruções não define nem usa nada.
+ */
+class SlotFlowGraph extends FlowGraph {
+	private final Map<String, Temp> temps;		// nome do alloca -> Temp do slot
+	private final Map<Node, LlvmInstruction> instructions = new HashMap<Node, LlvmInstruction>();
+	private final Map<LlvmInstruction, Node> nodes = new IdentityHashMap<LlvmInstruction, Node>();
+
+	SlotFlowGraph(LlvmFunction function, Map<String, Temp> temps){
+		this.temps = temps;
+		Map<LlvmBasicBlock, Node> first = new HashMap<LlvmBasicBlock, Node>();
+		Map<LlvmBasicBlock, Node> last = new HashMap<LlvmBasicBlock, Node>();
+		for (LlvmBasicBlock b : function.blocks) {
+			Node prev = null;
+			for (LlvmInstruction i : b.instructions) {
+				Node n = newNode();
+				instructions.put(n, i);
+				nodes.put(i, n);
+				if (prev == null)
+					first.put(b, n);
+				else
+					addEdge(prev, n);
+				prev = n;
+			}
+			last.put(b, prev);
+		}
+		for (LlvmBasicBlock b : function.blocks)
+			for (LlvmBasicBlock s : b.successors)
+				if (last.get(b) != null && first.get(s) != null)
+					addEdge(last.get(b), first.get(s));
+	}
+
+	Node node(LlvmInstruction i){
+		return nodes.get(i);
+	}
+
+	// Slot lido (load) ou escrito (alloca, store) pela instrução, ou null
+	Temp slot(LlvmInstruction i){
+		if (i instanceof LlvmAlloca)
+			return temp(((LlvmAlloca) i).lhs);
+		if (i instanceof LlvmStore)
+			return temp(((LlvmStore) i).address);
+		if (i instanceof LlvmLoad)
+			return temp(((LlvmLoad) i).address);
+		return null;
+	}
+
+	private Temp temp(LlvmValue v){
+		return v instanceof LlvmRegister ? temps.get(((LlvmRegister) v).name) : null;
+	}
+
+	public util.List<Temp> def(Node n){
+		LlvmInstruction i = instructions.get(n);
+		if (i instanceof LlvmLoad)
+			return null;
+		Temp t = slot(i);
+		return t == null ? null : new util.List<Temp>(t, null);
+	}
+
+	public util.List<Temp> use(Node n){
+		LlvmInstruction i = instructions.get(n);
+		if (!(i instanceof LlvmLoad))
+			return null;
+		Temp t = slot(i);
+		return t == null ? null : new util.List<Temp>(t, null);
+	}
+
+	public boolean isMove(Node n){
+		return false;
+	}
+}
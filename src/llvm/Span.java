@@ -0,0 +1,116 @@
+package llvm;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import jdk.jfr.Event;
+
+/**
+ * Um trecho medido do compilador (fase, classe ou método): tempo de parede,
+ * bytes alocados pela thread e instruções emitidas. Ao terminar, vira um evento
+ * do JFR (CompileEvents) e/ou entra no CompileStats.
+ *
+ * Quando não há CompileStats nem gravação do JFR com o evento habilitado, o
+ * Span não lê relógio nem contador de alocação; sobra só a criação do objeto.
+ *
+ *   Span s = Span.phase(stats, Span.PARSE, arquivo);
+ *   ...
+ *   s.end(instruções);
+ */
+public final class Span {
+	public static final String PARSE = "parse";
+	public static final String CHECK = "check";
+	public static final String SYMTAB = "symtab";
+	public static final String TRANSLATE = "translate";
+	public static final String RENDER = "render";
+
+	static final int PHASE = 0;
+	static final int CLASS = 1;
+	static final int METHOD = 2;
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean ALLOCATION = allocationSupported();
+
+	final int kind;
+	final String name;		// fase, classe ou método
+	final String owner;		// fonte (fase) ou classe (método)
+	private final Event event;
+	private final CompileStats stats;
+	private final boolean active;
+	private final long startNanos;
+	private final long startBytes;
+	boolean cached;
+
+	private Span(int kind, String name, String owner, Event event, CompileStats stats){
+		this.kind = kind;
+		this.name = name;
+		this.owner = owner;
+		this.event = event;
+		this.stats = stats;
+		this.active = stats != null || event.isEnabled();
+		if (active) {
+			event.begin();
+			startNanos = System.nanoTime();
+			startBytes = allocatedBytes();
+		} else {
+			startNanos = 0;
+			startBytes = 0;
+		}
+	}
+
+	public static Span phase(CompileStats stats, String phase, String source){
+		return new Span(PHASE, phase, source, new CompileEvents.Phase(), stats);
+	}
+
+	static Span ofClass(CompileStats stats, String className){
+		return new Span(CLASS, className, null, new CompileEvents.ClassCodegen(), stats);
+	}
+
+	static Span ofMethod(CompileStats stats, String className, String method){
+		return new Span(METHOD, method, className, new CompileEvents.MethodCodegen(), stats);
+	}
+
+	public void end(long instructions){
+		if (!active)
+			return;
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = allocatedBytes() - startBytes;
+		event.end();
+		if (event.shouldCommit()) {
+			if (kind == PHASE) {
+				CompileEvents.Phase e = (CompileEvents.Phase) event;
+				e.phase = name;
+				e.source = owner;
+				e.allocated = bytes;
+				e.instructions = instructions;
+			} else if (kind == CLASS) {
+				CompileEvents.ClassCodegen e = (CompileEvents.ClassCodegen) event;
+				e.className = name;
+				e.allocated = bytes;
+				e.instructions = instructions;
+				e.cached = cached;
+			} else {
+				CompileEvents.MethodCodegen e = (CompileEvents.MethodCodegen) event;
+				e.className = owner;
+				e.method = name;
+				e.allocated = bytes;
+				e.instructions = instructions;
+			}
+			event.commit();
+		}
+		if (stats != null)
+			stats.add(this, nanos, bytes, instructions);
+	}
+
+	// Bytes alocados até agora pela thread atual (0 se a JVM não informa)
+	static long allocatedBytes(){
+		if (!ALLOCATION)
+			return 0;
+		return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static boolean allocationSupported(){
+		return THREADS instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+	}
+}
@@ -0,0 +1,242 @@
+package llvm;
+
+import java.util.*;
+
+import graph.Node;
+import llvmast.LlvmAlloca;
+import llvmast.LlvmBasicBlock;
+import llvmast.LlvmBitcast;
+import llvmast.LlvmCall;
+import llvmast.LlvmDefUse;
+import llvmast.LlvmExternalDeclaration;
+import llvmast.LlvmFunction;
+import llvmast.LlvmInstruction;
+import llvmast.LlvmIntegerLiteral;
+import llvmast.LlvmLoad;
+import llvmast.LlvmPointer;
+import llvmast.LlvmPrimitiveType;
+import llvmast.LlvmRegister;
+import llvmast.LlvmStore;
+import llvmast.LlvmType;
+import llvmast.LlvmValue;
+import reg_alloc.Liveness;
+import temp.Temp;
+
+/**
+ * Coloração dos slots da pilha: dois allocas do mesmo tipo cujos intervalos de
+ * vida não se cruzam passam a usar um único slot. A vivacidade é a do
+ * reg_alloc.Liveness do jar, sobre o SlotFlowGraph da função; dois slots
+ * interferem quando um é escrito (pelo alloca ou por um store) onde o outro
+ * está vivo, e a coloração é gulosa, na ordem dos allocas.
+ *
+ * Só entram os allocas que o Mem2Reg também promoveria (lidos e escritos
+ * diretamente); com o Mem2Reg ligado antes, não sobra nenhum.
+ *
+ * Com 'lifetimes', cada variável ganha os marcadores do LLVM no slot dela:
+ *
+ *   llvm.lifetime.start  antes de um store que a escreve sem que ela estivesse viva
+ *   llvm.lifetime.end    logo depois do último acesso, onde ela morre no bloco
+ *
+ * Quando ela morre numa aresta (na saída de um while, por exemplo) não há onde
+ * pôr o end sem dividir a aresta; o slot só fica vivo por mais tempo. Os
+ * tamanhos são os de i1 e i32; os ponteiros vão com -1 (tamanho desconhecido),
+ * que não depende do alvo.
+ */
+public class StackColoring {
+	static final String LIFETIME_START = "@llvm.lifetime.start";
+	static final String LIFETIME_END = "@llvm.lifetime.end";
+
+	private final LlvmFunction function;
+	private final boolean lifetimes;
+	private LlvmDefUse du;
+	private SlotFlowGraph graph;
+	private Liveness live;
+	private final List<LlvmAlloca> allocas = new ArrayList<LlvmAlloca>();
+	private final Map<String, Temp> temps = new HashMap<String, Temp>();			// nome do alloca -> Temp
+	private final Map<Temp, LlvmAlloca> slotOf = new HashMap<Temp, LlvmAlloca>();	// Temp -> alloca que fica
+	private final Map<LlvmAlloca, LlvmRegister> bytes = new IdentityHashMap<LlvmAlloca, LlvmRegister>();	// slot como i8*
+
+	// Resultados, para as observações
+	public int slots;			// allocas considerados
+	public int merged;			// allocas que passaram a usar o slot de outro
+	public int markers;			// chamadas ao llvm.lifetime inseridas
+
+	public StackColoring(LlvmFunction function, boolean lifetimes){
+		this.function = function;
+		this.lifetimes = lifetimes;
+	}
+
+	// Junta os slots e põe os marcadores; devolve quantos allocas sumiram
+	public int run(){
+		if (function.entry() == null)
+			return 0;
+		du = new LlvmDefUse(function);
+		for (LlvmBasicBlock b : function.blocks)
+			for (LlvmInstruction i : b.instructions)
+				if (i instanceof LlvmAlloca && Mem2Reg.onlyLoadedAndStored(du, (LlvmAlloca) i)) {
+					LlvmAlloca a = (LlvmAlloca) i;
+					allocas.add(a);
+					temps.put(((LlvmRegister) a.lhs).name, new Temp());
+				}
+		slots = allocas.size();
+		if (allocas.isEmpty())
+			return 0;
+		graph = new SlotFlowGraph(function, temps);
+		live = new Liveness(graph);
+		color();
+		if (lifetimes)
+			insertMarkers();
+		for (LlvmAlloca a : allocas) {
+			LlvmAlloca s = slotOf.get(temp(a));
+			if (s != a) {
+				du.replaceAllUsesWith(a.lhs, s.lhs);
+				du.remove(a);
+				merged++;
+			}
+		}
+		du.compact();
+		return merged;
+	}
+
+	// Passa a coloração em cada função fechada e registra o resultado em 'remarks'
+	// (pode ser null); devolve o total de allocas removidos
+	static int run(List<LlvmFunction> functions, boolean lifetimes, Remarks remarks){
+		int merged = 0;
+		for (LlvmFunction f : functions) {
+			if (f.close == null)
+				continue;
+			StackColoring c = new StackColoring(f, lifetimes);
+			c.run();
+			// com um slot só não há o que juntar
+			if (c.slots > 1 && remarks != null)
+				remarks.add(c.merged > 0 ? Remarks.PASSED : Remarks.MISSED, "stack-coloring",
+						c.merged > 0 ? "SlotsMerged" : "SlotsInterfere", f.name(), null,
+						"merged " + c.merged + " of " + c.slots + " stack slots (" + (c.slots - c.merged)
+						+ " left), " + c.markers + " lifetime markers");
+			merged += c.merged;
+		}
+		return merged;
+	}
+
+	// Declarações dos marcadores, para o fim do módulo
+	static List<LlvmInstruction> declarations(){
+		List<LlvmType> pts = new ArrayList<LlvmType>();
+		pts.add(LlvmPrimitiveType.I64);
+		pts.add(LlvmPointer.of(LlvmPrimitiveType.I8));
+		List<LlvmInstruction> l = new ArrayList<LlvmInstruction>();
+		l.add(new LlvmExternalDeclaration(LIFETIME_START, LlvmPrimitiveType.VOID, pts));
+		l.add(new LlvmExternalDeclaration(LIFETIME_END, LlvmPrimitiveType.VOID, pts));
+		return l;
+	}
+
+	private Temp temp(LlvmAlloca a){
+		return temps.get(((LlvmRegister) a.lhs).name);
+	}
+
+	/* Cada alloca vai para o primeiro slot do mesmo tipo sem interferência com quem já está nele */
+	private void color(){
+		List<LlvmAlloca> colors = new ArrayList<LlvmAlloca>();
+		Map<LlvmAlloca, List<Temp>> members = new IdentityHashMap<LlvmAlloca, List<Temp>>();
+		for (LlvmAlloca a : allocas) {
+			Temp t = temp(a);
+			LlvmAlloca chosen = null;
+			for (LlvmAlloca c : colors)
+				if (c.type == a.type && !interferes(t, members.get(c))) {
+					chosen = c;
+					break;
+				}
+			if (chosen == null) {
+				chosen = a;
+				colors.add(a);
+				members.put(a, new ArrayList<Temp>());
+			}
+			members.get(chosen).add(t);
+			slotOf.put(t, chosen);
+		}
+	}
+
+	private boolean interferes(Temp t, List<Temp> others){
+		Node n = live.tnode(t);
+		for (Temp o : others)
+			if (n.adj(live.tnode(o)))
+				return true;
+		return false;
+	}
+
+	/*
+	 * Percorre cada bloco com o estado de cada variável (viva ou não) a partir da
+	 * vivacidade na entrada. Os marcadores de uma variável usam o slot que ficou
+	 * com ela; como ela não interfere com as outras do slot, os intervalos
+	 * marcados de cada uma não se sobrepõem.
+	 */
+	private void insertMarkers(){
+		for (LlvmBasicBlock b : function.blocks) {
+			Map<Temp, Boolean> alive = new HashMap<Temp, Boolean>();
+			// as chamadas só entram no bloco no compact, então dá para percorrê-lo direto
+			for (LlvmInstruction i : b.instructions) {
+				Temp t = graph.slot(i);
+				if (t == null || i instanceof LlvmAlloca)
+					continue;
+				Boolean state = alive.get(t);
+				if (state == null)
+					state = liveIn(b, t);
+				if (i instanceof LlvmStore && !state) {
+					insert(i, false, LIFETIME_START, t);
+					state = true;
+				}
+				// uma leitura sem nada vivo (local não inicializado) não abre nem fecha nada
+				if (state && !live.Out(graph.node(i)).contains(t)) {
+					insert(i, true, LIFETIME_END, t);
+					state = false;
+				}
+				alive.put(t, state);
+			}
+		}
+	}
+
+	// 't' está viva na entrada de 'b'
+	private boolean liveIn(LlvmBasicBlock b, Temp t){
+		for (LlvmInstruction i : b.instructions) {
+			if (graph.slot(i) != t)
+				continue;
+			if (i instanceof LlvmLoad)
+				return true;
+			return false;
+		}
+		return live.Out(graph.node(b.instructions.get(b.instructions.size() - 1))).contains(t);
+	}
+
+	// Põe a chamada 'fn' no slot de 't' antes (ou depois) de 'at'
+	private void insert(LlvmInstruction at, boolean after, String fn, Temp t){
+		LlvmAlloca slot = slotOf.get(t);
+		List<LlvmValue> args = new ArrayList<LlvmValue>();
+		args.add(LlvmIntegerLiteral.of(size(slot.type), LlvmPrimitiveType.I64));
+		args.add(bytes(slot));
+		LlvmCall call = new LlvmCall(null, LlvmPrimitiveType.VOID, fn, args);
+		if (after)
+			du.insertAfter(at, call);
+		else
+			du.insertBefore(at, call);
+		markers++;
+	}
+
+	// %x.i8 = bitcast %x para i8*, criado uma vez por slot logo depois do alloca
+	private LlvmRegister bytes(LlvmAlloca slot){
+		LlvmRegister r = bytes.get(slot);
+		if (r == null) {
+			LlvmType i8p = LlvmPointer.of(LlvmPrimitiveType.I8);
+			r = new LlvmRegister(((LlvmRegister) slot.lhs).name + ".i8", i8p);
+			du.insertAfter(slot, new LlvmBitcast(r, slot.lhs, i8p));
+			bytes.put(slot, r);
+		}
+		return r;
+	}
+
+	private static int size(LlvmType type){
+		if (type == LlvmPrimitiveType.I1)
+			return 1;
+		if (type == LlvmPrimitiveType.I32)
+			return 4;
+		return -1;
+	}
+}
@@ -0,0 +1,274 @@
+package llvm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import llvmast.LlvmArray;
+import llvmast.LlvmNamedValue;
+import llvmast.LlvmPointer;
+import llvmast.LlvmPrimitiveType;
+import llvmast.LlvmRegister;
+import llvmast.LlvmStructure;
+import llvmast.LlvmType;
+import llvmast.LlvmValue;
+import syntaxtree.BooleanType;
+import syntaxtree.ClassDecl;
+import syntaxtree.ClassDeclExtends;
+import syntaxtree.ClassDeclSimple;
+import syntaxtree.Formal;
+import syntaxtree.IdentifierType;
+import syntaxtree.IntArrayType;
+import syntaxtree.IntegerType;
+import syntaxtree.MainClass;
+import syntaxtree.MethodDecl;
+import syntaxtree.Program;
+import syntaxtree.VarDecl;
+import syntaxtree.VisitorAdapter;
+
+/**********************************************************************************/
+/* === Tabela de Símbolos ==== 
+ * 
+ * 
+ */
+/**********************************************************************************/
+
+class SymTab extends VisitorAdapter{
+    public Map<String, ClassNode> classes;
+    public Map<String, MethodNode> methods;
+    private ClassNode classEnv;    //aponta para a classe em uso
+    
+    public SymTab(){
+    	classes = new HashMap<String, ClassNode>();
+    	methods = new HashMap<String, MethodNode>();
+    }
+
+    public LlvmValue FillTabSymbol(Program n){
+		n.accept(this);
+		return null;
+	}
+	public LlvmValue visit(Program n){
+		n.mainClass.accept(this);
+	
+		for (util.List<ClassDecl> c = n.classList; c != null; c = c.tail)
+			c.head.accept(this);
+	
+		return null;
+	}
+	
+	public LlvmValue visit(MainClass n){
+		classEnv = classes.put(n.className.s, new ClassNode(
+				n.className.s,
+				LlvmStructure.of(new ArrayList<LlvmType>()), 
+				new ArrayList<LlvmValue>()));
+		return null;
+	}
+	
+	public LlvmValue visit(ClassDeclSimple n){
+		
+		List<LlvmValue> varList = new ArrayList<LlvmValue>();		
+		List<LlvmType> typeList = new ArrayList<LlvmType>();		
+
+		// Constroi VarList com as Variáveis da Classe
+		// Constroi TypeList com os tipos das variáveis da Classe (vai formar a Struct da classe)		
+		int i, j;
+		if(n.methodList != null && n.methodList.size() > 0)
+			typeList.add(LlvmArray.of(n.methodList.size(), LlvmPointer.of(LlvmPrimitiveType.I8)));
+		if(n.varList != null && n.varList.size() > 0){
+			j = n.varList.size();
+			util.List<VarDecl> aux = n.varList;
+			for(i = 0; i < j; i++) {
+				varList.add(aux.head.accept(this));
+				LlvmType auxType = aux.head.type.accept(this).type;
+				typeList.add(auxType);
+				aux = aux.tail;
+			}
+		}
+		
+		if(classes.containsKey(n.name.s)) {
+			classEnv = classes.get(n.name.s);
+		} else {
+			classEnv = new ClassNode(
+					n.name.s,
+					LlvmStructure.of(typeList),
+					varList);
+		}
+		
+	    // Percorre n.methodList visitando cada método
+		if(n.methodList != null && n.methodList.size() > 0){
+			j = n.methodList.size();
+			util.List<MethodDecl> aux2 = n.methodList;
+			for(i = 0; i < j; i++) {
+				aux2.head.accept(this);
+				aux2 = aux2.tail;
+			}
+		}		
+		
+		// Adds constructor method info
+		MethodNode constructor = new MethodNode(
+				"@__"+n.name.s+"Constructor"+"_"+n.name.s, 
+				null, 
+				new ArrayList<LlvmValue>());
+		List<LlvmValue> constructorFormals = new ArrayList<LlvmValue>();
+		constructorFormals.add(new LlvmRegister("%this", LlvmPointer.of(classEnv)));
+		constructor.setFormalList(constructorFormals);
+		constructor.setMethodType(LlvmPointer.of(classEnv));
+		methods.put("@__"+n.name.s+"Constructor"+"_"+n.name.s, constructor);		
+		
+		classEnv = classes.put(n.name.s, classEnv);		
+		
+		return null;
+	}
+
+	public LlvmValue visit(ClassDeclExtends n){
+		List<LlvmValue> varList = new ArrayList<LlvmValue>();		
+		List<LlvmType> typeList = new ArrayList<LlvmType>();		
+
+		// Constroi VarList com as Variáveis da Classe
+		// Constroi TypeList com os tipos das variáveis da Classe (vai formar a Struct da classe)		
+		int i, j;
+		if(n.methodList != null && n.methodList.size() > 0)
+			typeList.add(LlvmArray.of(n.methodList.size(), LlvmPointer.of(LlvmPrimitiveType.I8)));
+		if(n.varList != null && n.varList.size() > 0){
+			j = n.varList.size();
+			util.List<VarDecl> aux = n.varList;
+			for(i = 0; i < j; i++) {
+				varList.add(aux.head.accept(this));
+				typeList.add(aux.head.type.accept(this).type);
+				aux = aux.tail;
+			}
+		}
+		
+		if(classes.containsKey(n.name.s)) {
+			classEnv = classes.get(n.name.s);
+		} else {
+			classEnv = new ClassNode(
+					n.name.s,
+					LlvmStructure.of(typeList),
+					varList);
+		}
+		
+	    // Percorre n.methodList visitando cada método
+		if(n.methodList != null && n.methodList.size() > 0){
+			j = n.methodList.size();
+			util.List<MethodDecl> aux2 = n.methodList;
+			for(i = 0; i < j; i++) {
+				aux2.head.accept(this);
+				aux2 = aux2.tail;
+			}
+		}
+		
+		ClassNode superClass;
+		if(classes.containsKey(n.superClass.s)) {
+			superClass = classes.get(n.superClass.s);
+		} else {
+			superClass = new ClassNode(
+					n.superClass.s,
+					null,
+					new ArrayList<LlvmValue>());
+		}
+		
+		// Add constructor info
+		MethodNode constructor = new MethodNode(
+				"@__"+n.name.s+"Constructor"+"_"+n.name.s, 
+				null, 
+				new ArrayList<LlvmValue>());
+		List<LlvmValue> constructorFormals = new ArrayList<LlvmValue>();
+		constructorFormals.add(new LlvmRegister("%this", LlvmPointer.of(classEnv)));
+		constructor.setFormalList(constructorFormals);
+		constructor.setMethodType(LlvmPointer.of(classEnv));
+		methods.put("@__"+n.name.s+"Constructor"+"_"+n.name.s, constructor);	
+		
+		classEnv.setSuperClass(superClass);
+		classEnv = classes.put(n.name.s, classEnv);
+		
+		return null;
+	}
+	
+	public LlvmValue visit(VarDecl n){
+		return new LlvmRegister("%"+n.name.s, n.type.accept(this).type); //TODO check if enough
+	}
+	
+	public LlvmValue visit(Formal n){
+		return new LlvmRegister("%"+n.name.s, n.type.accept(this).type);
+	}
+	
+	public LlvmValue visit(MethodDecl n){
+		
+		int i, j;
+		List<LlvmValue> formalList = new ArrayList<LlvmValue>();		
+		List<LlvmValue> localList = new ArrayList<LlvmValue>();
+		
+		// Percorre n.formals
+		formalList.add(new LlvmRegister("%this", LlvmPointer.of(classEnv)));
+		if(n.formals != null && n.formals.size() > 0){
+			j = n.formals.size();
+			util.List<Formal> aux2 = n.formals;
+			for(i = 0; i < j; i++) {
+				formalList.add(aux2.head.accept(this));
+				aux2 = aux2.tail;
+			}
+		}
+
+		// Percorre n.locals
+		if(n.locals != null && n.locals.size() > 0){
+			j = n.locals.size();
+			util.List<VarDecl> aux2 = n.locals;
+			for(i = 0; i < j; i++) {
+				localList.add(aux2.head.accept(this));
+				aux2 = aux2.tail;
+			}
+		}
+		
+		MethodNode methodEnv = new MethodNode(
+				"@__" + n.name.s + "_" + classEnv.getNameClass(),
+				formalList,
+				localList);
+		methodEnv.buildSlots(classEnv);
+		
+		LlvmValue valueAux =  n.returnType.accept(this);
+		if(valueAux.type == LlvmPrimitiveType.LABEL) {
+			ClassNode classRef;
+			if(classes.containsKey(valueAux.toString())) {
+				classRef = classes.get(valueAux.toString());
+			} else {
+				classRef = new ClassNode(valueAux.toString(), null, new ArrayList<LlvmValue>());
+			}
+			methodEnv.setMethodType(classRef);
+		} else {
+			methodEnv.setMethodType(valueAux.type);
+		}
+		
+		Map<Integer, MethodNode> aux = classEnv.getMethodIndex();
+		aux.put(classEnv.getMethodCount(), methodEnv);
+		
+		classEnv.setMethodIndex(aux);
+		classEnv.setMethodCount(classEnv.getMethodCount() + 1);
+		
+		methods.put(methodEnv.getNameMethod(), methodEnv);
+		
+		return null;
+	}
+	
+	public LlvmValue visit(IdentifierType n){
+		if (classes.containsKey(n.name)) {
+			return new LlvmNamedValue("%class."+n.name, classes.get(n.name));
+		} else {
+			ClassNode temp = new ClassNode(n.name, null, null);
+			return new LlvmNamedValue("%class."+n.name, temp);
+		}
+	}
+	
+	public LlvmValue visit(IntArrayType n){
+		return Codegen.INT_ARRAY_TYPE;
+	}
+	
+	public LlvmValue visit(BooleanType n){
+		return Codegen.BOOLEAN_TYPE;
+	}
+	
+	public LlvmValue visit(IntegerType n){
+		return Codegen.INTEGER_TYPE;
+	}
+}
@@ -0,0 +1,23 @@
+package llvm;
+
+import llvmast.LlvmType;
+
+/* Onde mora uma variável vista de dentro de um método */
+class VarSlot {
+	
+	public static final int FIELD = 0;	// atributo: 'index' é a posição na struct da classe
+	public static final int FORMAL = 1;	// parâmetro: 'index' é a posição na lista de formais
+	public static final int LOCAL = 2;	// local: 'index' é a posição na lista de locais
+	
+	public final int kind;
+	public final int index;
+	public final LlvmType type;
+	public final String address;	// registrador com o endereço (formais/locais)
+	
+	public VarSlot(int kind, int index, LlvmType type, String address) {
+		this.kind = kind;
+		this.index = index;
+		this.type = type;
+		this.address = address;
+	}
+}
@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 import java.util.*;
 public  class LlvmAlloca extends LlvmInstruction{
     public LlvmValue lhs;
@@ -11,10 +12,30 @@ public  class LlvmAlloca extends LlvmInstruction{
 	this.numbers = numbers;
     }
 
-    public String toString(){
-	String nrs = "";
-	for(LlvmValue v : numbers)
-	    nrs = nrs + ", " + v.type + " " + v;
-	return "  " + lhs + " = alloca " + type + nrs;
+    public void appendTo(Appendable out) throws IOException{
+	out.append("  ");
+	LlvmAppend.append(out, lhs);
+	out.append(" = alloca ");
+	LlvmAppend.append(out, type);
+	for(LlvmValue v : numbers){
+	    out.append(", ");
+	    LlvmAppend.appendTyped(out, v);
+	}
+    }
+
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return numbers;
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	replace(numbers, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
     }
 }
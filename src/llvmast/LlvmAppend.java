@@ -0,0 +1,72 @@
+package llvmast;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Funções auxiliares para o appendTo dos nós do llvmast.
+ * Evitam criar Strings temporárias quando o destino já é um StringBuilder.
+ */
+final class LlvmAppend {
+
+    private LlvmAppend(){}
+
+    static void appendInt(Appendable out, int v) throws IOException {
+	if (out instanceof StringBuilder)
+	    ((StringBuilder) out).append(v);
+	else
+	    out.append(Integer.toString(v));
+    }
+
+    // Valores e tipos nulos saem como "null", como na antiga concatenação de Strings
+    static void append(Appendable out, LlvmValue v) throws IOException {
+	if (v == null)
+	    out.append("null");
+	else
+	    v.appendTo(out);
+    }
+
+    static void append(Appendable out, LlvmType t) throws IOException {
+	if (t == null)
+	    out.append("null");
+	else
+	    t.appendTo(out);
+    }
+
+    // "<tipo> <valor>", como em "i32 %tmp3"
+    static void appendTyped(Appendable out, LlvmValue v) throws IOException {
+	append(out, v.type);
+	out.append(' ');
+	v.appendTo(out);
+    }
+
+    // "<tipo> <valor>, <tipo> <valor>, ..."
+    static void appendTypedList(Appendable out, List<LlvmValue> values) throws IOException {
+	for (int i = 0; i < values.size(); i++){
+	    if (i > 0)
+		out.append(", ");
+	    appendTyped(out, values.get(i));
+	}
+    }
+
+    // "<tipo>, <tipo>, ..."
+    static void appendTypeList(Appendable out, List<LlvmType> types) throws IOException {
+	for (int i = 0; i < types.size(); i++){
+	    if (i > 0)
+		out.append(", ");
+	    append(out, types.get(i));
+	}
+    }
+
+    // StringBuilder nunca lança IOException
+    static void render(LlvmInstruction i, StringBuilder sb){
+	try { i.appendTo(sb); } catch (IOException e) { throw new IllegalStateException(e); }
+    }
+
+    static void render(LlvmType t, StringBuilder sb){
+	try { t.appendTo(sb); } catch (IOException e) { throw new IllegalStateException(e); }
+    }
+
+    static void render(LlvmValue v, StringBuilder sb){
+	try { v.appendTo(sb); } catch (IOException e) { throw new IllegalStateException(e); }
+    }
+}
@@ -1,14 +1,24 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmArray extends LlvmType {
-    public int length;
-    public LlvmType content;
+    public final int length;
+    public final LlvmType content;
     
-    public LlvmArray(int length, LlvmType content) {
+    // Use LlvmArray.of: há uma única instância para cada par (tamanho, tipo)
+    LlvmArray(int length, LlvmType content) {
     	this.length = length;
 		this.content = content;
     }
 
-    public String toString(){
-    	return "[" + length + " x " + content + "]";
+    public static LlvmArray of(int length, LlvmType content){
+    	return content.internArray(length);
+    }
+
+    public void appendTo(Appendable out) throws IOException{
+    	out.append('[');
+    	LlvmAppend.appendInt(out, length);
+    	out.append(" x ");
+    	LlvmAppend.append(out, content);
+    	out.append(']');
     }
 }
\ No newline at end of file
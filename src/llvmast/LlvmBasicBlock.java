@@ -0,0 +1,34 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * Bloco básico: o rótulo que o abre, as instruções e, por último, o terminador
+ * (LlvmBranch ou LlvmRet). As arestas são derivadas dos terminadores por
+ * LlvmFunction.computeEdges.
+ */
+public class LlvmBasicBlock {
+	public LlvmLabel label;			// null só num bloco sem rótulo (código depois de um terminador)
+	public final List<LlvmInstruction> instructions = new ArrayList<LlvmInstruction>();
+	public final List<LlvmBasicBlock> predecessors = new ArrayList<LlvmBasicBlock>();
+	public final List<LlvmBasicBlock> successors = new ArrayList<LlvmBasicBlock>();
+
+	public LlvmBasicBlock(LlvmLabel label){
+		this.label = label;
+	}
+
+	public String name(){
+		return label == null ? null : label.label.value;
+	}
+
+	// O terminador do bloco, ou null se ele ainda não terminou
+	public LlvmInstruction terminator(){
+		if (instructions.isEmpty())
+			return null;
+		LlvmInstruction last = instructions.get(instructions.size() - 1);
+		return last instanceof LlvmBranch || last instanceof LlvmRet ? last : null;
+	}
+
+	public String toString(){
+		return name();
+	}
+}
@@ -1,5 +1,6 @@
 package llvmast;
-import  java.util.*;
+import java.io.IOException;
+import java.util.*;
 public class LlvmBitcast extends LlvmInstruction{
     public LlvmValue lhs;
     public LlvmValue source;
@@ -11,8 +12,28 @@ public class LlvmBitcast extends LlvmInstruction{
 	this.toType = toType;
     }
     
-    public String toString(){
-    	return "  " + lhs + " = bitcast " + source.type + " " + source +" to " + toType;
+    public void appendTo(Appendable out) throws IOException{
+    	out.append("  ");
+    	LlvmAppend.append(out, lhs);
+    	out.append(" = bitcast ");
+    	LlvmAppend.appendTyped(out, source);
+    	out.append(" to ");
+    	LlvmAppend.append(out, toType);
     }
 
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return list(source);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	source = replace(source, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
+    }
 }
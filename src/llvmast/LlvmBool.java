@@ -1,18 +1,28 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmBool extends LlvmValue{
-	public int val;
-    public LlvmBool(int B){
+	public final int val;
+
+    private static final LlvmBool falseValue = new LlvmBool(0);
+    private static final LlvmBool trueValue = new LlvmBool(1);
+
+    private LlvmBool(int B){
     	type = LlvmPrimitiveType.I1;
     	this.val = B;
     }
+
+    // Só existem duas instâncias: LlvmBool.of(FALSE) e LlvmBool.of(TRUE)
+    public static LlvmBool of(int B){
+    	return B == FALSE ? falseValue : trueValue;
+    }
     
-    public String toString(){
+    public void appendTo(Appendable out) throws IOException{
     	switch (this.val){
-    	case FALSE : {return "false";}
-    	case TRUE  : {return "true";}
+    	case FALSE : {out.append("false"); return;}
+    	case TRUE  : {out.append("true"); return;}
     		
     	}
-		return null;
+		out.append("null");
     }
     
     public static final int FALSE  = 0;
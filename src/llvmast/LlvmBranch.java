@@ -1,4 +1,6 @@
 package llvmast;
+import java.io.IOException;
+import java.util.*;
 public  class LlvmBranch extends LlvmInstruction{
 	
 	public LlvmValue cond;
@@ -18,9 +20,26 @@ public  class LlvmBranch extends LlvmInstruction{
     	this.conditional = true;
     }
 
-    public String toString(){
-		if(conditional)
-			return "  br i1 " + cond + ", label %" + label1 + ", label %" + label2;
-		return "  br label %" + label1;
+    public void appendTo(Appendable out) throws IOException{
+		if(conditional){
+			out.append("  br i1 ");
+			LlvmAppend.append(out, cond);
+			out.append(", label %");
+			LlvmAppend.append(out, label1);
+			out.append(", label %");
+			LlvmAppend.append(out, label2);
+			return;
+		}
+		out.append("  br label %");
+		LlvmAppend.append(out, label1);
     }
-}
\ No newline at end of file
+
+    public List<LlvmValue> uses(){
+	return conditional ? list(cond) : Collections.<LlvmValue>emptyList();
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	if (conditional)
+	    cond = replace(cond, from, to);
+    }
+}
@@ -0,0 +1,155 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * Monta o LlvmModule à medida que o Codegen emite as instruções, na mesma
+ * ordem em que elas aparecem no texto:
+ *
+ *   LlvmDefine            abre uma função
+ *   LlvmLabel             abre um bloco básico
+ *   LlvmCloseDefinition   fecha a função e calcula as arestas do CFG
+ *   as demais             vão para o bloco aberto ou, fora de função, para o topo
+ *
+ * Um bloco que chega ao rótulo seguinte sem terminador (o Codegen cai direto no
+ * whileCond) ganha um 'br' explícito para ele: no LLVM todo bloco termina com
+ * um desvio ou um ret.
+ *
+ * Também é a visão plana do módulo como List (a do LlvmModule.instructions),
+ * para quem só percorre ou renderiza as instruções. Só add e clear alteram.
+ * O size() dela soma os blocos e o listIterator(k) anda k instruções; durante
+ * a geração, o Codegen usa emitted() e mark()/since(), que custam O(1) e
+ * O(instruções desde a marca).
+ */
+public class LlvmBuilder extends AbstractSequentialList<LlvmInstruction> {
+	private final LlvmModule module = new LlvmModule();
+	private final List<LlvmInstruction> flat = module.instructions();
+	private LlvmFunction function;		// função aberta, ou null
+	private LlvmBasicBlock block;		// bloco aberto, ou null
+	private int emitted;				// instruções que entraram desde o último clear
+
+	public LlvmModule getModule(){
+		return module;
+	}
+
+	// Função em geração, ou null fora de um define
+	public LlvmFunction currentFunction(){
+		return function;
+	}
+
+	public boolean add(LlvmInstruction i){
+		emitted++;
+		if (i instanceof LlvmDefine) {
+			if (function != null)
+				throw new IllegalStateException("define dentro de " + function);
+			function = new LlvmFunction((LlvmDefine) i);
+			module.addFunction(function);
+			block = null;
+		} else if (function == null) {
+			module.addGlobal(i);
+		} else if (i instanceof LlvmLabel) {
+			if (block != null && block.terminator() == null) {
+				block.instructions.add(new LlvmBranch(((LlvmLabel) i).label));
+				emitted++;
+			}
+			block = new LlvmBasicBlock((LlvmLabel) i);
+			function.blocks.add(block);
+		} else if (i instanceof LlvmCloseDefinition) {
+			function.close = (LlvmCloseDefinition) i;
+			function.computeEdges();
+			function = null;
+			block = null;
+		} else {
+			if (block == null || block.terminator() != null) {
+				// instrução depois de um terminador: bloco sem rótulo (inalcançável)
+				block = new LlvmBasicBlock(null);
+				function.blocks.add(block);
+			}
+			block.instructions.add(i);
+		}
+		return true;
+	}
+
+	public void clear(){
+		module.clear();
+		function = null;
+		block = null;
+		emitted = 0;
+	}
+
+	// Instruções que entraram desde o último clear, contando os 'br' implícitos.
+	// Não vê o que os passos de otimização mudam depois nos blocos (o size() vê).
+	public int emitted(){
+		return emitted;
+	}
+
+	// Quantas instruções entraram desde 'm'
+	public int emittedSince(Mark m){
+		return emitted - m.emitted;
+	}
+
+	// Posição atual da emissão
+	public Mark mark(){
+		Mark m = new Mark();
+		m.emitted = emitted;
+		m.global = module.globals.size();
+		m.functions = module.functions.size();
+		m.function = function;
+		if (function != null) {
+			if (block == null) {
+				m.block = function.blocks.size();
+				m.instr = -1;
+			} else {
+				m.block = function.blocks.size() - 1;
+				m.instr = block.instructions.size();
+			}
+		}
+		return m;
+	}
+
+	// Instruções emitidas depois de 'm' (as declarações de topo primeiro)
+	public List<LlvmInstruction> since(Mark m){
+		List<LlvmInstruction> l = new ArrayList<LlvmInstruction>(emitted - m.emitted);
+		for (int g = m.global; g < module.globals.size(); g++)
+			l.add(module.globals.get(g));
+		if (m.function != null)
+			rest(m.function, m.block, m.instr, l);
+		for (int k = m.functions; k < module.functions.size(); k++) {
+			LlvmFunction f = module.functions.get(k);
+			l.add(f.define);
+			rest(f, 0, -1, l);
+		}
+		return l;
+	}
+
+	// De 'f': a partir da instrução 'instr' do bloco 'b' (-1 = desde o rótulo) até o '}'
+	private static void rest(LlvmFunction f, int b, int instr, List<LlvmInstruction> l){
+		for (; b < f.blocks.size(); b++) {
+			LlvmBasicBlock blk = f.blocks.get(b);
+			if (instr < 0 && blk.label != null)
+				l.add(blk.label);
+			for (int i = Math.max(instr, 0); i < blk.instructions.size(); i++)
+				l.add(blk.instructions.get(i));
+			instr = -1;
+		}
+		if (f.close != null)
+			l.add(f.close);
+	}
+
+	/* Um ponto da emissão: a função e o bloco abertos e quanto já havia em cada lista */
+	public static class Mark {
+		int emitted;
+		int global;				// declarações de topo já emitidas
+		int functions;			// funções já abertas
+		LlvmFunction function;	// função aberta, ou null
+		int block;				// bloco aberto de 'function' (ou o próximo, se nenhum)
+		int instr;				// instruções já no bloco; -1 = nem o rótulo
+	}
+
+	public int size(){
+		return module.size();
+	}
+
+	public ListIterator<LlvmInstruction> listIterator(int index){
+		return flat.listIterator(index);
+	}
+}
@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 import java.util.*;
 
 public  class LlvmCall extends LlvmInstruction{
@@ -32,32 +33,43 @@ public  class LlvmCall extends LlvmInstruction{
     	this.args = args;	
     	}
 
-	public String toString(){
-
-	String arguments = "";
-	for(int i = 0; i<args.size(); i++){
-	    arguments = arguments + args.get(i).type + " " + args.get(i);
-	    if(i+1<args.size()) 
-		arguments = arguments + ", ";
-
-	}	
-
-	String fnTypeResult = "";
+	// Sem lhs (null) para as chamadas void, como as do llvm.lifetime
+	public void appendTo(Appendable out) throws IOException{
+	out.append("  ");
+	if (lhs != null){
+		LlvmAppend.append(out, lhs);
+		out.append(" = ");
+	}
+	out.append("call ");
+	LlvmAppend.append(out, type);
+	// o tipo da função, quando há, vem entre o de retorno e o nome, com um espaço de cada lado
 	if (fnTypeList != null)
 	{
-		fnTypeResult += "(";
-		for(int i = 0; i<fnTypeList.size(); i++){
-			fnTypeResult = fnTypeResult + fnTypeList.get(i);
-		    if(i+1<fnTypeList.size()) 
-			fnTypeResult = fnTypeResult + ", ";
-		}
-		fnTypeResult += ")*";
+		out.append(" (");
+		LlvmAppend.appendTypeList(out, fnTypeList);
+		out.append(")*");
 	} else 
 	{
-		if (fnType != null)
-			fnTypeResult = fnType.toString();
+		if (fnType != null){
+			out.append(' ');
+			LlvmAppend.append(out, fnType);
+		}
 	}
+	out.append(' ').append(fnName).append('(');
+	LlvmAppend.appendTypedList(out, args);
+	out.append(')');
+    }
+
+    // Chamadas nunca saem: o método chamado pode escrever na memória ou imprimir
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return args;
+    }
 
-	return "  " + lhs + " = " + "call " + type + " " + fnTypeResult + " " + fnName +  "(" + arguments + ")"; 
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	replace(args, from, to);
     }
 }
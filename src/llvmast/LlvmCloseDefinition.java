@@ -1,7 +1,8 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmCloseDefinition extends LlvmInstruction{
-    public String toString(){
-	return "}";
+    public void appendTo(Appendable out) throws IOException{
+	out.append('}');
     }
 
 }
\ No newline at end of file
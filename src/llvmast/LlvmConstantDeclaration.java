@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmConstantDeclaration extends LlvmInstruction{
     public String name;
     public String rhs;
@@ -7,7 +8,7 @@ public class LlvmConstantDeclaration extends LlvmInstruction{
 	this.rhs = rhs;
     }
     
-    public String toString(){
-	return name + " = " + rhs;
+    public void appendTo(Appendable out) throws IOException{
+	out.append(name).append(" = ").append(rhs);
     }
 }
\ No newline at end of file
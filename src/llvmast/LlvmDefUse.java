@@ -0,0 +1,221 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * Cadeias def-uso de uma LlvmFunction: para cada registrador (pelo nome), a
+ * instrução que o define e as que o leem. Montadas uma vez em O(instruções) e
+ * mantidas pelas operações daqui, então um passo que só mexa na função por
+ * meio delas nunca precisa varrer o texto de novo:
+ *
+ *   replaceAllUsesWith   troca um valor por outro em todos os usos, em O(usos)
+ *   remove               tira a instrução das cadeias, em O(operandos), e a marca
+ *                        para sair do bloco no próximo compact
+ *   insertBefore/After   põe uma instrução nova nas cadeias já, e junto de outra
+ *                        no bloco no próximo compact
+ *   compact              reescreve uma única vez cada bloco que teve remoções ou
+ *                        inserções pendentes
+ *   insert               põe uma instrução nova num bloco, na hora, e nas cadeias
+ *   removeDeadCode       remove as instruções sem efeito cujo valor não é lido,
+ *                        em cascata, visitando cada uso uma vez
+ *
+ * Até o compact, as instruções removidas continuam em b.instructions (quem
+ * percorre o bloco pode conferir com isRemoved) e as inseridas com
+ * insertBefore/After ainda não estão lá; o passo chama compact ao terminar.
+ * O removeDeadCode já termina com um.
+ *
+ * Os parâmetros do define não têm instrução de definição, mas os usos deles
+ * são seguidos como os de qualquer registrador.
+ */
+public class LlvmDefUse {
+	private final LlvmFunction function;
+	private final Map<String, LlvmInstruction> defs = new HashMap<String, LlvmInstruction>();
+	private final Map<String, Set<LlvmInstruction>> users = new HashMap<String, Set<LlvmInstruction>>();
+	private final Map<LlvmInstruction, LlvmBasicBlock> blocks = new IdentityHashMap<LlvmInstruction, LlvmBasicBlock>();
+	private final Set<LlvmInstruction> removed = Collections.newSetFromMap(new IdentityHashMap<LlvmInstruction, Boolean>());
+	private final Map<LlvmInstruction, List<LlvmInstruction>> before = new IdentityHashMap<LlvmInstruction, List<LlvmInstruction>>();
+	private final Map<LlvmInstruction, List<LlvmInstruction>> after = new IdentityHashMap<LlvmInstruction, List<LlvmInstruction>>();
+	private final Set<LlvmBasicBlock> dirty = new LinkedHashSet<LlvmBasicBlock>();	// blocos com remoções ou inserções pendentes
+
+	public LlvmDefUse(LlvmFunction function){
+		this.function = function;
+		for (LlvmBasicBlock b : function.blocks)
+			for (LlvmInstruction i : b.instructions)
+				track(i, b);
+	}
+
+	public LlvmFunction getFunction(){
+		return function;
+	}
+
+	// Instrução que define 'v', ou null (constantes, parâmetros, globais)
+	public LlvmInstruction definition(LlvmValue v){
+		return v instanceof LlvmRegister ? defs.get(((LlvmRegister) v).name) : null;
+	}
+
+	// Instruções que leem 'v' (cada uma uma vez, mesmo que leia 'v' em mais de um operando)
+	public List<LlvmInstruction> users(LlvmValue v){
+		Set<LlvmInstruction> l = v instanceof LlvmRegister ? users.get(((LlvmRegister) v).name) : null;
+		return l == null ? Collections.<LlvmInstruction>emptyList() : new ArrayList<LlvmInstruction>(l);
+	}
+
+	private boolean hasUsers(LlvmValue v){
+		Set<LlvmInstruction> l = v instanceof LlvmRegister ? users.get(((LlvmRegister) v).name) : null;
+		return l != null && !l.isEmpty();
+	}
+
+	public LlvmBasicBlock blockOf(LlvmInstruction i){
+		return blocks.get(i);
+	}
+
+	// Morta: define um valor que ninguém lê e pode sair sem mudar o comportamento
+	public boolean isDead(LlvmInstruction i){
+		return i.def() != null && !i.hasSideEffects() && !hasUsers(i.def());
+	}
+
+	// Troca 'from' por 'to' em todas as instruções que leem 'from'
+	public void replaceAllUsesWith(LlvmValue from, LlvmValue to){
+		if (!(from instanceof LlvmRegister) || LlvmInstruction.same(from, to))
+			return;
+		Set<LlvmInstruction> l = users.remove(((LlvmRegister) from).name);
+		if (l == null)
+			return;
+		for (LlvmInstruction i : l)
+			i.replaceUse(from, to);
+		if (to instanceof LlvmRegister)
+			usersOf(((LlvmRegister) to).name).addAll(l);
+	}
+
+	// Tira 'i' das cadeias e a marca para sair do bloco no compact; os usos do valor
+	// que ela define ficam órfãos (quem remove deve ter trocado ou removido esses usos antes)
+	public void remove(LlvmInstruction i){
+		LlvmBasicBlock b = blocks.remove(i);
+		if (b != null) {
+			removed.add(i);
+			dirty.add(b);
+		}
+		untrack(i);
+	}
+
+	// 'i' foi removida e ainda não saiu do bloco
+	public boolean isRemoved(LlvmInstruction i){
+		return removed.contains(i);
+	}
+
+	// Põe 'i' logo antes de 'at' (depois das que já foram postas antes dela)
+	public void insertBefore(LlvmInstruction at, LlvmInstruction i){
+		pending(before, at, i);
+	}
+
+	// Põe 'i' logo depois de 'at' (depois das que já foram postas depois dela)
+	public void insertAfter(LlvmInstruction at, LlvmInstruction i){
+		pending(after, at, i);
+	}
+
+	private void pending(Map<LlvmInstruction, List<LlvmInstruction>> side, LlvmInstruction at, LlvmInstruction i){
+		LlvmBasicBlock b = blocks.get(at);
+		if (b == null)
+			throw new IllegalStateException(at + " não está em nenhum bloco");
+		List<LlvmInstruction> l = side.get(at);
+		if (l == null) {
+			l = new ArrayList<LlvmInstruction>(1);
+			side.put(at, l);
+		}
+		l.add(i);
+		dirty.add(b);
+		track(i, b);
+	}
+
+	// Aplica as remoções e inserções pendentes, reescrevendo cada bloco uma vez
+	public void compact(){
+		for (LlvmBasicBlock b : dirty)
+			compact(b);
+		dirty.clear();
+		removed.clear();
+	}
+
+	private void compact(LlvmBasicBlock b){
+		List<LlvmInstruction> l = new ArrayList<LlvmInstruction>(b.instructions.size());
+		for (LlvmInstruction i : b.instructions)
+			emit(i, l);
+		b.instructions.clear();
+		b.instructions.addAll(l);
+	}
+
+	// 'i' com as pendentes em volta dela (que também podem ter as suas)
+	private void emit(LlvmInstruction i, List<LlvmInstruction> l){
+		List<LlvmInstruction> pre = before.remove(i), post = after.remove(i);
+		if (pre != null)
+			for (LlvmInstruction p : pre)
+				emit(p, l);
+		if (!removed.contains(i))
+			l.add(i);
+		if (post != null)
+			for (LlvmInstruction p : post)
+				emit(p, l);
+	}
+
+	// Põe 'i' no bloco 'b' na posição 'index' e nas cadeias. As posições são as do
+	// bloco já com as remoções e inserções pendentes aplicadas.
+	public void insert(LlvmBasicBlock b, int index, LlvmInstruction i){
+		if (dirty.remove(b))
+			compact(b);
+		b.instructions.add(index, i);
+		track(i, b);
+	}
+
+	// Remove as instruções mortas (e as que morrem com elas); devolve quantas saíram
+	public int removeDeadCode(){
+		Deque<LlvmInstruction> work = new ArrayDeque<LlvmInstruction>();
+		for (LlvmBasicBlock b : function.blocks)
+			for (LlvmInstruction i : b.instructions)
+				if (isDead(i))
+					work.add(i);
+		int count = 0;
+		while (!work.isEmpty()) {
+			LlvmInstruction i = work.poll();
+			if (!blocks.containsKey(i) || !isDead(i))
+				continue;
+			remove(i);
+			count++;
+			for (LlvmValue v : i.uses()) {
+				LlvmInstruction d = definition(v);
+				if (d != null && isDead(d))
+					work.add(d);
+			}
+		}
+		compact();
+		return count;
+	}
+
+	private void track(LlvmInstruction i, LlvmBasicBlock b){
+		blocks.put(i, b);
+		LlvmValue d = i.def();
+		if (d instanceof LlvmRegister)
+			defs.put(((LlvmRegister) d).name, i);
+		for (LlvmValue v : i.uses())
+			if (v instanceof LlvmRegister)
+				usersOf(((LlvmRegister) v).name).add(i);
+	}
+
+	private void untrack(LlvmInstruction i){
+		LlvmValue d = i.def();
+		if (d instanceof LlvmRegister && defs.get(((LlvmRegister) d).name) == i)
+			defs.remove(((LlvmRegister) d).name);
+		for (LlvmValue v : i.uses())
+			if (v instanceof LlvmRegister) {
+				Set<LlvmInstruction> l = users.get(((LlvmRegister) v).name);
+				if (l != null)
+					l.remove(i);
+			}
+	}
+
+	// Conjunto por identidade: duas instruções iguais pelo equals ainda são dois usos
+	private Set<LlvmInstruction> usersOf(String name){
+		Set<LlvmInstruction> l = users.get(name);
+		if (l == null) {
+			l = Collections.newSetFromMap(new IdentityHashMap<LlvmInstruction, Boolean>());
+			users.put(name, l);
+		}
+		return l;
+	}
+}
@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 import java.util.*;
 public class LlvmDefine extends LlvmInstruction{
     public String name;
@@ -11,14 +12,11 @@ public class LlvmDefine extends LlvmInstruction{
 	this.args = args;
     }
 
-    public String toString(){
-	String arguments = "";
-	for(int i = 0; i<args.size(); i++){
-	    arguments = arguments + args.get(i).type + " " + args.get(i);
-	    if(i+1<args.size()) 
-		arguments = arguments + ", ";
-	    
-	}
-	return "define " + resultType + " " + name + "(" + arguments + ") {";
+    public void appendTo(Appendable out) throws IOException{
+	out.append("define ");
+	LlvmAppend.append(out, resultType);
+	out.append(' ').append(name).append('(');
+	LlvmAppend.appendTypedList(out, args);
+	out.append(") {");
     }
 }
@@ -0,0 +1,196 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * Árvore de dominadores e fronteiras de dominância de uma LlvmFunction, pelo
+ * algoritmo iterativo de Cooper, Harvey e Kennedy ("A Simple, Fast Dominance
+ * Algorithm"): os blocos são visitados em pós-ordem reversa e o idom de cada um
+ * é a interseção dos idoms dos predecessores já processados. Nos CFGs que o
+ * Codegen gera (if e while aninhados, todos redutíveis) duas passadas bastam.
+ *
+ * Blocos inalcançáveis a partir da entrada (o código depois de um terminador)
+ * ficam fora: não têm idom, não dominam nem são dominados.
+ *
+ * As arestas usadas são as de LlvmBasicBlock; quem mudar os desvios chama
+ * LlvmFunction.computeEdges e constrói a análise de novo.
+ */
+public class LlvmDominators {
+	private final LlvmFunction function;
+	private final List<LlvmBasicBlock> rpo = new ArrayList<LlvmBasicBlock>();	// pós-ordem reversa
+	private final Map<LlvmBasicBlock, Integer> order = new HashMap<LlvmBasicBlock, Integer>();	// posição em 'rpo'
+	private final Map<LlvmBasicBlock, LlvmBasicBlock> idom = new HashMap<LlvmBasicBlock, LlvmBasicBlock>();
+	private final Map<LlvmBasicBlock, List<LlvmBasicBlock>> children = new HashMap<LlvmBasicBlock, List<LlvmBasicBlock>>();
+	private final Map<LlvmBasicBlock, Set<LlvmBasicBlock>> frontier = new HashMap<LlvmBasicBlock, Set<LlvmBasicBlock>>();
+	// intervalo [pre, post] de cada bloco num percurso da árvore: a domina b sse o de a contém o de b
+	private final Map<LlvmBasicBlock, int[]> interval = new HashMap<LlvmBasicBlock, int[]>();
+
+	public LlvmDominators(LlvmFunction function){
+		this.function = function;
+		LlvmBasicBlock entry = function.entry();
+		if (entry == null)
+			return;
+		reversePostorder(entry);
+		computeIdoms(entry);
+		computeTree(entry);
+		computeFrontiers();
+	}
+
+	public LlvmFunction getFunction(){
+		return function;
+	}
+
+	// Blocos alcançáveis em pós-ordem reversa (a entrada primeiro)
+	public List<LlvmBasicBlock> reversePostorder(){
+		return Collections.unmodifiableList(rpo);
+	}
+
+	public boolean isReachable(LlvmBasicBlock b){
+		return order.containsKey(b);
+	}
+
+	// Dominador imediato de 'b'; null para a entrada e para os inalcançáveis
+	public LlvmBasicBlock idom(LlvmBasicBlock b){
+		LlvmBasicBlock d = idom.get(b);
+		return d == b ? null : d;
+	}
+
+	// Filhos de 'b' na árvore de dominadores, em pós-ordem reversa
+	public List<LlvmBasicBlock> children(LlvmBasicBlock b){
+		List<LlvmBasicBlock> l = children.get(b);
+		return l == null ? Collections.<LlvmBasicBlock>emptyList() : Collections.unmodifiableList(l);
+	}
+
+	// a domina b (todo bloco domina a si mesmo), em O(1)
+	public boolean dominates(LlvmBasicBlock a, LlvmBasicBlock b){
+		int[] ia = interval.get(a), ib = interval.get(b);
+		return ia != null && ib != null && ia[0] <= ib[0] && ib[1] <= ia[1];
+	}
+
+	public boolean strictlyDominates(LlvmBasicBlock a, LlvmBasicBlock b){
+		return a != b && dominates(a, b);
+	}
+
+	// Fronteira de dominância de 'b': onde a dominância de 'b' termina
+	public Set<LlvmBasicBlock> frontier(LlvmBasicBlock b){
+		Set<LlvmBasicBlock> s = frontier.get(b);
+		return s == null ? Collections.<LlvmBasicBlock>emptySet() : Collections.unmodifiableSet(s);
+	}
+
+	// Fronteira iterada de um conjunto de blocos (onde o mem2reg põe os phis)
+	public Set<LlvmBasicBlock> iteratedFrontier(Collection<LlvmBasicBlock> blocks){
+		Set<LlvmBasicBlock> result = new LinkedHashSet<LlvmBasicBlock>();
+		Deque<LlvmBasicBlock> work = new ArrayDeque<LlvmBasicBlock>(blocks);
+		while (!work.isEmpty())
+			for (LlvmBasicBlock f : frontier(work.poll()))
+				if (result.add(f))
+					work.add(f);
+		return result;
+	}
+
+	/* Pós-ordem iterativa (a recursão estouraria a pilha em funções muito longas) */
+	private void reversePostorder(LlvmBasicBlock entry){
+		Set<LlvmBasicBlock> seen = new HashSet<LlvmBasicBlock>();
+		Deque<LlvmBasicBlock> stack = new ArrayDeque<LlvmBasicBlock>();
+		Deque<Iterator<LlvmBasicBlock>> next = new ArrayDeque<Iterator<LlvmBasicBlock>>();
+		seen.add(entry);
+		stack.push(entry);
+		next.push(entry.successors.iterator());
+		while (!stack.isEmpty()) {
+			if (next.peek().hasNext()) {
+				LlvmBasicBlock s = next.peek().next();
+				if (seen.add(s)) {
+					stack.push(s);
+					next.push(s.successors.iterator());
+				}
+			} else {
+				rpo.add(stack.pop());
+				next.pop();
+			}
+		}
+		Collections.reverse(rpo);
+		for (int k = 0; k < rpo.size(); k++)
+			order.put(rpo.get(k), k);
+	}
+
+	private void computeIdoms(LlvmBasicBlock entry){
+		idom.put(entry, entry);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int k = 1; k < rpo.size(); k++) {
+				LlvmBasicBlock b = rpo.get(k);
+				LlvmBasicBlock newIdom = null;
+				for (LlvmBasicBlock p : b.predecessors)
+					if (idom.containsKey(p))
+						newIdom = newIdom == null ? p : intersect(p, newIdom);
+				if (idom.get(b) != newIdom) {
+					idom.put(b, newIdom);
+					changed = true;
+				}
+			}
+		}
+	}
+
+	// Ancestral comum mais próximo na árvore parcial, subindo pelo número em pós-ordem reversa
+	private LlvmBasicBlock intersect(LlvmBasicBlock a, LlvmBasicBlock b){
+		while (a != b) {
+			while (order.get(a) > order.get(b))
+				a = idom.get(a);
+			while (order.get(b) > order.get(a))
+				b = idom.get(b);
+		}
+		return a;
+	}
+
+	private void computeTree(LlvmBasicBlock entry){
+		for (LlvmBasicBlock b : rpo) {
+			LlvmBasicBlock d = idom(b);
+			if (d == null)
+				continue;
+			List<LlvmBasicBlock> l = children.get(d);
+			if (l == null) {
+				l = new ArrayList<LlvmBasicBlock>();
+				children.put(d, l);
+			}
+			l.add(b);
+		}
+		// numeração pré/pós da árvore, também sem recursão
+		int clock = 0;
+		Deque<LlvmBasicBlock> stack = new ArrayDeque<LlvmBasicBlock>();
+		Deque<Iterator<LlvmBasicBlock>> next = new ArrayDeque<Iterator<LlvmBasicBlock>>();
+		interval.put(entry, new int[] { clock++, 0 });
+		stack.push(entry);
+		next.push(children(entry).iterator());
+		while (!stack.isEmpty()) {
+			if (next.peek().hasNext()) {
+				LlvmBasicBlock c = next.peek().next();
+				interval.put(c, new int[] { clock++, 0 });
+				stack.push(c);
+				next.push(children(c).iterator());
+			} else {
+				interval.get(stack.pop())[1] = clock++;
+				next.pop();
+			}
+		}
+	}
+
+	/* Para cada junção, sobe de cada predecessor até o idom dela */
+	private void computeFrontiers(){
+		for (LlvmBasicBlock b : rpo) {
+			if (b.predecessors.size() < 2)
+				continue;
+			for (LlvmBasicBlock p : b.predecessors) {
+				if (!isReachable(p))
+					continue;
+				for (LlvmBasicBlock runner = p; runner != idom.get(b); runner = idom.get(runner)) {
+					Set<LlvmBasicBlock> s = frontier.get(runner);
+					if (s == null) {
+						s = new LinkedHashSet<LlvmBasicBlock>();
+						frontier.put(runner, s);
+					}
+					s.add(b);
+				}
+			}
+		}
+	}
+}
@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 import java.util.*;
 public class LlvmExternalDeclaration extends LlvmInstruction{
     public String name;
@@ -11,14 +12,11 @@ public class LlvmExternalDeclaration extends LlvmInstruction{
 	this.parameterTypes = parameterTypes;
     }
     
-    public String toString(){
-	String argTypes = "";
-	for(int i = 0; i<parameterTypes.size(); i++){
-	    argTypes = argTypes + parameterTypes.get(i);
-	    if(i+1<parameterTypes.size()) 
-		argTypes = argTypes + ", ";
-
-	}
-	return "declare " + resultType + " " + name + " (" + argTypes + ")";
+    public void appendTo(Appendable out) throws IOException{
+	out.append("declare ");
+	LlvmAppend.append(out, resultType);
+	out.append(' ').append(name).append(" (");
+	LlvmAppend.appendTypeList(out, parameterTypes);
+	out.append(')');
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * Uma função do módulo: o 'define', os blocos básicos na ordem do texto (o
+ * primeiro é a entrada) e o '}' que a fecha.
+ */
+public class LlvmFunction {
+	public final LlvmDefine define;
+	public final List<LlvmBasicBlock> blocks = new ArrayList<LlvmBasicBlock>();
+	public LlvmCloseDefinition close;	// null enquanto a função está sendo gerada
+
+	public LlvmFunction(LlvmDefine define){
+		this.define = define;
+	}
+
+	public String name(){
+		return define.name;
+	}
+
+	public LlvmBasicBlock entry(){
+		return blocks.isEmpty() ? null : blocks.get(0);
+	}
+
+	// Bloco aberto pelo rótulo 'name', ou null
+	public LlvmBasicBlock block(String name){
+		for (LlvmBasicBlock b : blocks)
+			if (name.equals(b.name()))
+				return b;
+		return null;
+	}
+
+	// Refaz predecessores e sucessores a partir dos terminadores. Chamado pelo
+	// LlvmBuilder ao fechar a função; um passo que mude os desvios chama de novo.
+	public void computeEdges(){
+		Map<String, LlvmBasicBlock> byName = new HashMap<String, LlvmBasicBlock>();
+		for (LlvmBasicBlock b : blocks) {
+			b.predecessors.clear();
+			b.successors.clear();
+			if (b.name() != null)
+				byName.put(b.name(), b);
+		}
+		for (LlvmBasicBlock b : blocks) {
+			LlvmInstruction t = b.terminator();
+			if (!(t instanceof LlvmBranch))
+				continue;
+			LlvmBranch br = (LlvmBranch) t;
+			edge(b, byName.get(br.label1.value));
+			if (br.conditional)
+				edge(b, byName.get(br.label2.value));
+		}
+	}
+
+	private static void edge(LlvmBasicBlock from, LlvmBasicBlock to){
+		if (to == null)
+			throw new IllegalStateException("desvio para um rótulo que não existe em " + from);
+		// 'br i1 %c, label %x, label %x' é uma única aresta
+		if (from.successors.contains(to))
+			return;
+		from.successors.add(to);
+		to.predecessors.add(from);
+	}
+
+	// Número de instruções da função no texto, contando define, rótulos e '}'
+	public int size(){
+		int n = close == null ? 1 : 2;
+		for (LlvmBasicBlock b : blocks)
+			n += b.instructions.size() + (b.label == null ? 0 : 1);
+		return n;
+	}
+
+	public String toString(){
+		return name();
+	}
+}
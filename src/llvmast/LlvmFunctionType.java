@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 import java.util.*;
 public class LlvmFunctionType extends LlvmType {
     public LlvmType resultType;
@@ -9,5 +10,12 @@ public class LlvmFunctionType extends LlvmType {
 		this.parametersTypes = parametersTypes;
     }
 
+    public void appendTo(Appendable out) throws IOException{
+    	LlvmAppend.append(out, resultType);
+    	out.append(" (");
+    	LlvmAppend.appendTypeList(out, parametersTypes);
+    	out.append(')');
+    }
+
 
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package llvmast;
-import  java.util.*;
+import java.io.IOException;
+import java.util.*;
 public class LlvmGetElementPointer extends LlvmInstruction{
     public LlvmValue lhs;
     public LlvmValue source;
@@ -11,15 +12,32 @@ public class LlvmGetElementPointer extends LlvmInstruction{
 	this.offsets = offsets;
     }
     
-    public String toString(){
-	String ps = "";
-	for(int i = 0; i<offsets.size(); i++){
-	    ps = ps + offsets.get(i).type + " " + offsets.get(i);
-	    if(i+1<offsets.size()) 
-		ps = ps + ", ";
+    public void appendTo(Appendable out) throws IOException{
+	out.append("  ");
+	LlvmAppend.append(out, lhs);
+	out.append(" = getelementptr ");
+	LlvmAppend.appendTyped(out, source);
+	out.append(", ");
+	LlvmAppend.appendTypedList(out, offsets);
+    }
+
+    public LlvmValue def(){
+	return lhs;
+    }
 
-	}
-	return "  " + lhs + " = getelementptr " + source.type + " " + source +", " + ps;
+    public List<LlvmValue> uses(){
+	List<LlvmValue> l = new ArrayList<LlvmValue>(offsets.size() + 1);
+	l.add(source);
+	l.addAll(offsets);
+	return l;
     }
 
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	source = replace(source, from, to);
+	replace(offsets, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
+    }
 }
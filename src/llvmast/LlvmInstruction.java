@@ -1,3 +1,63 @@
 package llvmast;
+import java.io.IOException;
+import java.util.*;
 public abstract class LlvmInstruction{
-}
\ No newline at end of file
+    // Posição no fonte (line/row do nó da syntaxtree) para o !dbg; 0 = nenhuma
+    public int line, column;
+
+    // Escreve a instrução em 'out' sem criar Strings intermediárias.
+    // toString() existe apenas por conveniência e passa por aqui.
+    public abstract void appendTo(Appendable out) throws IOException;
+
+    // Operandos, de forma uniforme para os passos de otimização (ver LlvmDefUse).
+    // Registradores são comparados pelo nome: o Codegen cria um LlvmRegister novo
+    // a cada referência a um local, então dois objetos podem ser o mesmo valor.
+
+    // Registrador definido pela instrução, ou null
+    public LlvmValue def(){
+	return null;
+    }
+
+    // Valores lidos (registradores e constantes), na ordem do texto
+    public List<LlvmValue> uses(){
+	return Collections.emptyList();
+    }
+
+    // Troca por 'to' todo operando lido que seja o valor 'from'
+    public void replaceUse(LlvmValue from, LlvmValue to){
+    }
+
+    // false se a instrução pode sair quando o valor definido não é usado. As que
+    // não sobrescrevem (rótulos, define, declarações) nunca são removíveis.
+    public boolean hasSideEffects(){
+	return true;
+    }
+
+    // 'a' e 'b' são o mesmo valor: o mesmo objeto ou registradores de mesmo nome
+    public static boolean same(LlvmValue a, LlvmValue b){
+	if (a == b)
+	    return true;
+	return a instanceof LlvmRegister && b instanceof LlvmRegister
+	    && ((LlvmRegister) a).name.equals(((LlvmRegister) b).name);
+    }
+
+    protected static LlvmValue replace(LlvmValue v, LlvmValue from, LlvmValue to){
+	return v != null && same(v, from) ? to : v;
+    }
+
+    protected static void replace(List<LlvmValue> values, LlvmValue from, LlvmValue to){
+	for (ListIterator<LlvmValue> i = values.listIterator(); i.hasNext();)
+	    if (same(i.next(), from))
+		i.set(to);
+    }
+
+    protected static List<LlvmValue> list(LlvmValue... values){
+	return Arrays.asList(values);
+    }
+
+    public String toString(){
+	StringBuilder sb = new StringBuilder();
+	LlvmAppend.render(this, sb);
+	return sb.toString();
+    }
+}
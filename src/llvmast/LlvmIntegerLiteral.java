@@ -1,12 +1,36 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmIntegerLiteral extends LlvmValue{
-    public int value;
-    public LlvmIntegerLiteral(int value){
-	type = LlvmPrimitiveType.I32;
+    public final int value;
+
+    // Literais pequenos (os mais comuns: 0, 1, tamanhos e índices) são compartilhados
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final LlvmIntegerLiteral[] cache = new LlvmIntegerLiteral[CACHE_HIGH - CACHE_LOW];
+    static {
+	for (int i = 0; i < cache.length; i++)
+	    cache[i] = new LlvmIntegerLiteral(i + CACHE_LOW, LlvmPrimitiveType.I32);
+    }
+
+    private LlvmIntegerLiteral(int value, LlvmType type){
+	this.type = type;
 	this.value = value;
     }
 
-    public String toString(){
-	return ""+ value;
+    public static LlvmIntegerLiteral of(int value){
+	if (value >= CACHE_LOW && value < CACHE_HIGH)
+	    return cache[value - CACHE_LOW];
+	return new LlvmIntegerLiteral(value, LlvmPrimitiveType.I32);
+    }
+
+    // Literal de outro tipo inteiro (o i64 do tamanho no llvm.lifetime); só os i32 são compartilhados
+    public static LlvmIntegerLiteral of(int value, LlvmType type){
+	if (type == LlvmPrimitiveType.I32)
+	    return of(value);
+	return new LlvmIntegerLiteral(value, type);
+    }
+
+    public void appendTo(Appendable out) throws IOException{
+	LlvmAppend.appendInt(out, value);
     }
 }
\ No newline at end of file
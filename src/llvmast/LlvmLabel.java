@@ -1,8 +1,10 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmLabel extends LlvmInstruction{
     public LlvmLabelValue label;
     public LlvmLabel(LlvmLabelValue label){this.label = label;}
-    public String toString(){
-	return label+":";
+    public void appendTo(Appendable out) throws IOException{
+	LlvmAppend.append(out, label);
+	out.append(':');
     }
 }
\ No newline at end of file
@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmLabelValue extends LlvmValue{
     public String value;
     public LlvmLabelValue(String value){
@@ -6,7 +7,7 @@ public class LlvmLabelValue extends LlvmValue{
 	this.value = value;
     }
 
-    public String toString(){
-	return ""+ value;
+    public void appendTo(Appendable out) throws IOException{
+	out.append(value);
     }
 }
\ No newline at end of file
@@ -1,4 +1,6 @@
 package llvmast;
+import java.io.IOException;
+import java.util.*;
 public class LlvmLoad extends LlvmInstruction{
     public LlvmValue lhs;
     public LlvmValue address; // includes its type
@@ -8,7 +10,26 @@ public class LlvmLoad extends LlvmInstruction{
 	this.address=address;
     }
     
-    public String toString(){
-	return "  " + lhs + " = load " + address.type + " " + address;
+    public void appendTo(Appendable out) throws IOException{
+	out.append("  ");
+	LlvmAppend.append(out, lhs);
+	out.append(" = load ");
+	LlvmAppend.appendTyped(out, address);
+    }
+
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return list(address);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	address = replace(address, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
     }
 }
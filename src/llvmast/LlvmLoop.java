@@ -0,0 +1,40 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * Um laço natural: o cabeçalho, que domina todo o corpo, e os blocos que chegam
+ * a uma aresta de volta para ele sem passar pelo cabeçalho. Num laço do Codegen
+ * o cabeçalho é o whileCond, o corpo vai do whileBody ao último bloco antes do
+ * 'br label %whileCond' e a saída é o whileEnd.
+ *
+ * Montado pelo LlvmLoopNest, que também preenche a hierarquia.
+ */
+public class LlvmLoop {
+	public final LlvmBasicBlock header;
+	public final Set<LlvmBasicBlock> blocks = new LinkedHashSet<LlvmBasicBlock>();	// inclui o cabeçalho e os laços internos
+	public final List<LlvmBasicBlock> latches = new ArrayList<LlvmBasicBlock>();	// origens das arestas de volta
+	public final List<LlvmBasicBlock> exits = new ArrayList<LlvmBasicBlock>();		// blocos fora do laço com predecessor dentro dele
+	public LlvmBasicBlock preheader;		// único predecessor de fora, se só desvia para o cabeçalho; ou null
+	public LlvmLoop parent;					// laço que contém este, ou null
+	public final List<LlvmLoop> children = new ArrayList<LlvmLoop>();
+	public int depth;						// 1 para um laço externo
+
+	public LlvmLoop(LlvmBasicBlock header){
+		this.header = header;
+	}
+
+	public boolean contains(LlvmBasicBlock b){
+		return blocks.contains(b);
+	}
+
+	public boolean contains(LlvmLoop l){
+		for (; l != null; l = l.parent)
+			if (l == this)
+				return true;
+		return false;
+	}
+
+	public String toString(){
+		return "laço " + header + " (profundidade " + depth + ", " + blocks.size() + " blocos)";
+	}
+}
@@ -0,0 +1,124 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * Os laços naturais de uma LlvmFunction e a hierarquia entre eles. Uma aresta
+ * b -> h é de volta quando h domina b; as arestas de volta para o mesmo h formam
+ * um único laço. O pai de um laço é o menor outro laço que contém o cabeçalho.
+ *
+ * Para cada laço: blocos, latches, blocos de saída, pré-cabeçalho e profundidade.
+ * Nos laços do Codegen o pré-cabeçalho sempre existe: é o bloco que termina com
+ * o 'br label %whileCond' antes do rótulo.
+ */
+public class LlvmLoopNest {
+	private final LlvmDominators dom;
+	private final List<LlvmLoop> loops = new ArrayList<LlvmLoop>();		// cabeçalhos em pós-ordem reversa
+	private final List<LlvmLoop> top = new ArrayList<LlvmLoop>();
+	private final Map<LlvmBasicBlock, LlvmLoop> innermost = new HashMap<LlvmBasicBlock, LlvmLoop>();
+
+	public LlvmLoopNest(LlvmDominators dom){
+		this.dom = dom;
+		for (LlvmBasicBlock h : dom.reversePostorder()) {
+			LlvmLoop loop = null;
+			for (LlvmBasicBlock p : h.predecessors)
+				if (dom.dominates(h, p)) {
+					if (loop == null)
+						loop = new LlvmLoop(h);
+					loop.latches.add(p);
+				}
+			if (loop != null) {
+				body(loop);
+				loops.add(loop);
+			}
+		}
+		nest();
+		for (LlvmLoop l : loops) {
+			exits(l);
+			preheader(l);
+		}
+	}
+
+	public LlvmLoopNest(LlvmFunction function){
+		this(new LlvmDominators(function));
+	}
+
+	public LlvmDominators getDominators(){
+		return dom;
+	}
+
+	// Todos os laços, externos antes dos internos
+	public List<LlvmLoop> loops(){
+		return Collections.unmodifiableList(loops);
+	}
+
+	// Laços que não estão dentro de nenhum outro
+	public List<LlvmLoop> topLevel(){
+		return Collections.unmodifiableList(top);
+	}
+
+	// Laço mais interno que contém 'b', ou null
+	public LlvmLoop loopOf(LlvmBasicBlock b){
+		return innermost.get(b);
+	}
+
+	// Número de laços em volta de 'b' (0 fora de laço)
+	public int depth(LlvmBasicBlock b){
+		LlvmLoop l = innermost.get(b);
+		return l == null ? 0 : l.depth;
+	}
+
+	/* Sobe dos latches pelos predecessores até o cabeçalho */
+	private void body(LlvmLoop loop){
+		loop.blocks.add(loop.header);
+		Deque<LlvmBasicBlock> work = new ArrayDeque<LlvmBasicBlock>();
+		for (LlvmBasicBlock l : loop.latches)
+			if (loop.blocks.add(l))
+				work.add(l);
+		while (!work.isEmpty())
+			for (LlvmBasicBlock p : work.poll().predecessors)
+				if (dom.isReachable(p) && loop.blocks.add(p))
+					work.add(p);
+	}
+
+	private void nest(){
+		// 'loops' está na pós-ordem reversa dos cabeçalhos: um laço externo vem antes
+		// dos internos, então o último que contém o cabeçalho é o pai
+		for (int k = 0; k < loops.size(); k++) {
+			LlvmLoop l = loops.get(k);
+			for (int j = k - 1; j >= 0; j--)
+				if (loops.get(j).contains(l.header)) {
+					l.parent = loops.get(j);
+					break;
+				}
+			if (l.parent == null) {
+				top.add(l);
+				l.depth = 1;
+			} else {
+				l.parent.children.add(l);
+				l.depth = l.parent.depth + 1;
+			}
+			for (LlvmBasicBlock b : l.blocks)
+				innermost.put(b, l);
+		}
+	}
+
+	private void exits(LlvmLoop l){
+		for (LlvmBasicBlock b : l.blocks)
+			for (LlvmBasicBlock s : b.successors)
+				if (!l.contains(s) && !l.exits.contains(s))
+					l.exits.add(s);
+	}
+
+	private void preheader(LlvmLoop l){
+		LlvmBasicBlock outside = null;
+		for (LlvmBasicBlock p : l.header.predecessors) {
+			if (l.contains(p) || !dom.isReachable(p))
+				continue;
+			if (outside != null)
+				return;
+			outside = p;
+		}
+		if (outside != null && outside.successors.size() == 1)
+			l.preheader = outside;
+	}
+}
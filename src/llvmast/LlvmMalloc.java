@@ -1,38 +1,34 @@
 package llvmast;
+import java.io.IOException;
 import java.util.*;
 public  class LlvmMalloc extends LlvmInstruction{
     public LlvmValue lhs;
     public LlvmType type;
     public LlvmValue nElements;
     
-    // Armazena o tamanho do último objeto. 
-    // Útil para pegar o Lenght do vetor 
-    public static LlvmValue lastArraySize = null;
-
     
     private int size; 
+    private LlvmValue sizeValue;	// tamanho em bytes, quando passado direto ao construtor
     private LlvmRegister lhsTimes;
     private LlvmRegister lhsCall;
-    
-	String times, call, bitcast;
+    private String className;
 
 	/**
 	 * 
 	 * Construtor Malloc: recebe apenas o tamanho em bytes que se deseja alocar
 	 * Cabe a você calcular qual será esse tamanho
 	 * 
+	 * @param regs
 	 * @param lhs
 	 * @param size
 	 */
-	public LlvmMalloc(LlvmValue lhs, LlvmValue size){
-		call = new String();
-		bitcast = new String();
-
-		LlvmValue lhsCall = new  LlvmRegister(LlvmPrimitiveType.I8);
+	public LlvmMalloc(LlvmRegisterCounter regs, LlvmValue lhs, LlvmValue size){
+		this.lhs = lhs;
+		this.type = LlvmPrimitiveType.I32;
+		this.sizeValue = size;
 
 		// Malloc de <size> bytes
-		call = "  " + lhsCall + " = call i8* @malloc ( i32 "+ size + ")\n";  
-		bitcast = "  " + lhs + " = bitcast i8* " + lhsCall + " to i32*\n";
+		lhsCall = new  LlvmRegister(regs, LlvmPrimitiveType.I8);
 	}
 	
 	
@@ -40,12 +36,13 @@ public  class LlvmMalloc extends LlvmInstruction{
 	 * Construtor para Alocar objetos de Classe: recebe o tipo (que deve ser LlvmStructure)
 	 * e o nome da Classe (objName)
 	 *  
+	 * @param regs
 	 * @param lhs
 	 * @param type
 	 * @param className
 	 */
-	public LlvmMalloc(LlvmValue lhs, LlvmType type, String className){
-		MallocImpl(lhs, type, new LlvmIntegerLiteral(1), className);
+	public LlvmMalloc(LlvmRegisterCounter regs, LlvmValue lhs, LlvmType type, String className){
+		MallocImpl(regs, lhs, type, LlvmIntegerLiteral.of(1), className);
 	}
 
 	
@@ -53,13 +50,14 @@ public  class LlvmMalloc extends LlvmInstruction{
 	 * Construtor para Alocar Vetor de Inteiros: recebe o tipo (que deve ser I32)
 	 * e o numero de elementos
 	 * 
+	 * @param regs
 	 * @param lhs
 	 * @param type
 	 * @param nElements
 	 */
 	
-	public LlvmMalloc(LlvmValue lhs, LlvmType type, LlvmValue nElements){
-		MallocImpl(lhs, type, nElements, null);
+	public LlvmMalloc(LlvmRegisterCounter regs, LlvmValue lhs, LlvmType type, LlvmValue nElements){
+		MallocImpl(regs, lhs, type, nElements, null);
 	}
 	
 	
@@ -67,12 +65,12 @@ public  class LlvmMalloc extends LlvmInstruction{
 	 *  Implementação
 	 *  
 	 */
-	private void MallocImpl(LlvmValue lhs, LlvmType type, LlvmValue nElements, String className){
+	private void MallocImpl(LlvmRegisterCounter regs, LlvmValue lhs, LlvmType type, LlvmValue nElements, String className){
 		this.lhs = lhs;
 		this.type = type;
 		this.nElements = nElements;
 		this.size = 0;
-		this.lastArraySize = null;
+		this.className = className;
 		
 		// calculando o tamanho do malloc (em Bytes)
 		if ( type instanceof LlvmStructure ){
@@ -81,26 +79,65 @@ public  class LlvmMalloc extends LlvmInstruction{
 			this.nElements = null;
 			if ( type == LlvmPrimitiveType.I32 ){
 				size = 4;
-				this.lastArraySize = nElements;
 			} else { 
 				// Se é um bool
 				size = 1;
 			}
 		}		
 		
-		lhsTimes = new LlvmRegister(LlvmPrimitiveType.I32);
-		lhsCall = new  LlvmRegister(LlvmPrimitiveType.I8);
-
-		times = new String("  " + lhsTimes + " = mul i32 " + size + ", " + nElements + "\n");
-		call = new String("  " + lhsCall + " = call i8* @malloc ( i32 "+ lhsTimes + ")\n");
-		if (className == null)
-			bitcast = new String("  " + lhs + " = bitcast i8* " + lhsCall + " to " + type + "*");
-		else
-			bitcast = new String("  " + lhs + " = bitcast i8* " + lhsCall + " to " + className + "*");
+		lhsTimes = new LlvmRegister(regs, LlvmPrimitiveType.I32);
+		lhsCall = new  LlvmRegister(regs, LlvmPrimitiveType.I8);
+		this.sizeValue = nElements;
 	}    
 	
-    public String toString(){
-	return times + call  + bitcast;
+    public void appendTo(Appendable out) throws IOException{
+	if (lhsTimes != null){
+		// mul
+		out.append("  ");
+		LlvmAppend.append(out, lhsTimes);
+		out.append(" = mul i32 ");
+		LlvmAppend.appendInt(out, size);
+		out.append(", ");
+		LlvmAppend.append(out, sizeValue);
+		out.append('\n');
+	}
+	// call
+	out.append("  ");
+	LlvmAppend.append(out, lhsCall);
+	out.append(" = call i8* @malloc ( i32 ");
+	if (lhsTimes != null)
+		LlvmAppend.append(out, lhsTimes);
+	else
+		LlvmAppend.append(out, sizeValue);
+	out.append(")\n");
+	// bitcast
+	out.append("  ");
+	LlvmAppend.append(out, lhs);
+	out.append(" = bitcast i8* ");
+	LlvmAppend.append(out, lhsCall);
+	out.append(" to ");
+	if (className != null)
+		out.append(className);
+	else
+		LlvmAppend.append(out, type);
+	out.append('*');
+    }
+
+    // Os registradores do mul e do call são internos; para fora, só 'lhs' é definido.
+    // Um malloc sem uso pode sair (o bloco nunca é liberado mesmo).
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return sizeValue == null ? Collections.<LlvmValue>emptyList() : list(sizeValue);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	sizeValue = replace(sizeValue, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
     }
 }
-	
@@ -0,0 +1,157 @@
+package llvmast;
+import java.util.*;
+
+/**
+ * O módulo estruturado: as declarações de topo (tipos das classes, constantes e
+ * as declarações do printf e do malloc) e as funções, cada uma com os seus
+ * blocos. A ordem do texto é guardada em 'order': cada função lembra quantas
+ * declarações de topo vinham antes dela.
+ *
+ * instructions() é a visão plana do módulo, na ordem em que o texto é escrito,
+ * e reflete na hora as mudanças feitas nos blocos.
+ */
+public class LlvmModule {
+	public final List<LlvmInstruction> globals = new ArrayList<LlvmInstruction>();
+	public final List<LlvmFunction> functions = new ArrayList<LlvmFunction>();
+	private final List<Integer> order = new ArrayList<Integer>();	// globals antes de cada função
+
+	public void addGlobal(LlvmInstruction i){
+		globals.add(i);
+	}
+
+	public void addFunction(LlvmFunction f){
+		functions.add(f);
+		order.add(globals.size());
+	}
+
+	public LlvmFunction function(String name){
+		for (LlvmFunction f : functions)
+			if (f.name().equals(name))
+				return f;
+		return null;
+	}
+
+	public void clear(){
+		globals.clear();
+		functions.clear();
+		order.clear();
+	}
+
+	public int size(){
+		int n = globals.size();
+		for (LlvmFunction f : functions)
+			n += f.size();
+		return n;
+	}
+
+	// Visão plana (só leitura) do módulo
+	public List<LlvmInstruction> instructions(){
+		return new AbstractSequentialList<LlvmInstruction>() {
+			public int size(){
+				return LlvmModule.this.size();
+			}
+
+			public ListIterator<LlvmInstruction> listIterator(int index){
+				Flat it = new Flat();
+				for (int k = 0; k < index; k++)
+					it.next();
+				return it;
+			}
+		};
+	}
+
+	/* Percorre globals e funções intercalados; cada função sai como define, rótulo e instruções de cada bloco e '}' */
+	private class Flat implements ListIterator<LlvmInstruction> {
+		private int global;		// próxima declaração de topo
+		private int function;	// próxima função
+		private LlvmFunction f;	// função em andamento, ou null
+		private int block;		// bloco de 'f' em andamento
+		private int instr;		// próxima instrução do bloco; -1 = falta o rótulo
+		private int index;
+
+		// A próxima instrução (null no fim); só avança o iterador se 'consume'
+		private LlvmInstruction advance(boolean consume){
+			int g = global, fn = function, b = block, i = instr;
+			LlvmFunction cur = f;
+			LlvmInstruction next = null;
+			while (next == null) {
+				if (cur == null) {
+					if (fn < functions.size() && order.get(fn) <= g) {
+						cur = functions.get(fn++);
+						b = 0;
+						i = -1;
+						next = cur.define;
+					} else if (g < globals.size()) {
+						next = globals.get(g++);
+					} else {
+						break;
+					}
+				} else if (b < cur.blocks.size()) {
+					LlvmBasicBlock blk = cur.blocks.get(b);
+					if (i == -1) {
+						i = 0;
+						next = blk.label;
+					} else if (i < blk.instructions.size()) {
+						next = blk.instructions.get(i++);
+					} else {
+						b++;
+						i = -1;
+					}
+				} else {
+					// uma função ainda aberta não tem o '}'
+					next = cur.close;
+					cur = null;
+				}
+			}
+			if (consume) {
+				global = g;
+				function = fn;
+				f = cur;
+				block = b;
+				instr = i;
+				if (next != null)
+					index++;
+			}
+			return next;
+		}
+
+		public boolean hasNext(){
+			return advance(false) != null;
+		}
+
+		public LlvmInstruction next(){
+			LlvmInstruction next = advance(true);
+			if (next == null)
+				throw new NoSuchElementException();
+			return next;
+		}
+
+		public int nextIndex(){
+			return index;
+		}
+
+		public int previousIndex(){
+			return index - 1;
+		}
+
+		public boolean hasPrevious(){
+			throw new UnsupportedOperationException();
+		}
+
+		public LlvmInstruction previous(){
+			throw new UnsupportedOperationException();
+		}
+
+		public void remove(){
+			throw new UnsupportedOperationException();
+		}
+
+		public void set(LlvmInstruction e){
+			throw new UnsupportedOperationException();
+		}
+
+		public void add(LlvmInstruction e){
+			throw new UnsupportedOperationException();
+		}
+	}
+}
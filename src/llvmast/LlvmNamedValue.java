@@ -1,4 +1,5 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmNamedValue extends LlvmRegister{
 
 	public LlvmNamedValue(String name, LlvmType type){
@@ -6,7 +7,7 @@ public class LlvmNamedValue extends LlvmRegister{
 		this.name = name;
 	}
 	
-	public String toString(){
-		return name; 
+	public void appendTo(Appendable out) throws IOException{
+		out.append(name); 
 	}
 }
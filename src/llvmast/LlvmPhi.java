@@ -0,0 +1,51 @@
+package llvmast;
+import java.io.IOException;
+import java.util.*;
+public class LlvmPhi extends LlvmInstruction{
+    public LlvmValue lhs;
+    public LlvmType type;
+    // Um valor por predecessor: values.get(i) chega pelo bloco labels.get(i)
+    public List<LlvmValue> values = new ArrayList<LlvmValue>();
+    public List<LlvmLabelValue> labels = new ArrayList<LlvmLabelValue>();
+
+    public LlvmPhi(LlvmValue lhs, LlvmType type){
+	this.lhs=lhs;
+	this.type=type;
+    }
+
+    public void addIncoming(LlvmValue value, LlvmLabelValue label){
+	values.add(value);
+	labels.add(label);
+    }
+
+    // %x.1 = phi i32 [ %tmp3, %entry0 ], [ %tmp9, %whileBody0 ]
+    public void appendTo(Appendable out) throws IOException{
+	out.append("  ");
+	LlvmAppend.append(out, lhs);
+	out.append(" = phi ");
+	LlvmAppend.append(out, type);
+	for (int i = 0; i < values.size(); i++){
+	    out.append(i == 0 ? " [ " : ", [ ");
+	    LlvmAppend.append(out, values.get(i));
+	    out.append(", %");
+	    LlvmAppend.append(out, labels.get(i));
+	    out.append(" ]");
+	}
+    }
+
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return Collections.unmodifiableList(values);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	replace(values, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
+    }
+}
@@ -1,13 +1,20 @@
 package llvmast;
+import java.io.IOException;
 
 public class LlvmPointer extends LlvmType{
-    public LlvmType content;
+    public final LlvmType content;
     
-    public LlvmPointer(LlvmType content){
+    // Use LlvmPointer.of: há uma única instância de ponteiro para cada tipo
+    LlvmPointer(LlvmType content){
     	this.content = content;
     }
 
-	public String toString(){
-		return content + " *";
+    public static LlvmPointer of(LlvmType content){
+    	return content.internPointer();
+    }
+
+	public void appendTo(Appendable out) throws IOException{
+		LlvmAppend.append(out, content);
+		out.append(" *");
     }
 }
\ No newline at end of file
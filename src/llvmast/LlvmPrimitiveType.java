@@ -1,8 +1,10 @@
 package llvmast;
+import java.io.IOException;
 public class LlvmPrimitiveType extends LlvmType{
     public static final LlvmType I1         = new LlvmPrimitiveType();
     public static final LlvmType I8         = new LlvmPrimitiveType();
     public static final LlvmType I32        = new LlvmPrimitiveType();
+    public static final LlvmType I64        = new LlvmPrimitiveType();
     public static final LlvmType VOID       = new LlvmPrimitiveType();
     public static final LlvmType LABEL      = new LlvmPrimitiveType();
     public static final LlvmType DOTDOTDOT  = new LlvmPrimitiveType();
@@ -11,9 +13,14 @@ public class LlvmPrimitiveType extends LlvmType{
 	if(this == I1) return "i1";
 	if(this == I8) return "i8";
 	if(this == I32) return "i32";
+	if(this == I64) return "i64";
 	if(this == VOID) return "void";
 	if(this == LABEL) return "label";
 	if(this == DOTDOTDOT) return "...";
 	return null;
     }
+
+    public void appendTo(Appendable out) throws IOException{
+	out.append(toString());
+    }
 }
\ No newline at end of file
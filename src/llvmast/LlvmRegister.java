@@ -1,13 +1,14 @@
 package llvmast;
+import java.io.IOException;
 
 
 public class LlvmRegister extends LlvmValue{
 	public String name;
-	static int numberReg = 0;
 	
-	public LlvmRegister(LlvmType type){
+	// Registrador temporário: o nome (%tmpN) vem do contador da função em geração
+	public LlvmRegister(LlvmRegisterCounter counter, LlvmType type){
 		this.type = type;
-		this.name = "%tmp"+numberReg++;
+		this.name = counter.nextName();
 
 	}
 
@@ -17,11 +18,7 @@ public class LlvmRegister extends LlvmValue{
 
 	}
 
-	public static void rewind(){
-		numberReg = 0;
-	}
-
-	public String toString(){
-		return name; 
+	public void appendTo(Appendable out) throws IOException{
+		out.append(name); 
 	}
 }
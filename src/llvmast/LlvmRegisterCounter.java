@@ -0,0 +1,15 @@
+package llvmast;
+
+/**
+ * Numeração dos registradores temporários (%tmpN) de uma função.
+ * O Codegen cria um contador novo a cada 'define', então os nomes recomeçam
+ * em %tmp0 em toda função. Não é compartilhado entre threads: cada contador
+ * pertence à função que está sendo gerada.
+ */
+public class LlvmRegisterCounter {
+	private int next = 0;
+
+	public String nextName(){
+		return "%tmp" + next++;
+	}
+}
@@ -1,12 +1,22 @@
 package llvmast;
+import java.io.IOException;
+import java.util.*;
 public class LlvmRet extends LlvmInstruction{
     public LlvmValue v;
     public LlvmRet(LlvmValue v){
 	this.v = v;
     }
 
-    public String toString(){
-	return "  ret " + v.type + " " + v;
+    public void appendTo(Appendable out) throws IOException{
+	out.append("  ret ");
+	LlvmAppend.appendTyped(out, v);
     }
 
-}
\ No newline at end of file
+    public List<LlvmValue> uses(){
+	return list(v);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	v = replace(v, from, to);
+    }
+}
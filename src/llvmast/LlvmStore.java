@@ -1,4 +1,6 @@
 package llvmast;
+import java.io.IOException;
+import java.util.*;
 public class LlvmStore extends LlvmInstruction{
     public LlvmValue content; 
     public LlvmValue address; 
@@ -8,7 +10,19 @@ public class LlvmStore extends LlvmInstruction{
 	this.address=address;
     }
     
-    public String toString(){
-	return "  store " + content.type + " " + content + ", " + address.type + " " + address;
+    public void appendTo(Appendable out) throws IOException{
+	out.append("  store ");
+	LlvmAppend.appendTyped(out, content);
+	out.append(", ");
+	LlvmAppend.appendTyped(out, address);
+    }
+
+    public List<LlvmValue> uses(){
+	return list(content, address);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	content = replace(content, from, to);
+	address = replace(address, from, to);
     }
 }
@@ -1,21 +1,42 @@
 package llvmast;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.*;
 
-import syntaxtree.VarDecl;
 public class LlvmStructure extends LlvmType{
-    public int sizeByte;
-    public List<LlvmType> typeList;
+    public final int sizeByte;
+    public final List<LlvmType> typeList;
     
-    public LlvmStructure(List<LlvmType> typeList){
+    // Tabela de interning das estruturas. As referências são fracas para que as
+    // estruturas de uma compilação (que apontam para as classes dela) possam ser
+    // coletadas depois; enquanto alguém as usa, 'of' devolve sempre a mesma instância.
+    private static final Map<LlvmStructure, WeakReference<LlvmStructure>> interned =
+    		new WeakHashMap<LlvmStructure, WeakReference<LlvmStructure>>();
+    
+    public static LlvmStructure of(List<LlvmType> typeList){
+    	LlvmStructure s = new LlvmStructure(Collections.unmodifiableList(new ArrayList<LlvmType>(typeList)));
+    	synchronized (interned) {
+    		WeakReference<LlvmStructure> ref = interned.get(s);
+    		LlvmStructure old = ref == null ? null : ref.get();
+    		if (old != null)
+    			return old;
+    		interned.put(s, new WeakReference<LlvmStructure>(s));
+    	}
+    	return s;
+    }
+    
+    private LlvmStructure(List<LlvmType> typeList){
     	this.typeList = typeList;
     	
+    	int sizeByte = 0;
+    	
     	// Fazendo a contagem do tamanho da estrutura, caso precise de Malloc
 		for (LlvmType T : typeList){
 			if ( T instanceof LlvmPointer ){ 
 				sizeByte += 8;
 			} else {
 				if ( T instanceof LlvmPrimitiveType){
-					if (T.toString().equals("i32")){
+					if (T == LlvmPrimitiveType.I32){
 						sizeByte += 4;
 					} else {
 						sizeByte += 1;
@@ -23,18 +44,39 @@ public class LlvmStructure extends LlvmType{
 				}
 			}
 		}
+		this.sizeByte = sizeByte;
     }
     
-    public String toString() {
-    	if (typeList.isEmpty())
-    		return "{ }";
+    // Igualdade estrutural, usada apenas pela tabela de interning: os elementos já
+    // são tipos internados, então são comparados por referência
+    public boolean equals(Object o){
+    	if (!(o instanceof LlvmStructure))
+    		return false;
+    	List<LlvmType> other = ((LlvmStructure) o).typeList;
+    	if (other.size() != typeList.size())
+    		return false;
+    	for (int i = 0; i < typeList.size(); i++)
+    		if (other.get(i) != typeList.get(i))
+    			return false;
+    	return true;
+    }
+    
+    public int hashCode(){
+    	int h = 1;
+    	for (LlvmType t : typeList)
+    		h = 31 * h + System.identityHashCode(t);
+    	return h;
+    }
+    
+    public void appendTo(Appendable out) throws IOException {
+    	if (typeList.isEmpty()){
+    		out.append("{ }");
+    		return;
+    	}
     	
-    	String S = "{ " + typeList.get(0);
-		for (int i = 1; i < typeList.size(); i++){
-			S += ", "+typeList.get(i).toString();
-		}
-    	S += " }";
-    	return S;
+    	out.append("{ ");
+    	LlvmAppend.appendTypeList(out, typeList);
+    	out.append(" }");
     }
     
 }
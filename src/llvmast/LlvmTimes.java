@@ -1,4 +1,6 @@
 package llvmast;
+import java.io.IOException;
+import java.util.*;
 
 public  class LlvmTimes extends LlvmInstruction{
 
@@ -13,7 +15,31 @@ public  class LlvmTimes extends LlvmInstruction{
 		this.op2 = op2;
     }
 
-    public String toString(){
-    	return "  " +lhs + " = mul " + type + " " + op1 + ", " + op2;
+    public void appendTo(Appendable out) throws IOException{
+    	out.append("  ");
+    	LlvmAppend.append(out, lhs);
+    	out.append(" = mul ");
+    	LlvmAppend.append(out, type);
+    	out.append(' ');
+    	LlvmAppend.append(out, op1);
+    	out.append(", ");
+    	LlvmAppend.append(out, op2);
     }
-}
\ No newline at end of file
+
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return list(op1, op2);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	op1 = replace(op1, from, to);
+	op2 = replace(op2, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
+    }
+}
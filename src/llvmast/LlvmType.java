@@ -1,2 +1,54 @@
 package llvmast;
-public abstract class LlvmType{}
\ No newline at end of file
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+public abstract class LlvmType{
+    // Interning: o ponteiro e os arrays deste tipo são criados uma única vez e
+    // guardados aqui, então tipos estruturalmente iguais são a mesma instância
+    // (ver LlvmPointer.of e LlvmArray.of). Sem monitor: os ClassTasks paralelos
+    // pedem LlvmPointer.of(I32) o tempo todo; quem perde o compareAndSet descarta
+    // a sua instância e usa a que ficou, então a identidade continua valendo.
+    private volatile LlvmPointer pointerTo;
+    private volatile ConcurrentMap<Integer, LlvmArray> arraysOf;
+
+    private static final AtomicReferenceFieldUpdater<LlvmType, LlvmPointer> POINTER =
+	AtomicReferenceFieldUpdater.newUpdater(LlvmType.class, LlvmPointer.class, "pointerTo");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<LlvmType, ConcurrentMap> ARRAYS =
+	AtomicReferenceFieldUpdater.newUpdater(LlvmType.class, ConcurrentMap.class, "arraysOf");
+
+    LlvmPointer internPointer(){
+	LlvmPointer p = pointerTo;
+	if (p == null){
+	    POINTER.compareAndSet(this, null, new LlvmPointer(this));
+	    p = pointerTo;
+	}
+	return p;
+    }
+
+    LlvmArray internArray(int length){
+	ConcurrentMap<Integer, LlvmArray> m = arraysOf;
+	if (m == null){
+	    ARRAYS.compareAndSet(this, null, new ConcurrentHashMap<Integer, LlvmArray>());
+	    m = arraysOf;
+	}
+	LlvmArray a = m.get(length);
+	if (a == null){
+	    LlvmArray fresh = new LlvmArray(length, this);
+	    a = m.putIfAbsent(length, fresh);
+	    if (a == null)
+		a = fresh;
+	}
+	return a;
+    }
+
+    // Escreve o tipo em 'out'; tipos aninhados escrevem direto no mesmo 'out'
+    public abstract void appendTo(Appendable out) throws IOException;
+
+    public String toString(){
+	StringBuilder sb = new StringBuilder();
+	LlvmAppend.render(this, sb);
+	return sb.toString();
+    }
+}
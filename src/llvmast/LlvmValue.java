@@ -1,4 +1,14 @@
 package llvmast;
+import java.io.IOException;
 public abstract class LlvmValue{
     public LlvmType type;
-}
\ No newline at end of file
+
+    // Escreve o valor (sem o tipo) em 'out'
+    public abstract void appendTo(Appendable out) throws IOException;
+
+    public String toString(){
+	StringBuilder sb = new StringBuilder();
+	LlvmAppend.render(this, sb);
+	return sb.toString();
+    }
+}
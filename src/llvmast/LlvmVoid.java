@@ -1,2 +1,7 @@
 package llvmast;
-public class LlvmVoid extends LlvmType{}
\ No newline at end of file
+import java.io.IOException;
+public class LlvmVoid extends LlvmType{
+    public void appendTo(Appendable out) throws IOException{
+	out.append("void");
+    }
+}
@@ -0,0 +1,43 @@
+package llvmast;
+import java.io.IOException;
+import java.util.*;
+public  class LlvmXor extends LlvmInstruction{
+    public LlvmRegister lhs;
+    public LlvmType type;
+    public LlvmValue op1, op2;
+
+    public LlvmXor(LlvmRegister lhs, LlvmType type, LlvmValue op1, LlvmValue op2){
+	this.lhs = lhs;
+	this.type = type;
+	this.op1 = op1;
+	this.op2 = op2;
+    }
+
+    public void appendTo(Appendable out) throws IOException{
+	out.append("  ");
+	LlvmAppend.append(out, lhs);
+	out.append(" = xor ");
+	LlvmAppend.append(out, type);
+	out.append(' ');
+	LlvmAppend.append(out, op1);
+	out.append(", ");
+	LlvmAppend.append(out, op2);
+    }
+
+    public LlvmValue def(){
+	return lhs;
+    }
+
+    public List<LlvmValue> uses(){
+	return list(op1, op2);
+    }
+
+    public void replaceUse(LlvmValue from, LlvmValue to){
+	op1 = replace(op1, from, to);
+	op2 = replace(op2, from, to);
+    }
+
+    public boolean hasSideEffects(){
+	return false;
+    }
+}
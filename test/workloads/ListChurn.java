@@ -0,0 +1,130 @@
+class ListChurn{
+    public static void main(String[] a){
+	System.out.println(new LC().Start(20000, 40));
+    }
+}
+
+
+// Lista ligada sob churn: em cada rodada insere 'n' elementos no inicio,
+// remove um a cada tres e soma os que sobraram
+class LC{
+
+    public int Start(int n, int rounds){
+	int r ;
+	int i ;
+	int total ;
+	int seed ;
+	List list ;
+	r = 0 ;
+	total = 0 ;
+	seed = 7 ;
+	list = new List();
+	list = list.Init();
+	while (r < rounds) {
+	    list = new List();
+	    list = list.Init();
+	    i = 0 ;
+	    while (i < n) {
+		seed = (seed * 1103515245) + 12345 ;
+		list = list.Push(seed);
+		i = i + 1 ;
+	    }
+	    i = list.RemoveEveryThird();
+	    total = total + list.Sum();
+	    r = r + 1 ;
+	}
+	System.out.println(list.Length());
+	return total ;
+    }
+}
+
+// Um no da lista; o ultimo e um no sentinela com 'end' verdadeiro
+class List{
+
+    int value ;
+    List next ;
+    boolean end ;
+
+    public List Init(){
+	end = true ;
+	return this ;
+    }
+
+    public boolean Set(int v, List n){
+	value = v ;
+	next = n ;
+	end = false ;
+	return true ;
+    }
+
+    public List Push(int v){
+	List head ;
+	boolean ok ;
+	head = new List();
+	ok = head.Set(v, this);
+	return head ;
+    }
+
+    public List GetNext(){
+	return next ;
+    }
+
+    public int GetValue(){
+	return value ;
+    }
+
+    public boolean IsEnd(){
+	return end ;
+    }
+
+    public boolean Unlink(){
+	next = next.GetNext();
+	return true ;
+    }
+
+    // Remove o terceiro, o sexto, ... elemento; devolve quantos sairam
+    public int RemoveEveryThird(){
+	List cur ;
+	int pos ;
+	int removed ;
+	boolean ok ;
+	cur = this ;
+	pos = 1 ;
+	removed = 0 ;
+	while (!cur.IsEnd()) {
+	    if (pos < 2) pos = pos + 1 ;
+	    else if (!(cur.GetNext()).IsEnd()) {
+		ok = cur.Unlink();
+		removed = removed + 1 ;
+		pos = 1 ;
+	    }
+	    else {}
+	    cur = cur.GetNext();
+	}
+	return removed ;
+    }
+
+    public int Sum(){
+	List cur ;
+	int s ;
+	cur = this ;
+	s = 0 ;
+	while (!cur.IsEnd()) {
+	    s = s + cur.GetValue();
+	    cur = cur.GetNext();
+	}
+	return s ;
+    }
+
+    public int Length(){
+	List cur ;
+	int l ;
+	cur = this ;
+	l = 0 ;
+	while (!cur.IsEnd()) {
+	    l = l + 1 ;
+	    cur = cur.GetNext();
+	}
+	return l ;
+    }
+}
@@ -0,0 +1,92 @@
+class MatMul{
+    public static void main(String[] a){
+	System.out.println(new MM().Start(160));
+    }
+}
+
+
+// Multiplicacao de matrizes n x n guardadas em int[] (linha a linha);
+// imprime o traco de C = A * B e devolve a soma de todos os elementos
+class MM{
+
+    int[] ma ;
+    int[] mb ;
+    int[] mc ;
+    int n ;
+
+    public int Start(int sz){
+	int aux01 ;
+	n = sz ;
+	ma = new int[sz * sz] ;
+	mb = new int[sz * sz] ;
+	mc = new int[sz * sz] ;
+	aux01 = this.Init();
+	aux01 = this.Multiply();
+	System.out.println(this.Trace());
+	return this.Sum();
+    }
+
+    public int Init(){
+	int i ;
+	int j ;
+	i = 0 ;
+	while (i < n) {
+	    j = 0 ;
+	    while (j < n) {
+		ma[(i * n) + j] = i + j ;
+		mb[(i * n) + j] = i - (2 * j) ;
+		mc[(i * n) + j] = 0 ;
+		j = j + 1 ;
+	    }
+	    i = i + 1 ;
+	}
+	return 0 ;
+    }
+
+    public int Multiply(){
+	int i ;
+	int j ;
+	int k ;
+	int s ;
+	i = 0 ;
+	while (i < n) {
+	    j = 0 ;
+	    while (j < n) {
+		s = 0 ;
+		k = 0 ;
+		while (k < n) {
+		    s = s + (ma[(i * n) + k] * mb[(k * n) + j]) ;
+		    k = k + 1 ;
+		}
+		mc[(i * n) + j] = s ;
+		j = j + 1 ;
+	    }
+	    i = i + 1 ;
+	}
+	return 0 ;
+    }
+
+    public int Trace(){
+	int i ;
+	int t ;
+	i = 0 ;
+	t = 0 ;
+	while (i < n) {
+	    t = t + mc[(i * n) + i] ;
+	    i = i + 1 ;
+	}
+	return t ;
+    }
+
+    public int Sum(){
+	int i ;
+	int s ;
+	i = 0 ;
+	s = 0 ;
+	while (i < (n * n)) {
+	    s = s + mc[i] ;
+	    i = i + 1 ;
+	}
+	return s ;
+    }
+}
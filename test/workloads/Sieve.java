@@ -0,0 +1,76 @@
+class Sieve{
+    public static void main(String[] a){
+	System.out.println(new Sv().Start(300000, 20));
+    }
+}
+
+
+// Crivo de Eratostenes repetido 'rounds' vezes sobre um int[] de 'n'
+// posicoes; imprime a contagem de primos e devolve o maior primo < n
+class Sv{
+
+    int[] flags ;
+    int size ;
+
+    public int Start(int n, int rounds){
+	int r ;
+	int count ;
+	size = n ;
+	flags = new int[n] ;
+	r = 0 ;
+	count = 0 ;
+	while (r < rounds) {
+	    count = this.Sieve();
+	    r = r + 1 ;
+	}
+	System.out.println(count);
+	return this.Largest();
+    }
+
+    // Limpa o vetor, marca os compostos e conta os primos
+    public int Sieve(){
+	int i ;
+	int j ;
+	int count ;
+	i = 0 ;
+	while (i < size) {
+	    flags[i] = 0 ;
+	    i = i + 1 ;
+	}
+	i = 2 ;
+	while ((i * i) < size) {
+	    if (flags[i] < 1) {
+		j = i * i ;
+		while (j < size) {
+		    flags[j] = 1 ;
+		    j = j + i ;
+		}
+	    }
+	    else {}
+	    i = i + 1 ;
+	}
+	count = 0 ;
+	i = 2 ;
+	while (i < size) {
+	    if (flags[i] < 1) count = count + 1 ;
+	    else {}
+	    i = i + 1 ;
+	}
+	return count ;
+    }
+
+    public int Largest(){
+	int i ;
+	int p ;
+	p = 0 ;
+	i = size - 1 ;
+	while (0 < i) {
+	    if (flags[i] < 1) {
+		p = i ;
+		i = 0 ;
+	    }
+	    else i = i - 1 ;
+	}
+	return p ;
+    }
+}
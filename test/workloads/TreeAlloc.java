@@ -0,0 +1,68 @@
+class TreeAlloc{
+    public static void main(String[] a){
+	System.out.println(new TA().Start(16, 12));
+    }
+}
+
+
+// Estresse de alocacao: constroi 'rounds' arvores binarias completas de
+// profundidade 'depth', conta os nos de cada uma e descarta a arvore
+class TA{
+
+    public int Start(int depth, int rounds){
+	int r ;
+	int total ;
+	Node root ;
+	r = 0 ;
+	total = 0 ;
+	root = this.Make(0);
+	while (r < rounds) {
+	    root = this.Make(depth);
+	    total = total + root.Count();
+	    r = r + 1 ;
+	}
+	System.out.println(root.Count());
+	return total ;
+    }
+
+    public Node Make(int d){
+	Node n ;
+	Node l ;
+	Node r ;
+	boolean ok ;
+	n = new Node();
+	if (0 < d) {
+	    l = this.Make(d - 1);
+	    r = this.Make(d - 1);
+	    ok = n.SetChildren(l, r);
+	}
+	else ok = n.SetLeaf();
+	return n ;
+    }
+}
+
+class Node{
+
+    Node left ;
+    Node right ;
+    boolean leaf ;
+
+    public boolean SetChildren(Node l, Node r){
+	left = l ;
+	right = r ;
+	leaf = false ;
+	return true ;
+    }
+
+    public boolean SetLeaf(){
+	leaf = true ;
+	return true ;
+    }
+
+    public int Count(){
+	int c ;
+	if (leaf) c = 1 ;
+	else c = (1 + left.Count()) + right.Count() ;
+	return c ;
+    }
+}